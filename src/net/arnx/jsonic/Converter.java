@@ -80,6 +80,7 @@ import java.util.regex.Pattern;
 
 import net.arnx.jsonic.JSON.Context;
 import net.arnx.jsonic.io.StringBuilderOutputSource;
+import net.arnx.jsonic.parse.LazyNumber;
 import net.arnx.jsonic.util.Base64;
 import net.arnx.jsonic.util.BeanInfo;
 import net.arnx.jsonic.util.ClassUtil;
@@ -274,6 +275,8 @@ final class CharacterConverter implements Converter {
 			return (((Boolean)value).booleanValue()) ? '1' : '0';
 		} else if (value instanceof BigDecimal) {
 			return (char)((BigDecimal)value).intValueExact();
+		} else if (value instanceof LazyNumber) {
+			return (char)((LazyNumber)value).toBigDecimal().intValueExact();
 		} else if (value instanceof String) {
 			String s = value.toString();
 			if (s.length() > 0) {
@@ -311,6 +314,8 @@ final class ByteConverter implements Converter {
 			return (c == byte.class) ? (byte)0 : null;
 		} else if (value instanceof BigDecimal) {
 			return ((BigDecimal)value).byteValueExact();
+		} else if (value instanceof LazyNumber) {
+			return ((LazyNumber)value).toBigDecimal().byteValueExact();
 		} else if (value instanceof String) {
 			NumberFormat f = context.getNumberFormat();
 			if (f != null) value = f.parse((String)value);
@@ -335,6 +340,14 @@ final class ByteConverter implements Converter {
 			}
 		} else if (value instanceof Boolean) {
 			return (((Boolean)value).booleanValue()) ? 1 : 0;
+		} else if (value instanceof Long) {
+			long num = (Long)value;
+			if ((byte)num != num) {
+				throw new ArithmeticException("Overflow");
+			}
+			return (byte)num;
+		} else if (LongConverter.isFiniteDouble(value)) {
+			return BigDecimal.valueOf((Double)value).byteValueExact();
 		} else if (value instanceof Number) {
 			return ((Number)value).byteValue();
 		} else {
@@ -365,6 +378,8 @@ final class ShortConverter implements Converter {
 			return (c == short.class) ? (short)0 : null;
 		} else if (value instanceof BigDecimal) {
 			return ((BigDecimal)value).shortValueExact();
+		} else if (value instanceof LazyNumber) {
+			return ((LazyNumber)value).toBigDecimal().shortValueExact();
 		} else  if (value instanceof String) {
 			NumberFormat f = context.getNumberFormat();
 			if (f != null) value = f.parse((String)value);
@@ -386,6 +401,14 @@ final class ShortConverter implements Converter {
 			}
 		} else if (value instanceof Boolean) {
 			return (((Boolean)value).booleanValue()) ? 1 : 0;
+		} else if (value instanceof Long) {
+			long num = (Long)value;
+			if ((short)num != num) {
+				throw new ArithmeticException("Overflow");
+			}
+			return (short)num;
+		} else if (LongConverter.isFiniteDouble(value)) {
+			return BigDecimal.valueOf((Double)value).shortValueExact();
 		} else if (value instanceof Number) {
 			return ((Number)value).shortValue();
 		} else {
@@ -416,6 +439,8 @@ final class IntegerConverter  implements Converter {
 			return (c == int.class) ? 0 : null;
 		} else if (value instanceof BigDecimal) {
 			return ((BigDecimal)value).intValueExact();
+		} else if (value instanceof LazyNumber) {
+			return ((LazyNumber)value).intValueExact();
 		} else  if (value instanceof String) {
 			NumberFormat f = context.getNumberFormat();
 			if (f != null) value = f.parse((String)value);
@@ -437,6 +462,14 @@ final class IntegerConverter  implements Converter {
 			}
 		} else if (value instanceof Boolean) {
 			return (((Boolean)value).booleanValue()) ? 1 : 0;
+		} else if (value instanceof Long) {
+			long num = (Long)value;
+			if ((int)num != num) {
+				throw new ArithmeticException("Overflow");
+			}
+			return (int)num;
+		} else if (LongConverter.isFiniteDouble(value)) {
+			return BigDecimal.valueOf((Double)value).intValueExact();
 		} else if (value instanceof Number) {
 			return ((Number)value).intValue();
 		} else {
@@ -467,6 +500,8 @@ final class LongConverter implements Converter {
 			return (c == long.class) ? 0L : null;
 		} else if (value instanceof BigDecimal) {
 			return ((BigDecimal)value).longValueExact();
+		} else if (value instanceof LazyNumber) {
+			return ((LazyNumber)value).longValueExact();
 		} else if (value instanceof String) {
 			NumberFormat f = context.getNumberFormat();
 			if (f != null) value = f.parse((String)value);
@@ -488,12 +523,22 @@ final class LongConverter implements Converter {
 			}
 		} else if (value instanceof Boolean) {
 			return (((Boolean)value).booleanValue()) ? 1l : 0l;
+		} else if (isFiniteDouble(value)) {
+			return BigDecimal.valueOf((Double)value).longValueExact();
 		} else if (value instanceof Number) {
 			return ((Number)value).longValue();
 		} else {
 			throw new UnsupportedOperationException("Cannot convert " + value.getClass() + " to " + t);
 		}
 	}
+
+	/**
+	 * Checks for a Double which NumberMode.NATIVE produces, to convert it exactly
+	 * as a BigDecimal would be. NaN and infinity are converted as before.
+	 */
+	static boolean isFiniteDouble(Object value) {
+		return value instanceof Double && !((Double)value).isNaN() && !((Double)value).isInfinite();
+	}
 }
 
 final class FloatConverter  implements Converter {
@@ -600,6 +645,8 @@ final class BigIntegerConverter  implements Converter {
 			return null;
 		} else if (value instanceof BigDecimal) {
 			return ((BigDecimal)value).toBigIntegerExact();
+		} else if (value instanceof LazyNumber) {
+			return ((LazyNumber)value).toBigIntegerExact();
 		} else if (value instanceof BigInteger) {
 			return value;
 		} else if (value instanceof String) {
@@ -650,6 +697,18 @@ final class BigDecimalConverter  implements Converter {
 			return null;
 		} else if (value instanceof BigDecimal) {
 			return value;
+		} else if (value instanceof Number) {
+			if (c == Number.class) {
+				return value;
+			} else if (value instanceof LazyNumber) {
+				return ((LazyNumber)value).toBigDecimal();
+			} else if (value instanceof BigInteger) {
+				return new BigDecimal((BigInteger)value);
+			} else if (value instanceof Double || value instanceof Float) {
+				return BigDecimal.valueOf(((Number)value).doubleValue());
+			} else {
+				return BigDecimal.valueOf(((Number)value).longValue());
+			}
 		} else if (value instanceof String) {
 			NumberFormat f = context.getNumberFormat();
 			if (f != null) value = f.parse((String)value);
@@ -1383,7 +1442,7 @@ final class ArrayConverter implements Converter {
 final class CollectionConverter implements Converter {
 	public static final CollectionConverter INSTANCE = new CollectionConverter();
 
-	private static final TypeVariable<?> TYPE_VARIABLE;
+	static final TypeVariable<?> TYPE_VARIABLE;
 
 	static {
 		TypeVariable<?>[] params = Collection.class.getTypeParameters();
@@ -1527,8 +1586,8 @@ final class PropertiesConverter implements Converter {
 final class MapConverter implements Converter {
 	public static final MapConverter INSTANCE = new MapConverter();
 
-	private static final TypeVariable<?> TYPE_VARIABLE_KEY;
-	private static final TypeVariable<?> TYPE_VARIABLE_VALUE;
+	static final TypeVariable<?> TYPE_VARIABLE_KEY;
+	static final TypeVariable<?> TYPE_VARIABLE_VALUE;
 
 	static {
 		TypeVariable<?>[] params = Map.class.getTypeParameters();
@@ -1612,7 +1671,7 @@ final class MapConverter implements Converter {
 
 final class ObjectConverter implements Converter {
 	private Class<?> cls;
-	private transient Map<String, PropertyInfo> props;
+	private transient volatile Map<String, PropertyInfo> props;
 
 	public ObjectConverter(Class<?> cls) {
 		this.cls = cls;
@@ -1635,8 +1694,7 @@ final class ObjectConverter implements Converter {
 			if (o == null) return null;
 			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
 				String name = entry.getKey().toString();
-				PropertyInfo target = props.get(name);
-				if (target == null) target = props.get(toLowerCamel(context, name));
+				PropertyInfo target = getSetProperty(context, name);
 				if (target == null) continue;
 
 				JSONHint hint = target.getWriteAnnotation(JSONHint.class);
@@ -1678,6 +1736,14 @@ final class ObjectConverter implements Converter {
 		}
 	}
 
+	PropertyInfo getSetProperty(Context context, String name) {
+		if (props == null) props = getSetProperties(context, cls);
+
+		PropertyInfo target = props.get(name);
+		if (target == null) target = props.get(toLowerCamel(context, name));
+		return target;
+	}
+
 	private static Map<String, PropertyInfo> getSetProperties(Context context, Class<?> c) {
 		Map<String, PropertyInfo> props = new HashMap<String, PropertyInfo>();
 
@@ -2490,4 +2556,4 @@ final class OptionalConverter implements Converter {
 			return Optional.empty();
 		}
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
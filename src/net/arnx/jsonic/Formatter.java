@@ -35,6 +35,7 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.time.temporal.TemporalAmount;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
@@ -51,6 +52,10 @@ import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.RandomAccess;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.BaseStream;
 
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.DynaProperty;
@@ -68,9 +73,12 @@ import org.w3c.dom.Text;
 import net.arnx.jsonic.JSON.Context;
 import net.arnx.jsonic.JSON.Mode;
 import net.arnx.jsonic.io.OutputSource;
+import net.arnx.jsonic.io.StringBuilderOutputSource;
 import net.arnx.jsonic.util.Base64;
 import net.arnx.jsonic.util.BeanInfo;
 import net.arnx.jsonic.util.ClassUtil;
+import net.arnx.jsonic.util.FloatingDecimal;
+import net.arnx.jsonic.util.IntegerDecimal;
 import net.arnx.jsonic.util.PropertyInfo;
 
 interface Formatter {
@@ -79,6 +87,15 @@ interface Formatter {
 	void format(Context context, Object src, Object o, OutputSource out) throws Exception;
 }
 
+/**
+ * Iterates the elements of a source which is neither Iterable nor Iterator.
+ */
+interface IteratorSource {
+	boolean accept(Object o);
+	Iterator<?> iterator(Object o);
+	void close(Object o);
+}
+
 final class NullFormatter implements Formatter {
 	public static final NullFormatter INSTANCE = new NullFormatter();
 
@@ -120,7 +137,10 @@ final class PlainFormatter implements Formatter {
 final class StringFormatter implements Formatter {
 	public static final StringFormatter INSTANCE = new StringFormatter();
 
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
 	private static final int[] ESCAPE_CHARS = new int[128];
+	private static final int[] STRICT_ESCAPE_CHARS;
 
 	static {
 		for (int i = 0; i < 32; i++) {
@@ -133,9 +153,12 @@ final class StringFormatter implements Formatter {
 		ESCAPE_CHARS['\r'] = 'r';
 		ESCAPE_CHARS['"'] = '"';
 		ESCAPE_CHARS['\\'] = '\\';
-		ESCAPE_CHARS['<'] = -2;
-		ESCAPE_CHARS['>'] = -2;
 		ESCAPE_CHARS[0x7F] = -1;
+
+		STRICT_ESCAPE_CHARS = ESCAPE_CHARS.clone();
+
+		ESCAPE_CHARS['<'] = -1;
+		ESCAPE_CHARS['>'] = -1;
 	}
 
 	@Override
@@ -154,38 +177,43 @@ final class StringFormatter implements Formatter {
 	}
 
 	static void serialize(final Context context, final String s, final OutputSource out) throws IOException {
-		out.append('"');
-		int start = 0;
+		final int[] escapes = (context.getMode() == Mode.STRICT) ? STRICT_ESCAPE_CHARS : ESCAPE_CHARS;
+		final char[] buf = context.getLocalCache().getCachedChars();
 		final int length = s.length();
-		for (int i = 0; i < length; i++) {
-			int c = s.charAt(i);
-			if (c < ESCAPE_CHARS.length) {
-				int x = ESCAPE_CHARS[c];
-				if (x == 0) {
-					// no handle
-				} else if (x > 0) {
-					if (start < i) out.append(s, start, i);
-					out.append('\\');
+
+		out.append('"');
+		for (int offset = 0; offset < length; offset += buf.length) {
+			final int end = Math.min(buf.length, length - offset);
+			s.getChars(offset, offset + end, buf, 0);
+
+			int start = 0;
+			for (int i = 0; i < end; i++) {
+				char c = buf[i];
+				int x;
+				if (c < 128) {
+					x = escapes[c];
+					if (x == 0) continue;
+				} else if (c == '\u2028' || c == '\u2029') {
+					x = -1;
+				} else {
+					continue;
+				}
+
+				if (start < i) context.append(out, buf, start, i);
+				out.append('\\');
+				if (x > 0) {
 					out.append((char)x);
-					start = i + 1;
-				} else if (x == -1 || (x == -2 && context.getMode() != Mode.STRICT)) {
-					if (start < i) out.append(s, start, i);
-					out.append("\\u00");
-					out.append("0123456789ABCDEF".charAt(c / 16));
-					out.append("0123456789ABCDEF".charAt(c % 16));
-					start = i + 1;
+				} else {
+					out.append('u');
+					out.append(HEX[(c >> 12) & 0xF]);
+					out.append(HEX[(c >> 8) & 0xF]);
+					out.append(HEX[(c >> 4) & 0xF]);
+					out.append(HEX[c & 0xF]);
 				}
-			} else if (c == '\u2028') {
-				if (start < i) out.append(s, start, i);
-				out.append("\\u2028");
-				start = i + 1;
-			} else if (c == '\u2029') {
-				if (start < i) out.append(s, start, i);
-				out.append("\\u2029");
 				start = i + 1;
 			}
+			if (start < end) context.append(out, buf, start, end);
 		}
-		if (start < length) out.append(s, start, length);
 		out.append('"');
 	}
 }
@@ -281,6 +309,14 @@ final class NumberFormatter implements Formatter {
 
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
+		if (o instanceof Integer || o instanceof Short) {
+			format(context, ((Number)o).intValue(), out);
+			return;
+		} else if (o instanceof Long) {
+			format(context, ((Long)o).longValue(), out);
+			return;
+		}
+
 		NumberFormat f = context.getNumberFormat();
 		if (f != null) {
 			StringFormatter.serialize(context, f.format(o), out);
@@ -294,7 +330,8 @@ final class NumberFormatter implements Formatter {
 		if (f != null) {
 			StringFormatter.serialize(context, f.format(num), out);
 		} else {
-			out.append(Integer.toString(num));
+			char[] buf = context.getLocalCache().getCachedChars();
+			context.append(out, buf, 0, IntegerDecimal.toChars(num, buf, 0));
 		}
 	}
 
@@ -303,7 +340,8 @@ final class NumberFormatter implements Formatter {
 		if (f != null) {
 			StringFormatter.serialize(context, f.format(num), out);
 		} else {
-			out.append(Long.toString(num));
+			char[] buf = context.getLocalCache().getCachedChars();
+			context.append(out, buf, 0, IntegerDecimal.toChars(num, buf, 0));
 		}
 	}
 }
@@ -365,7 +403,8 @@ final class FloatFormatter implements Formatter {
 					out.append("_INFINITY");
 				}
 			} else {
-				out.append(Double.toString(d));
+				char[] buf = context.getLocalCache().getCachedChars();
+				context.append(out, buf, 0, FloatingDecimal.toChars(d, buf, 0));
 			}
 		}
 	}
@@ -541,13 +580,14 @@ final class ShortArrayFormatter implements Formatter {
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
 		NumberFormat f = context.getNumberFormat();
+		char[] buf = (f == null) ? context.getLocalCache().getCachedChars() : null;
 		short[] array = (short[]) o;
 		out.append('[');
 		for (int i = 0; i < array.length; i++) {
 			if (f != null) {
 				StringFormatter.serialize(context, f.format(array[i]), out);
 			} else {
-				out.append(String.valueOf(array[i]));
+				context.append(out, buf, 0, IntegerDecimal.toChars(array[i], buf, 0));
 			}
 			if (i != array.length - 1) {
 				out.append(',');
@@ -576,13 +616,14 @@ final class IntArrayFormatter implements Formatter {
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
 		NumberFormat f = context.getNumberFormat();
+		char[] buf = (f == null) ? context.getLocalCache().getCachedChars() : null;
 		int[] array = (int[]) o;
 		out.append('[');
 		for (int i = 0; i < array.length; i++) {
 			if (f != null) {
 				StringFormatter.serialize(context, f.format(array[i]), out);
 			} else {
-				out.append(String.valueOf(array[i]));
+				context.append(out, buf, 0, IntegerDecimal.toChars(array[i], buf, 0));
 			}
 			if (i != array.length - 1) {
 				out.append(',');
@@ -611,13 +652,14 @@ final class LongArrayFormatter implements Formatter {
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
 		NumberFormat f = context.getNumberFormat();
+		char[] buf = (f == null) ? context.getLocalCache().getCachedChars() : null;
 		long[] array = (long[]) o;
 		out.append('[');
 		for (int i = 0; i < array.length; i++) {
 			if (f != null) {
 				StringFormatter.serialize(context, f.format(array[i]), out);
 			} else {
-				out.append(String.valueOf(array[i]));
+				context.append(out, buf, 0, IntegerDecimal.toChars(array[i], buf, 0));
 			}
 			if (i != array.length - 1) {
 				out.append(',');
@@ -645,6 +687,7 @@ final class FloatArrayFormatter implements Formatter {
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
 		NumberFormat f = context.getNumberFormat();
+		char[] buf = (f == null) ? context.getLocalCache().getCachedChars() : null;
 		float[] array = (float[]) o;
 		out.append('[');
 		for (int i = 0; i < array.length; i++) {
@@ -663,7 +706,7 @@ final class FloatArrayFormatter implements Formatter {
 			} else if (f != null) {
 				StringFormatter.serialize(context, f.format(array[i]), out);
 			} else {
-				out.append(String.valueOf(array[i]));
+				context.append(out, buf, 0, FloatingDecimal.toChars(array[i], buf, 0));
 			}
 			if (i != array.length - 1) {
 				out.append(',');
@@ -691,6 +734,7 @@ final class DoubleArrayFormatter implements Formatter {
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
 		NumberFormat f = context.getNumberFormat();
+		char[] buf = (f == null) ? context.getLocalCache().getCachedChars() : null;
 		double[] array = (double[]) o;
 		out.append('[');
 		for (int i = 0; i < array.length; i++) {
@@ -709,7 +753,7 @@ final class DoubleArrayFormatter implements Formatter {
 			} else if (f != null) {
 				StringFormatter.serialize(context, f.format(array[i]), out);
 			} else {
-				out.append(String.valueOf(array[i]));
+				context.append(out, buf, 0, FloatingDecimal.toChars(array[i], buf, 0));
 			}
 			if (i != array.length - 1) {
 				out.append(',');
@@ -743,6 +787,11 @@ final class ObjectArrayFormatter implements Formatter {
 		Formatter lastFormatter = null;
 		Class<?> cType = array.getClass().getComponentType();
 
+		if (context.getParallelExecutor() != null && array.length >= context.getParallelThreshold()) {
+			ParallelFormatter.format(context, src, Arrays.asList(array), cType, out);
+			return;
+		}
+
 		out.append('[');
 		int i = 0;
 		for (; i < array.length; i++) {
@@ -770,6 +819,7 @@ final class ObjectArrayFormatter implements Formatter {
 				context.formatInternal(item, out);
 			}
 			context.exit();
+			context.flushPoint(out);
 		}
 		if (context.isPrettyPrint() && i > 0) {
 			out.append('\n');
@@ -926,6 +976,11 @@ final class ListFormatter implements Formatter {
 		final JSONHint hint = context.getHint();
 		final int length = list.size();
 
+		if (context.getParallelExecutor() != null && length >= context.getParallelThreshold()) {
+			ParallelFormatter.format(context, src, list, null, out);
+			return;
+		}
+
 		Class<?> lastClass = null;
 		Formatter lastFormatter = null;
 
@@ -955,6 +1010,7 @@ final class ListFormatter implements Formatter {
 				context.formatInternal(item, out);
 			}
 			context.exit();
+			context.flushPoint(out);
 			count++;
 		}
 		if (context.isPrettyPrint() && count > 0) {
@@ -965,6 +1021,92 @@ final class ListFormatter implements Formatter {
 	}
 }
 
+/**
+ * Formats a large list on the parallel executor of the context. The list is split
+ * into ranges, each range is formatted with a forked context into its own buffer,
+ * and the buffers are written to the output in order.
+ */
+final class ParallelFormatter {
+	private ParallelFormatter() {
+	}
+
+	static void format(final Context context, final Object src, final List<?> list, final Class<?> cType, final OutputSource out) throws Exception {
+		final JSONHint hint = context.getHint();
+		final int length = list.size();
+		int count = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, length / 256));
+		int size = (length + count - 1) / count;
+
+		List<Future<String>> futures = new ArrayList<Future<String>>(count);
+		try {
+			for (int i = 0; i < length; i += size) {
+				final Context fork = context.fork();
+				final int start = i;
+				final int end = Math.min(i + size, length);
+				futures.add(context.getParallelExecutor().submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						StringBuilderOutputSource buf = new StringBuilderOutputSource((end - start) * 32);
+						formatRange(fork, src, list, cType, hint, start, end, buf);
+						return buf.toString();
+					}
+				}));
+			}
+
+			out.append('[');
+			for (Future<String> future : futures) {
+				out.append(future.get());
+				context.flushPoint(out);
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) throw (Exception)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw e;
+		} finally {
+			for (Future<String> future : futures) {
+				future.cancel(true);
+			}
+		}
+		if (context.isPrettyPrint() && length > 0) {
+			out.append('\n');
+			context.appendIndent(out, context.getDepth());
+		}
+		out.append(']');
+	}
+
+	private static void formatRange(Context context, Object src, List<?> list, Class<?> cType, JSONHint hint,
+			int start, int end, OutputSource out) throws Exception {
+		Class<?> lastClass = null;
+		Formatter lastFormatter = null;
+
+		for (int i = start; i < end; i++) {
+			Object item = list.get(i);
+			if (item == src) item = null;
+
+			if (i != 0) out.append(',');
+			if (context.isPrettyPrint()) {
+				out.append('\n');
+				context.appendIndent(out, context.getDepth() + 1);
+			}
+			context.enter(i, hint);
+			item = context.preformatInternal((cType != null) ? cType : (item != null) ? item.getClass() : Object.class, item);
+			if (item == null) {
+				NullFormatter.INSTANCE.format(context, src, item, out);
+			} else if (hint == null) {
+				if (item.getClass() == lastClass) {
+					lastFormatter.format(context, src, item, out);
+				} else {
+					lastFormatter = context.formatInternal(item, out);
+					lastClass = item.getClass();
+				}
+			} else {
+				context.formatInternal(item, out);
+			}
+			context.exit();
+		}
+	}
+}
+
 final class IteratorFormatter implements Formatter {
 	public static final IteratorFormatter INSTANCE = new IteratorFormatter();
 
@@ -1012,6 +1154,7 @@ final class IteratorFormatter implements Formatter {
 				context.formatInternal(item, out);
 			}
 			context.exit();
+			context.flushPoint(out);
 			count++;
 		}
 		if (context.isPrettyPrint() && count > 0) {
@@ -1086,6 +1229,7 @@ final class EnumerationFormatter implements Formatter {
 				context.formatInternal(item, out);
 			}
 			context.exit();
+			context.flushPoint(out);
 			count++;
 		}
 		if (context.isPrettyPrint() && count > 0) {
@@ -1160,7 +1304,11 @@ final class MapFormatter implements Formatter {
 
 final class ObjectFormatter implements Formatter {
 	private Class<?> cls;
-	private transient PropertyInfo[] props;
+	private transient volatile PropertyInfo[] props;
+
+	// escaped '"name": ' tokens per property, for non-strict and strict mode
+	private transient volatile char[][] names;
+	private transient volatile char[][] strictNames;
 
 	public  ObjectFormatter(Class<?> cls) {
 		this.cls = cls;
@@ -1177,7 +1325,12 @@ final class ObjectFormatter implements Formatter {
 
 	@Override
 	public void format(final Context context, final Object src, final Object o, final OutputSource out) throws Exception {
-		if (props == null) props = getGetProperties(context, cls);
+		PropertyInfo[] props = this.props;
+		if (props == null) {
+			props = getGetProperties(context, cls);
+			this.props = props;
+		}
+		char[][] names = getNames(context, props);
 
 		out.append('{');
 		int count = 0;
@@ -1187,7 +1340,8 @@ final class ObjectFormatter implements Formatter {
 			Class<?> lastClass = null;
 			Formatter lastFormatter = null;
 
-			for (PropertyInfo prop : props) {
+			for (int i = 0; i < props.length; i++) {
+				PropertyInfo prop = props[i];
 				key = prop.getName();
 
 				Object value = prop.get(o);
@@ -1200,9 +1354,8 @@ final class ObjectFormatter implements Formatter {
 					out.append('\n');
 					context.appendIndent(out, context.getDepth() + 1);
 				}
-				StringFormatter.serialize(context, key.toString(), out);
-				out.append(':');
-				if (context.isPrettyPrint()) out.append(' ');
+				char[] name = names[i];
+				context.append(out, name, 0, context.isPrettyPrint() ? name.length : name.length - 1);
 				JSONHint hint = prop.getReadAnnotation(JSONHint.class);
 				context.enter(key, hint);
 				key = null;
@@ -1236,6 +1389,31 @@ final class ObjectFormatter implements Formatter {
 		out.append('}');
 	}
 
+	private char[][] getNames(Context context, PropertyInfo[] props) throws IOException {
+		boolean strict = (context.getMode() == Mode.STRICT);
+		char[][] names = strict ? strictNames : this.names;
+		if (names != null && names.length == props.length) {
+			return names;
+		}
+
+		names = new char[props.length][];
+		StringBuilderOutputSource sb = new StringBuilderOutputSource(32);
+		for (int i = 0; i < props.length; i++) {
+			sb.clear();
+			StringFormatter.serialize(context, props[i].getName(), sb);
+			sb.append(':');
+			sb.append(' ');
+			names[i] = sb.toString().toCharArray();
+		}
+
+		if (strict) {
+			strictNames = names;
+		} else {
+			this.names = names;
+		}
+		return names;
+	}
+
 	static PropertyInfo[] getGetProperties(Context context, Class<?> c) {
 		Map<String, PropertyInfo> props = new HashMap<String, PropertyInfo>();
 
@@ -1738,3 +1916,40 @@ final class OptionalFormatter implements Formatter {
 		}
 	}
 }
+
+final class BaseStreamFormatter implements Formatter, IteratorSource {
+	public static final BaseStreamFormatter INSTNACE = new BaseStreamFormatter();
+
+	public BaseStreamFormatter() {
+	}
+
+	@Override
+	public boolean accept(Object o) {
+		return o instanceof BaseStream;
+	}
+
+	@Override
+	public boolean isStruct() {
+		return true;
+	}
+
+	@Override
+	public void format(Context context, Object src, Object o, OutputSource out) throws Exception {
+		BaseStream<?, ?> stream = (BaseStream<?, ?>)o;
+		try {
+			IteratorFormatter.INSTANCE.format(context, src, stream.iterator(), out);
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public Iterator<?> iterator(Object o) {
+		return ((BaseStream<?, ?>)o).iterator();
+	}
+
+	@Override
+	public void close(Object o) {
+		((BaseStream<?, ?>)o).close();
+	}
+}
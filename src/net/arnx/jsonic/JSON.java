@@ -17,10 +17,10 @@ package net.arnx.jsonic;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.Writer;
@@ -32,6 +32,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.URL;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.MessageFormat;
@@ -44,6 +45,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -59,21 +61,31 @@ import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.regex.Pattern;
 
 import net.arnx.jsonic.io.AppendableOutputSource;
+import net.arnx.jsonic.io.CharArrayOutputSource;
 import net.arnx.jsonic.io.CharSequenceInputSource;
+import net.arnx.jsonic.io.CountingOutputSource;
 import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.MappedInputSource;
 import net.arnx.jsonic.io.OutputSource;
 import net.arnx.jsonic.io.ReaderInputSource;
 import net.arnx.jsonic.io.StringBufferInputSource;
 import net.arnx.jsonic.io.StringBuilderInputSource;
 import net.arnx.jsonic.io.StringBuilderOutputSource;
+import net.arnx.jsonic.io.UTF8OutputSource;
 import net.arnx.jsonic.io.StringInputSource;
 import net.arnx.jsonic.io.WriterOutputSource;
+import net.arnx.jsonic.parse.Projection;
 import net.arnx.jsonic.util.BeanInfo;
+import net.arnx.jsonic.util.ClassCache;
 import net.arnx.jsonic.util.ClassUtil;
+import net.arnx.jsonic.util.CompactMap;
 import net.arnx.jsonic.util.LocalCache;
+import net.arnx.jsonic.util.SymbolTable;
 
 /**
  * <p>The JSONIC JSON class provides JSON encoding and decoding as
@@ -174,6 +186,26 @@ public class JSON {
 		SCRIPT
 	}
 
+	/**
+	 * Java representation of parsed json numbers
+	 */
+	public enum NumberMode {
+		/**
+		 * java.math.BigDecimal (default)
+		 */
+		BIG_DECIMAL,
+
+		/**
+		 * java.lang.Long or java.lang.Double if the value fits exactly, otherwise java.math.BigDecimal
+		 */
+		NATIVE,
+
+		/**
+		 * net.arnx.jsonic.parse.LazyNumber which decodes the number text on first use
+		 */
+		LAZY
+	}
+
 	/**
 	 * Setup your custom class for using static method. default: net.arnx.jsonic.JSON
 	 */
@@ -185,9 +217,13 @@ public class JSON {
 	private static final Map<Class<?>, Class<?>> PRIMITIVE_MAP = new HashMap<Class<?>, Class<?>>(10);
 	private static final Map<Class<?>, Formatter> FORMAT_MAP = new HashMap<Class<?>, Formatter>(50);
 	private static final List<Formatter> FORMAT_LIST = new ArrayList<Formatter>(24);
+	private static final IteratorSource STREAM_SOURCE;
 	private static final Map<Class<?>, Converter> CONVERT_MAP = new HashMap<Class<?>, Converter>(50);
 	private static final List<Converter> CONVERT_LIST = new ArrayList<Converter>(24);
 
+	private static final ClassCache<Formatter> FORMATTER_CACHE = ClassCache.newInstance();
+	private static final ClassCache<Converter> CONVERTER_CACHE = ClassCache.newInstance();
+
 	static {
 		ClassLoader cl = JSON.class.getClassLoader();
 
@@ -321,6 +357,10 @@ public class JSON {
 		formatter = getFormatterInstance(PACKAGE_NAME + ".OptionalFormatter", cl);
 		if (formatter != null) FORMAT_LIST.add(formatter);
 
+		formatter = getFormatterInstance(PACKAGE_NAME + ".BaseStreamFormatter", cl);
+		if (formatter != null) FORMAT_LIST.add(formatter);
+		STREAM_SOURCE = (IteratorSource)formatter;
+
 		formatter = getFormatterInstance(PACKAGE_NAME + ".InstantFormatter", cl);
 		if (formatter != null) FORMAT_LIST.add(formatter);
 
@@ -519,6 +559,60 @@ public class JSON {
 		return instance;
 	}
 
+	private static final int SHARED_DEFAULT = 0;
+	private static final int SHARED_PRETTY_PRINT = 1;
+	private static final int SHARED_SCRIPT = 2;
+	private static final int SHARED_VALIDATE = 3;
+
+	private static volatile SharedInstances shared;
+
+	/**
+	 * Returns a configured instance for the static methods.
+	 * If the prototype is JSON, a frozen instance is shared while the default locale and time zone are unchanged.
+	 */
+	static JSON getSharedInstance(int type) {
+		JSON json;
+		if (prototype == JSON.class) {
+			Locale locale = Locale.getDefault();
+			TimeZone timeZone = TimeZone.getDefault();
+
+			SharedInstances current = shared;
+			if (current == null || !current.locale.equals(locale) || !current.timeZone.equals(timeZone)) {
+				current = new SharedInstances(locale, timeZone);
+				shared = current;
+			}
+
+			json = current.instances.get(type);
+			if (json == null) {
+				json = new JSON();
+				json.setLocale(locale);
+				json.setTimeZone(timeZone);
+				configureSharedInstance(json, type);
+				json.freeze();
+				current.instances.set(type, json);
+			}
+		} else {
+			json = newInstance();
+			configureSharedInstance(json, type);
+		}
+		return json;
+	}
+
+	private static void configureSharedInstance(JSON json, int type) {
+		switch (type) {
+		case SHARED_PRETTY_PRINT:
+			json.setPrettyPrint(true);
+			break;
+		case SHARED_SCRIPT:
+			json.setMode(Mode.SCRIPT);
+			break;
+		case SHARED_VALIDATE:
+			json.setMode(Mode.STRICT);
+			json.setMaxDepth(0);
+			break;
+		}
+	}
+
 	/**
 	 * Encodes a object into a json string.
 	 *
@@ -539,9 +633,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static String encode(Object source, boolean prettyPrint) throws JSONException {
-		JSON json = newInstance();
-		json.setPrettyPrint(prettyPrint);
-		return json.format(source);
+		return getSharedInstance(prettyPrint ? SHARED_PRETTY_PRINT : SHARED_DEFAULT).format(source);
 	}
 
 	/**
@@ -553,7 +645,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static void encode(Object source, OutputStream out) throws IOException, JSONException {
-		newInstance().format(source, new OutputStreamWriter(out, "UTF-8"));
+		getSharedInstance(SHARED_DEFAULT).format(source, out);
 	}
 
 	/**
@@ -566,9 +658,31 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static void encode(Object source, OutputStream out, boolean prettyPrint) throws IOException, JSONException {
-		JSON json = newInstance();
-		json.setPrettyPrint(prettyPrint);
-		json.format(source, new OutputStreamWriter(out, "UTF-8"));
+		JSON json = getSharedInstance(prettyPrint ? SHARED_PRETTY_PRINT : SHARED_DEFAULT);
+		json.format(source, out);
+	}
+
+	/**
+	 * Encodes a object into UTF-8 json bytes.
+	 *
+	 * @param source a object to encode.
+	 * @return UTF-8 json bytes
+	 * @throws JSONException if error occurred when formating.
+	 */
+	public static byte[] encodeToBytes(Object source) throws JSONException {
+		return encodeToBytes(source, false);
+	}
+
+	/**
+	 * Encodes a object into UTF-8 json bytes.
+	 *
+	 * @param source a object to encode.
+	 * @param prettyPrint output a json string with indent, space or break.
+	 * @return UTF-8 json bytes
+	 * @throws JSONException if error occurred when formating.
+	 */
+	public static byte[] encodeToBytes(Object source, boolean prettyPrint) throws JSONException {
+		return getSharedInstance(prettyPrint ? SHARED_PRETTY_PRINT : SHARED_DEFAULT).formatToBytes(source);
 	}
 
 	/**
@@ -580,7 +694,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static void encode(Object source, Appendable appendable) throws IOException, JSONException {
-		newInstance().format(source, appendable);
+		getSharedInstance(SHARED_DEFAULT).format(source, appendable);
 	}
 
 	/**
@@ -593,8 +707,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static void encode(Object source, Appendable appendable, boolean prettyPrint) throws IOException, JSONException {
-		JSON json = newInstance();
-		json.setPrettyPrint(prettyPrint);
+		JSON json = getSharedInstance(prettyPrint ? SHARED_PRETTY_PRINT : SHARED_DEFAULT);
 		json.format(source, appendable);
 	}
 
@@ -606,8 +719,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static String escapeScript(Object source) throws JSONException {
-		JSON json = newInstance();
-		json.setMode(Mode.SCRIPT);
+		JSON json = getSharedInstance(SHARED_SCRIPT);
 		return json.format(source);
 	}
 
@@ -620,8 +732,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static void escapeScript(Object source, OutputStream out) throws IOException, JSONException {
-		JSON json = newInstance();
-		json.setMode(Mode.SCRIPT);
+		JSON json = getSharedInstance(SHARED_SCRIPT);
 		json.format(source, out);
 	}
 
@@ -634,8 +745,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when formating.
 	 */
 	public static void escapeScript(Object source, Appendable appendable) throws IOException, JSONException {
-		JSON json = newInstance();
-		json.setMode(Mode.SCRIPT);
+		JSON json = getSharedInstance(SHARED_SCRIPT);
 		json.format(source, appendable);
 	}
 
@@ -649,7 +759,7 @@ public class JSON {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T decode(String source) throws JSONException {
-		return (T)newInstance().parse(source);
+		return (T)getSharedInstance(SHARED_DEFAULT).parse(source);
 	}
 
 	/**
@@ -662,7 +772,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when parsing.
 	 */
 	public static <T> T decode(String source, Class<? extends T> cls) throws JSONException {
-		return newInstance().parse(source, cls);
+		return getSharedInstance(SHARED_DEFAULT).parse(source, cls);
 	}
 
 	/**
@@ -676,7 +786,7 @@ public class JSON {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T decode(String source, Type type) throws JSONException {
-		return (T)newInstance().parse(source, type);
+		return (T)getSharedInstance(SHARED_DEFAULT).parse(source, type);
 	}
 
 	/**
@@ -690,7 +800,7 @@ public class JSON {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T decode(InputStream in) throws IOException, JSONException {
-		return (T)newInstance().parse(in);
+		return (T)getSharedInstance(SHARED_DEFAULT).parse(in);
 	}
 
 	/**
@@ -704,7 +814,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when parsing.
 	 */
 	public static <T> T decode(InputStream in, Class<? extends T> cls) throws IOException, JSONException {
-		return newInstance().parse(in, cls);
+		return getSharedInstance(SHARED_DEFAULT).parse(in, cls);
 	}
 
 	/**
@@ -719,7 +829,7 @@ public class JSON {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T decode(InputStream in, Type type) throws IOException, JSONException {
-		return (T)newInstance().parse(in, type);
+		return (T)getSharedInstance(SHARED_DEFAULT).parse(in, type);
 	}
 
 	/**
@@ -733,7 +843,7 @@ public class JSON {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T decode(Reader reader) throws IOException, JSONException {
-		return (T)newInstance().parse(reader);
+		return (T)getSharedInstance(SHARED_DEFAULT).parse(reader);
 	}
 
 	/**
@@ -747,7 +857,7 @@ public class JSON {
 	 * @throws JSONException if error occurred when parsing.
 	 */
 	public static <T> T decode(Reader reader, Class<? extends T> cls) throws IOException, JSONException {
-		return newInstance().parse(reader, cls);
+		return getSharedInstance(SHARED_DEFAULT).parse(reader, cls);
 	}
 
 	/**
@@ -762,7 +872,7 @@ public class JSON {
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T> T decode(Reader reader, Type type) throws IOException, JSONException {
-		return (T)newInstance().parse(reader, type);
+		return (T)getSharedInstance(SHARED_DEFAULT).parse(reader, type);
 	}
 
 	/**
@@ -772,10 +882,23 @@ public class JSON {
 	 * @throws JSONException if error occurred when parsing.
 	 */
 	public static void validate(CharSequence cs) throws JSONException {
-		JSON json = newInstance();
-		json.setMode(Mode.STRICT);
-		json.setMaxDepth(0);
-		json.parse(cs);
+		InputSource is;
+		if (cs instanceof String) {
+			is = new StringInputSource((String)cs);
+		} else if (cs instanceof StringBuilder) {
+			is = new StringBuilderInputSource((StringBuilder)cs);
+		} else if (cs instanceof StringBuffer) {
+			is = new StringBufferInputSource((StringBuffer)cs);
+		} else {
+			is = new CharSequenceInputSource(cs);
+		}
+
+		JSON json = getSharedInstance(SHARED_VALIDATE);
+		try {
+			new JSONReader(json.new Context(), is, false, true).validate();
+		} catch (IOException e) {
+			// never occur
+		}
 	}
 
 	/**
@@ -786,10 +909,8 @@ public class JSON {
 	 * @throws JSONException if error occurred when parsing.
 	 */
 	public static void validate(InputStream in) throws IOException, JSONException {
-		JSON json = newInstance();
-		json.setMode(Mode.STRICT);
-		json.setMaxDepth(0);
-		json.parse(in);
+		JSON json = getSharedInstance(SHARED_VALIDATE);
+		new JSONReader(json.new Context(), new ReaderInputSource(in), false, true).validate();
 	}
 
 	/**
@@ -800,10 +921,8 @@ public class JSON {
 	 * @throws JSONException if error occurred when parsing.
 	 */
 	public static void validate(Reader reader) throws IOException, JSONException {
-		JSON json = newInstance();
-		json.setMode(Mode.STRICT);
-		json.setMaxDepth(0);
-		json.parse(reader);
+		JSON json = getSharedInstance(SHARED_VALIDATE);
+		new JSONReader(json.new Context(), new ReaderInputSource(reader), false, true).validate();
 	}
 
 	Object contextObject;
@@ -815,10 +934,24 @@ public class JSON {
 	int maxDepth = 32;
 	boolean suppressNull = false;
 	Mode mode = Mode.TRADITIONAL;
+	NumberMode numberMode = NumberMode.BIG_DECIMAL;
 	String dateFormat;
 	String numberFormat;
 	NamingStyle propertyStyle = NamingStyle.NOOP;
 	NamingStyle enumStyle = NamingStyle.NOOP;
+	SymbolTable symbolTable;
+	boolean compactMap = false;
+	ExecutorService parallelExecutor;
+	int parallelThreshold = 10000;
+	int flushCount = 0;
+	int flushSize = 0;
+	long flushTime = 0L;
+
+	private Boolean postparseOverridden;
+	private Boolean propertyLookupOverridden;
+
+	private volatile boolean frozen;
+	private ThreadLocal<LocalCache> localCache;
 
 	public JSON() {
 	}
@@ -831,12 +964,57 @@ public class JSON {
 		setMode(mode);
 	}
 
+	/**
+	 * Makes this instance immutable. A frozen instance can be shared between threads
+	 * without locking, and reuses the caches for messages and formats per thread.
+	 * Any setter called after freezing throws IllegalStateException.
+	 *
+	 * @return this instance
+	 */
+	public JSON freeze() {
+		synchronized (this) {
+			if (!frozen) {
+				isPostparseOverridden();
+				isPropertyLookupOverridden();
+
+				final Locale locale = this.locale;
+				final TimeZone timeZone = this.timeZone;
+				localCache = new ThreadLocal<LocalCache>() {
+					@Override
+					protected LocalCache initialValue() {
+						LocalCache cache = new LocalCache(PACKAGE_NAME + ".Messages", locale, timeZone);
+						if (symbolTable != null) cache.setSymbolTable(symbolTable);
+						return cache;
+					}
+				};
+				frozen = true;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns true if this instance is frozen.
+	 *
+	 * @return true if this instance is frozen
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkFrozen() {
+		if (frozen) {
+			throw new IllegalStateException(getMessage("json.FrozenError"));
+		}
+	}
+
 	/**
 	 * Sets context for inner class.
 	 *
 	 * @param value context object
 	 */
 	public void setContext(Object value) {
+		checkFrozen();
 		this.contextObject = value;
 	}
 
@@ -846,6 +1024,7 @@ public class JSON {
 	 * @param locale locale for formatting, converting and selecting message
 	 */
 	public void setLocale(Locale locale) {
+		checkFrozen();
 		if (locale == null) {
 			throw new NullPointerException();
 		}
@@ -858,6 +1037,7 @@ public class JSON {
 	 * @param timeZone timeZone for formatting and converting.
 	 */
 	public void setTimeZone(TimeZone timeZone) {
+		checkFrozen();
 		if (timeZone == null) {
 			throw new NullPointerException();
 		}
@@ -870,6 +1050,7 @@ public class JSON {
 	 * @param value true to format human-readable, false to shorten.
 	 */
 	public void setPrettyPrint(boolean value) {
+		checkFrozen();
 		this.prettyPrint = value;
 	}
 
@@ -879,6 +1060,7 @@ public class JSON {
 	 * @param indent initial indent
 	 */
 	public void setInitialIndent(int indent) {
+		checkFrozen();
 		if (indent < 0) {
 			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "initialIndent", 0));
 		}
@@ -891,6 +1073,7 @@ public class JSON {
 	 * @param text indent text
 	 */
 	public void setIndentText(String text) {
+		checkFrozen();
 		this.indentText = text;
 	}
 
@@ -901,6 +1084,7 @@ public class JSON {
 	 * @param value maximum depth for the nest depth.
 	 */
 	public void setMaxDepth(int value) {
+		checkFrozen();
 		if (value < 0) {
 			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "maxDepth", 0));
 		}
@@ -923,6 +1107,7 @@ public class JSON {
 	 * @param value true to ignore the null value's items of Bean or DynaBean.
 	 */
 	public void setSuppressNull(boolean value) {
+		checkFrozen();
 		this.suppressNull = value;
 	}
 
@@ -932,6 +1117,7 @@ public class JSON {
 	 * @param mode JSON interpreter mode
 	 */
 	public void setMode(Mode mode) {
+		checkFrozen();
 		if (mode == null) {
 			throw new NullPointerException();
 		}
@@ -947,6 +1133,153 @@ public class JSON {
 		return mode;
 	}
 
+	/**
+	 * Sets the Java representation of parsed numbers.
+	 *
+	 * @param mode number mode
+	 */
+	public void setNumberMode(NumberMode mode) {
+		checkFrozen();
+		if (mode == null) {
+			throw new NullPointerException();
+		}
+		this.numberMode = mode;
+	}
+
+	/**
+	 * Gets the Java representation of parsed numbers.
+	 *
+	 * @return number mode
+	 */
+	public NumberMode getNumberMode() {
+		return numberMode;
+	}
+
+	/**
+	 * Sets a symbol table for object keys shared by all parses of this instance.
+	 * If null, each parse interns keys in its own table.
+	 *
+	 * @param table a symbol table or null
+	 */
+	public void setSymbolTable(SymbolTable table) {
+		checkFrozen();
+		this.symbolTable = table;
+	}
+
+	/**
+	 * Gets the symbol table for object keys shared by all parses of this instance.
+	 *
+	 * @return a symbol table or null
+	 */
+	public SymbolTable getSymbolTable() {
+		return symbolTable;
+	}
+
+	/**
+	 * If this property is true, parsed objects are created as CompactMap instead of LinkedHashMap.
+	 * CompactMap keeps mappings in a single array, and takes much less memory for small objects.
+	 * default value is false.
+	 *
+	 * @param value true to create CompactMap for parsed objects.
+	 */
+	public void setCompactMap(boolean value) {
+		checkFrozen();
+		this.compactMap = value;
+	}
+
+	public boolean isCompactMap() {
+		return compactMap;
+	}
+
+	/**
+	 * Sets the executor to format large lists and arrays in parallel.
+	 * A list which implements RandomAccess or an object array is split into ranges,
+	 * and each range is formatted by the executor into its own buffer.
+	 * Nested lists and arrays in a range are formatted sequentially.
+	 *
+	 * @param executor an executor, or null to format sequentially (default)
+	 */
+	public void setParallelExecutor(ExecutorService executor) {
+		checkFrozen();
+		this.parallelExecutor = executor;
+	}
+
+	public ExecutorService getParallelExecutor() {
+		return parallelExecutor;
+	}
+
+	/**
+	 * Sets the minimum number of elements of a list or an array to format in parallel.
+	 *
+	 * @param value the minimum number of elements (default 10000)
+	 */
+	public void setParallelThreshold(int value) {
+		checkFrozen();
+		if (value < 1) {
+			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "parallelThreshold", 1));
+		}
+		this.parallelThreshold = value;
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Sets the number of elements of arrays between flushes of the output.
+	 * The output is flushed after an element when any of the flush conditions is satisfied.
+	 * default value is 0.
+	 *
+	 * @param value the number of elements, or 0 not to flush by the number.
+	 */
+	public void setFlushCount(int value) {
+		checkFrozen();
+		if (value < 0) {
+			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "flushCount", 0));
+		}
+		this.flushCount = value;
+	}
+
+	public int getFlushCount() {
+		return flushCount;
+	}
+
+	/**
+	 * Sets the number of chars between flushes of the output.
+	 * default value is 0.
+	 *
+	 * @param value the number of chars, or 0 not to flush by the size.
+	 */
+	public void setFlushSize(int value) {
+		checkFrozen();
+		if (value < 0) {
+			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "flushSize", 0));
+		}
+		this.flushSize = value;
+	}
+
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	/**
+	 * Sets the time in milliseconds between flushes of the output.
+	 * default value is 0.
+	 *
+	 * @param value the time in milliseconds, or 0 not to flush by the time.
+	 */
+	public void setFlushTime(long value) {
+		checkFrozen();
+		if (value < 0) {
+			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "flushTime", 0));
+		}
+		this.flushTime = value;
+	}
+
+	public long getFlushTime() {
+		return flushTime;
+	}
+
 	/**
 	 * Sets default Date format.
 	 * When format is null, Date is formated to JSON number.
@@ -954,6 +1287,7 @@ public class JSON {
 	 * @param format default Date format
 	 */
 	public void setDateFormat(String format) {
+		checkFrozen();
 		this.dateFormat = format;
 	}
 
@@ -964,6 +1298,7 @@ public class JSON {
 	 * @param format default Number format
 	 */
 	public void setNumberFormat(String format) {
+		checkFrozen();
 		this.numberFormat = format;
 	}
 
@@ -973,6 +1308,7 @@ public class JSON {
 	 * @param style default Case style for keys of JSON object.
 	 */
 	public void setPropertyStyle(NamingStyle style) {
+		checkFrozen();
 		this.propertyStyle = style;
 	}
 
@@ -982,6 +1318,7 @@ public class JSON {
 	 * @param style default Case style for Enum.
 	 */
 	public void setEnumStyle(NamingStyle style) {
+		checkFrozen();
 		this.enumStyle = style;
 	}
 
@@ -1025,10 +1362,26 @@ public class JSON {
 	 * @throws IOException when I/O error occurred.
 	 */
 	public OutputStream format(Object source, OutputStream out) throws IOException {
-		format(source, new BufferedWriter(new OutputStreamWriter(out, "UTF-8")));
+		format(source, new UTF8OutputSource(out));
 		return out;
 	}
 
+	/**
+	 * Format a object into UTF-8 json bytes.
+	 *
+	 * @param source a object to encode.
+	 * @return UTF-8 json bytes
+	 */
+	public byte[] formatToBytes(Object source) {
+		UTF8OutputSource out = new UTF8OutputSource(1000);
+		try {
+			format(source, out);
+		} catch (IOException e) {
+			// no handle;
+		}
+		return out.toByteArray();
+	}
+
 	/**
 	 * Format a object into a json string.
 	 *
@@ -1038,23 +1391,18 @@ public class JSON {
 	 * @throws IOException when I/O error occurred.
 	 */
 	public Appendable format(Object source, Appendable ap) throws IOException {
-		OutputSource out;
-		if (ap instanceof BufferedWriter) {
-			out = new AppendableOutputSource(ap);
-		} else if (ap instanceof Writer) {
-			out = new WriterOutputSource((Writer)ap);
-		} else if (ap instanceof StringBuilder) {
-			out = new StringBuilderOutputSource((StringBuilder)ap);
-		} else {
-			out = new AppendableOutputSource(ap);
-		}
-
-		format(source, out);
+		format(source, toOutputSource(ap));
 		return ap;
 	}
 
 	private void format(Object source, OutputSource out) throws IOException {
 		Context context = new Context();
+		if (context.flushSize > 0) {
+			out = new CountingOutputSource(out);
+		}
+		if (context.flushTime > 0L) {
+			context.flushedTime = System.currentTimeMillis();
+		}
 
 		if (context.isPrettyPrint()) {
 			context.appendIndent(out, 0);
@@ -1067,23 +1415,126 @@ public class JSON {
 		out.flush();
 	}
 
-	public JSONWriter getWriter(OutputStream out) throws IOException {
-		return getWriter(new OutputStreamWriter(out, "UTF-8"));
+	/**
+	 * Format objects into JSON Lines. Each object is written as a compact json text
+	 * followed by a line break, even if pretty print is enabled.
+	 *
+	 * @param source objects to encode. It is an Iterable, an Iterator or a java.util.stream.BaseStream,
+	 *   which is closed at the end.
+	 * @param out a destination to output UTF-8 json lines.
+	 * @return a reference to 'out' object in parameters
+	 * @throws IOException when I/O error occurred.
+	 * @throws IllegalArgumentException if the source is not supported.
+	 */
+	public OutputStream formatLines(Object source, OutputStream out) throws IOException {
+		return formatLines(source, out, 0);
 	}
 
-	public JSONWriter getWriter(Appendable ap) throws IOException {
-		OutputSource out;
+	/**
+	 * Format objects into JSON Lines.
+	 *
+	 * @param source objects to encode. It is an Iterable, an Iterator or a java.util.stream.BaseStream,
+	 *   which is closed at the end.
+	 * @param out a destination to output UTF-8 json lines.
+	 * @param flushInterval the number of lines between flushes. If 0, 'out' is flushed only at the end.
+	 * @return a reference to 'out' object in parameters
+	 * @throws IOException when I/O error occurred.
+	 */
+	public OutputStream formatLines(Object source, OutputStream out, int flushInterval) throws IOException {
+		formatLines(source, new UTF8OutputSource(out), flushInterval);
+		return out;
+	}
+
+	/**
+	 * Format objects into JSON Lines.
+	 *
+	 * @param source objects to encode. It is an Iterable, an Iterator or a java.util.stream.BaseStream,
+	 *   which is closed at the end.
+	 * @param ap a destination. example: StringBuilder, Writer, ...
+	 * @return a reference to 'ap' object in parameters
+	 * @throws IOException when I/O error occurred.
+	 */
+	public Appendable formatLines(Object source, Appendable ap) throws IOException {
+		return formatLines(source, ap, 0);
+	}
+
+	/**
+	 * Format objects into JSON Lines.
+	 *
+	 * @param source objects to encode. It is an Iterable, an Iterator or a java.util.stream.BaseStream,
+	 *   which is closed at the end.
+	 * @param ap a destination. example: StringBuilder, Writer, ...
+	 * @param flushInterval the number of lines between flushes. If 0, 'ap' is flushed only at the end.
+	 * @return a reference to 'ap' object in parameters
+	 * @throws IOException when I/O error occurred.
+	 */
+	public Appendable formatLines(Object source, Appendable ap, int flushInterval) throws IOException {
+		formatLines(source, toOutputSource(ap), flushInterval);
+		return ap;
+	}
+
+	private void formatLines(Object source, OutputSource out, int flushInterval) throws IOException {
+		if (flushInterval < 0) {
+			throw new IllegalArgumentException(getMessage("json.TooSmallArgumentError", "flushInterval", 0));
+		}
+
+		if (source == null) {
+			throw new NullPointerException();
+		} else if (source instanceof Iterable<?>) {
+			formatLines(((Iterable<?>)source).iterator(), out, flushInterval);
+		} else if (source instanceof Iterator<?>) {
+			formatLines((Iterator<?>)source, out, flushInterval);
+		} else if (STREAM_SOURCE != null && STREAM_SOURCE.accept(source)) {
+			// java.util.stream types are not used in signatures, so that this class runs without them
+			try {
+				formatLines(STREAM_SOURCE.iterator(source), out, flushInterval);
+			} finally {
+				STREAM_SOURCE.close(source);
+			}
+		} else {
+			throw new IllegalArgumentException(getMessage("json.UnsupportedArgumentError", "source", source.getClass().getName()));
+		}
+	}
+
+	private void formatLines(Iterator<?> source, OutputSource out, int flushInterval) throws IOException {
+		Context context = new Context();
+		context.prettyPrint = false;
+
+		int count = 0;
+		while (source.hasNext()) {
+			Object o = source.next();
+			context.enter(ROOT, null);
+			o = context.preformatInternal((o != null) ? o.getClass() : Object.class, o);
+			context.formatInternal(o, out);
+			context.exit();
+			out.append('\n');
+
+			if (flushInterval > 0 && ++count >= flushInterval) {
+				out.flush();
+				count = 0;
+			}
+		}
+		out.flush();
+	}
+
+	private static OutputSource toOutputSource(Appendable ap) {
 		if (ap instanceof BufferedWriter) {
-			out = new AppendableOutputSource(ap);
+			return new AppendableOutputSource(ap);
 		} else if (ap instanceof Writer) {
-			out = new WriterOutputSource((Writer)ap);
+			return new WriterOutputSource((Writer)ap);
 		} else if (ap instanceof StringBuilder) {
-			out = new StringBuilderOutputSource((StringBuilder)ap);
+			return new StringBuilderOutputSource((StringBuilder)ap);
 		} else {
-			out = new AppendableOutputSource(ap);
+			return new AppendableOutputSource(ap);
 		}
+	}
+
+	public JSONWriter getWriter(OutputStream out) throws IOException {
+		return new JSONWriter(new Context(false), new UTF8OutputSource(out));
+	}
 
-		return new JSONWriter(new Context(), out);
+	public JSONWriter getWriter(Appendable ap) throws IOException {
+		return new JSONWriter(new Context(false), toOutputSource(ap));
 	}
 
 	protected Object preformatNull(Context context, Type type) throws Exception {
@@ -1125,6 +1576,22 @@ public class JSON {
 		return (T)value;
 	}
 
+	/**
+	 * Parses a JSON text into a lazy tree. Objects and arrays are returned as Map and List
+	 * views over the source, and each value is decoded when it is first read.
+	 * The source should not be modified while the tree is used.
+	 * The text is validated first, so it throws the same errors as {@link #parse(CharSequence)}.
+	 * If the text uses a syntax which the lazy tree does not support, it is parsed eagerly.
+	 *
+	 * @param cs a JSON text
+	 * @return a Map, a List or a value
+	 * @throws JSONException if the text is malformed.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T parseLazy(CharSequence cs) throws JSONException {
+		return (T)LazyTree.parse(this, cs);
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T> T parse(CharSequence s, Class<? extends T> cls) throws JSONException {
 		return (T)parse(s, (Type)cls);
@@ -1151,8 +1618,11 @@ public class JSON {
 		try {
 			Context context = new Context();
 			JSONReader jreader = new JSONReader(context, is, false, true);
-			Object result = (jreader.next() != null) ? jreader.getValue() : null;
-			value = (T)context.convertInternal(result, ClassUtil.getRawType(type), type);
+			if (jreader.next() != null) {
+				value = (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+			} else {
+				value = (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+			}
 		} catch (IOException e) {
 			// never occur
 		}
@@ -1178,8 +1648,45 @@ public class JSON {
 
 		Context context = new Context();
 		JSONReader jreader = new JSONReader(context, new ReaderInputSource(in), false, true);
-		Object result = (jreader.next() != null) ? jreader.getValue() : null;
-		return (T)context.convertInternal(result, ClassUtil.getRawType(type), type);
+		if (jreader.next() != null) {
+			return (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+		}
+		return (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T parse(File file) throws IOException, JSONException {
+		MappedInputSource in = new MappedInputSource(file);
+		try {
+			JSONReader jreader = new JSONReader(new Context(), in, false, true);
+			return (jreader.next() != null) ? (T)jreader.getValue() : null;
+		} finally {
+			in.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T parse(File file, Class<? extends T> cls) throws IOException, JSONException {
+		return (T)parse(file, (Type)cls);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T parse(File file, Type type) throws IOException, JSONException {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		MappedInputSource in = new MappedInputSource(file);
+		try {
+			Context context = new Context();
+			JSONReader jreader = new JSONReader(context, in, false, true);
+			if (jreader.next() != null) {
+				return (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+			}
+			return (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+		} finally {
+			in.close();
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1201,37 +1708,381 @@ public class JSON {
 
 		Context context = new Context();
 		JSONReader jreader = new JSONReader(context, new ReaderInputSource(reader), false, true);
-		Object result = (jreader.next() != null) ? jreader.getValue() : null;
-		return (T)context.convertInternal(result, ClassUtil.getRawType(type), type);
-	}
-
-	public JSONReader getReader(CharSequence cs) {
-		return getReader(cs, true);
+		if (jreader.next() != null) {
+			return (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+		}
+		return (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
 	}
 
-	public JSONReader getReader(InputStream in) {
-		return getReader(in, true);
+	/**
+	 * Parses only the selected paths of the document. Members and elements outside of
+	 * the paths are skipped without being decoded. See {@link Projection} for the syntax.
+	 *
+	 * @param cs the source
+	 * @param type the type of the result
+	 * @param paths JSON Pointers or dotted paths to read
+	 * @return the result which contains only the selected values
+	 * @throws JSONException if the source is invalid
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T parse(CharSequence cs, Type type, String... paths) throws JSONException {
+		InputSource is;
+		if (cs instanceof String) {
+			is = new StringInputSource((String)cs);
+		} else if (cs instanceof StringBuilder) {
+			is = new StringBuilderInputSource((StringBuilder)cs);
+		} else if (cs instanceof StringBuffer) {
+			is = new StringBufferInputSource((StringBuffer)cs);
+		} else {
+			is = new CharSequenceInputSource(cs);
+		}
+
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		T value = null;
+		try {
+			Context context = new Context();
+			JSONReader jreader = new JSONReader(context, is, false, true, Projection.compile(paths));
+			if (jreader.next() != null) {
+				value = (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+			} else {
+				value = (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+			}
+		} catch (IOException e) {
+			// never occur
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T parse(InputStream in, Type type, String... paths) throws IOException, JSONException {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		Context context = new Context();
+		JSONReader jreader = new JSONReader(context, new ReaderInputSource(in), false, true, Projection.compile(paths));
+		if (jreader.next() != null) {
+			return (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+		}
+		return (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T parse(File file, Type type, String... paths) throws IOException, JSONException {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		MappedInputSource in = new MappedInputSource(file);
+		try {
+			Context context = new Context();
+			JSONReader jreader = new JSONReader(context, in, false, true, Projection.compile(paths));
+			if (jreader.next() != null) {
+				return (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+			}
+			return (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+		} finally {
+			in.close();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T parse(Reader reader, Type type, String... paths) throws IOException, JSONException {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		Context context = new Context();
+		JSONReader jreader = new JSONReader(context, new ReaderInputSource(reader), false, true, Projection.compile(paths));
+		if (jreader.next() != null) {
+			return (T)context.convertInternal(jreader, ClassUtil.getRawType(type), type);
+		}
+		return (T)context.convertInternal(null, ClassUtil.getRawType(type), type);
+	}
+
+	/**
+	 * Parses JSON Lines (newline delimited JSON). Values are decoded lazily by the returned iterator.
+	 *
+	 * @param cs JSON Lines
+	 * @param cls a class of each value
+	 * @return an iterator of the values
+	 */
+	public <T> JSONLineIterator<T> parseLines(CharSequence cs, Class<? extends T> cls) {
+		return parseLines(cs, (Type)cls);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(CharSequence cs, Type type) {
+		InputSource in = (cs instanceof String) ? new StringInputSource((String)cs)
+			: (cs instanceof StringBuilder) ? new StringBuilderInputSource((StringBuilder)cs)
+			: (cs instanceof StringBuffer) ? new StringBufferInputSource((StringBuffer)cs)
+			: new CharSequenceInputSource(cs);
+
+		return new JSONLineIterator<T>(this, in, type, null);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(InputStream in, Class<? extends T> cls) {
+		return parseLines(in, (Type)cls);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(InputStream in, Type type) {
+		return new JSONLineIterator<T>(this, new ReaderInputSource(in), type, null);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(Reader reader, Class<? extends T> cls) {
+		return parseLines(reader, (Type)cls);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(Reader reader, Type type) {
+		return new JSONLineIterator<T>(this, new ReaderInputSource(reader), type, null);
+	}
+
+	/**
+	 * Parses a file of JSON Lines. The returned iterator should be closed to release the file.
+	 *
+	 * @param file a file of JSON Lines
+	 * @param cls a class of each value
+	 * @return an iterator of the values
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public <T> JSONLineIterator<T> parseLines(File file, Class<? extends T> cls) throws IOException {
+		return parseLines(file, (Type)cls);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(File file, Type type) throws IOException {
+		MappedInputSource in = new MappedInputSource(file);
+		return new JSONLineIterator<T>(this, in, type, in);
+	}
+
+	/**
+	 * Parses JSON Lines in parallel. The input is split into chunks at line breaks,
+	 * and the chunks are decoded by the executor. Each chunk is decoded with its own context.
+	 * The number of chunks which are read ahead is bounded by twice the number of processors.
+	 *
+	 * @param in UTF-8 JSON Lines
+	 * @param type a type of each value
+	 * @param executor an executor to decode chunks
+	 * @param ordered if true, values are returned in the input order. Otherwise,
+	 *   chunks are returned in the order of completion.
+	 * @return an iterator of the values
+	 */
+	public <T> JSONLineIterator<T> parseLines(InputStream in, Type type, ExecutorService executor, boolean ordered) {
+		return new ParallelLineIterator<T>(this, in, null, type, null, executor, ordered,
+				ParallelLineIterator.CHUNK_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(Reader reader, Type type, ExecutorService executor, boolean ordered) {
+		return new ParallelLineIterator<T>(this, null, reader, type, null, executor, ordered,
+				ParallelLineIterator.CHUNK_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	public <T> JSONLineIterator<T> parseLines(File file, Type type, ExecutorService executor, boolean ordered) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		return new ParallelLineIterator<T>(this, in, null, type, in, executor, ordered,
+				ParallelLineIterator.CHUNK_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Parses a top-level JSON array, and decodes its elements in parallel.
+	 * The element boundaries are found by a scan of structural characters, and groups of
+	 * elements are decoded by the executor with their own contexts. The result keeps the order.
+	 * Small inputs and inputs which are not a plain array are parsed sequentially.
+	 *
+	 * @param cs a JSON array
+	 * @param type a type of each element
+	 * @param executor an executor to decode elements, or null to decode them in the current thread.
+	 * @return a list of the elements
+	 */
+	public <T> List<T> parseArray(CharSequence cs, Type type, ExecutorService executor) throws JSONException {
+		List<T> list = null;
+		try {
+			list = new ParallelArrayParser(this, type, executor,
+					ParallelArrayParser.PARALLEL_THRESHOLD, ParallelArrayParser.TASK_SIZE).parse(cs);
+		} catch (IOException e) {
+			// never occur
+		}
+		return list;
+	}
+
+	public <T> List<T> parseArray(char[] cbuf, Type type, ExecutorService executor) throws JSONException {
+		return parseArray(CharBuffer.wrap(cbuf), type, executor);
+	}
+
+	/**
+	 * Parses a file of a top-level JSON array, and decodes its elements in parallel.
+	 * A UTF-8 file up to 2GB is scanned through a memory-mapped buffer. Other files
+	 * are parsed sequentially.
+	 *
+	 * @param file a file of a JSON array
+	 * @param type a type of each element
+	 * @param executor an executor to decode elements, or null to decode them in the current thread.
+	 * @return a list of the elements
+	 * @throws IOException if I/O error occurred.
+	 */
+	public <T> List<T> parseArray(File file, Type type, ExecutorService executor) throws IOException, JSONException {
+		return new ParallelArrayParser(this, type, executor,
+				ParallelArrayParser.PARALLEL_THRESHOLD, ParallelArrayParser.TASK_SIZE).parse(file);
+	}
+
+	/**
+	 * Parses a top-level JSON array lazily. Each element is decoded when it is requested
+	 * by the returned iterator, so the whole array is never held in memory.
+	 *
+	 * @param cs a JSON array
+	 * @param cls a class of each element
+	 * @return an iterator of the elements
+	 */
+	public <T> JSONElementIterator<T> parseElements(CharSequence cs, Class<? extends T> cls) {
+		return parseElements(cs, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<T> parseElements(CharSequence cs, Type type) {
+		return new JSONElementIterator<T>(getReader(cs), type, false, true, null);
+	}
+
+	public <T> JSONElementIterator<T> parseElements(InputStream in, Class<? extends T> cls) {
+		return parseElements(in, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<T> parseElements(InputStream in, Type type) {
+		return new JSONElementIterator<T>(getReader(in), type, false, true, null);
+	}
+
+	public <T> JSONElementIterator<T> parseElements(Reader reader, Class<? extends T> cls) {
+		return parseElements(reader, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<T> parseElements(Reader reader, Type type) {
+		return new JSONElementIterator<T>(getReader(reader), type, false, true, null);
+	}
+
+	/**
+	 * Parses a file of a top-level JSON array lazily. The returned iterator should be closed to release the file.
+	 *
+	 * @param file a file of a JSON array
+	 * @param cls a class of each element
+	 * @return an iterator of the elements
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public <T> JSONElementIterator<T> parseElements(File file, Class<? extends T> cls) throws IOException {
+		return parseElements(file, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<T> parseElements(File file, Type type) throws IOException {
+		MappedInputSource in = new MappedInputSource(file);
+		return new JSONElementIterator<T>(new JSONReader(new Context(false), in, true, true), type, false, true, in);
+	}
+
+	/**
+	 * Parses a top-level JSON object lazily. Each entry is decoded when it is requested
+	 * by the returned iterator, so the whole object is never held in memory.
+	 *
+	 * @param cs a JSON object
+	 * @param cls a class of each value
+	 * @return an iterator of the entries
+	 */
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(CharSequence cs, Class<? extends T> cls) {
+		return parseEntries(cs, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(CharSequence cs, Type type) {
+		return new JSONElementIterator<Map.Entry<String, T>>(getReader(cs), type, true, true, null);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(InputStream in, Class<? extends T> cls) {
+		return parseEntries(in, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(InputStream in, Type type) {
+		return new JSONElementIterator<Map.Entry<String, T>>(getReader(in), type, true, true, null);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(Reader reader, Class<? extends T> cls) {
+		return parseEntries(reader, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(Reader reader, Type type) {
+		return new JSONElementIterator<Map.Entry<String, T>>(getReader(reader), type, true, true, null);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(File file, Class<? extends T> cls) throws IOException {
+		return parseEntries(file, (Type)cls);
+	}
+
+	public <T> JSONElementIterator<Map.Entry<String, T>> parseEntries(File file, Type type) throws IOException {
+		MappedInputSource in = new MappedInputSource(file);
+		return new JSONElementIterator<Map.Entry<String, T>>(new JSONReader(new Context(false), in, true, true), type, true, true, in);
+	}
+
+	public JSONReader getReader(CharSequence cs) {
+		return getReader(cs, true);
+	}
+
+	public JSONReader getReader(InputStream in) {
+		return getReader(in, true);
 	}
 
 	public JSONReader getReader(Reader reader) {
 		return getReader(reader, true);
 	}
 
+	/**
+	 * Returns a reader of the file. The reader should be closed to release the file.
+	 *
+	 * @param file the file
+	 * @return a reader
+	 * @throws IOException if I/O error occurred.
+	 */
+	public JSONReader getReader(File file) throws IOException {
+		return getReader(file, true);
+	}
+
 	public JSONReader getReader(CharSequence cs, boolean ignoreWhitespace) {
 		InputSource in = (cs instanceof String) ? new StringInputSource((String)cs)
 			: (cs instanceof StringBuilder) ? new StringBuilderInputSource((StringBuilder)cs)
 			: (cs instanceof StringBuffer) ? new StringBufferInputSource((StringBuffer)cs)
 			: new CharSequenceInputSource(cs);
 
-		return new JSONReader(new Context(), in, true, ignoreWhitespace);
+		return new JSONReader(new Context(false), in, true, ignoreWhitespace);
 	}
 
 	public JSONReader getReader(InputStream in, boolean ignoreWhitespace) {
-		return new JSONReader(new Context(), new ReaderInputSource(in), true, ignoreWhitespace);
+		return new JSONReader(new Context(false), new ReaderInputSource(in), true, ignoreWhitespace);
 	}
 
 	public JSONReader getReader(Reader reader, boolean ignoreWhitespace) {
-		return new JSONReader(new Context(), new ReaderInputSource(reader), true, ignoreWhitespace);
+		return new JSONReader(new Context(false), new ReaderInputSource(reader), true, ignoreWhitespace);
+	}
+
+	public JSONReader getReader(File file, boolean ignoreWhitespace) throws IOException {
+		return new JSONReader(new Context(false), new MappedInputSource(file), true, ignoreWhitespace);
+	}
+
+	/**
+	 * Returns a push reader. Like {@link #getReader(CharSequence)}, it reads a sequence
+	 * of root values (multiline mode) and an empty input is no error.
+	 *
+	 * @return a push reader
+	 */
+	public JSONPushReader getPushReader() {
+		return getPushReader(true, true);
+	}
+
+	public JSONPushReader getPushReader(boolean ignoreWhitespace) {
+		return getPushReader(true, ignoreWhitespace);
+	}
+
+	/**
+	 * Returns a push reader.
+	 *
+	 * @param multilineMode true to read a sequence of root values, false to read exactly one root value
+	 * @param ignoreWhitespace true to report no whitespace and comment events
+	 * @return a push reader
+	 */
+	public JSONPushReader getPushReader(boolean multilineMode, boolean ignoreWhitespace) {
+		return new JSONPushReader(new Context(false), multilineMode, ignoreWhitespace);
 	}
 
 	String getMessage(String id, Object... args) {
@@ -1280,35 +2131,52 @@ public class JSON {
 			if (value != null && cls == type && cls.isAssignableFrom(value.getClass())) {
 				c = PlainConverter.INSTANCE;
 			} else {
-				c = CONVERT_MAP.get(cls);
+				c = context.getConverter(cls);
 			}
 		}
 
-		if (c == null && context.memberCache != null) {
-			c = (Converter)context.memberCache.get(cls);
-		}
+		@SuppressWarnings("unchecked")
+		T ret = (T)c.convert(context, value, cls, type);
+		return ret;
+	}
 
-		if (c == null) {
-			for (Converter converter : CONVERT_LIST) {
-				if (converter.accept(cls)) {
-					c = converter;
-					break;
-				}
-			}
+	/**
+	 * Checks whether a subclass overrides postparse. Parser events are bound directly to
+	 * the target objects only when postparse has not been overridden.
+	 */
+	private boolean isPostparseOverridden() {
+		Boolean overridden = postparseOverridden;
+		if (overridden == null) {
+			overridden = isOverridden("postparse", Context.class, Object.class, Class.class, Type.class);
+			postparseOverridden = overridden;
+		}
+		return overridden;
+	}
 
-			if (c == null) {
-				c = new ObjectConverter(cls);
-			}
+	/**
+	 * Checks whether a subclass overrides ignore or normalize. Formatters and converters of
+	 * beans are shared between all instances only when the property lookup is not customized.
+	 */
+	private boolean isPropertyLookupOverridden() {
+		Boolean overridden = propertyLookupOverridden;
+		if (overridden == null) {
+			overridden = isOverridden("ignore", Context.class, Class.class, Member.class)
+					|| isOverridden("normalize", String.class);
+			propertyLookupOverridden = overridden;
+		}
+		return overridden;
+	}
 
-			if (context.memberCache == null) {
-				context.memberCache = new HashMap<Class<?>, Object>();
+	private boolean isOverridden(String name, Class<?>... paramTypes) {
+		for (Class<?> c = getClass(); c != JSON.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, paramTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// continue
 			}
-			context.memberCache.put(cls, c);
 		}
-
-		@SuppressWarnings("unchecked")
-		T ret = (T)c.convert(context, value, cls, type);
-		return ret;
+		return false;
 	}
 
 	protected String normalize(String name) {
@@ -1340,7 +2208,9 @@ public class JSON {
 				instance = new ArrayList<Object>();
 			}
 		} else if (Map.class.equals(c)) {
-			if (context.createSizeHint >= 0) {
+			if (context.isCompactMap()) {
+				instance = new CompactMap<Object, Object>(Math.max(context.createSizeHint, 0));
+			} else if (context.createSizeHint >= 0) {
 				int capacity = 	Math.max((int) (context.createSizeHint / 0.75F) + 1, 16);
 				instance = new LinkedHashMap<Object, Object>(capacity);
 			} else {
@@ -1381,9 +2251,7 @@ public class JSON {
 			}
 
 			if (instance == null) {
-				Constructor<?> con = c.getDeclaredConstructor();
-				con.setAccessible(true);
-				instance = con.newInstance();
+				instance = BeanInfo.get(c).newDeclaredInstance();
 			}
 		}
 
@@ -1395,27 +2263,50 @@ public class JSON {
 		private final TimeZone timeZone;
 		private final Object contextObject;
 		private final int maxDepth;
-		private final boolean prettyPrint;
+		private boolean prettyPrint;
 		private final int initialIndent;
 		private final String indentText;
 		private final boolean suppressNull;
 		private final Mode mode;
+		private final NumberMode numberMode;
 		private final String numberFormat;
 		private final String dateFormat;
 		private final NamingStyle propertyStyle;
 		private final NamingStyle enumStyle;
+		private final ExecutorService parallelExecutor;
+		private final int parallelThreshold;
+		private final int flushCount;
+		private final int flushSize;
+		private final long flushTime;
+		private final boolean compactMap;
 
 		private State[] path;
 		private int depth = -1;
 
+		private final Object planKey;
 		private Map<Class<?>, Object> memberCache;
 		private final LocalCache cache;
 
 		JSONHint skipHint;
 		int createSizeHint = -1;
 
+		private int flushedCount = 0;
+		private long flushedSize = 0L;
+		private long flushedTime = 0L;
+
 		public Context() {
-			synchronized (JSON.this) {
+			this(true);
+		}
+
+		/**
+		 * Creates a context. A context of a frozen instance shares the cache of the current
+		 * thread. A context which may be used by another thread (for example, of a reader
+		 * or a writer which is returned to a caller) should have its own cache.
+		 *
+		 * @param threadCache true to share the cache of the current thread if frozen
+		 */
+		Context(boolean threadCache) {
+			if (frozen) {
 				locale = JSON.this.locale;
 				timeZone = JSON.this.timeZone;
 				contextObject = JSON.this.contextObject;
@@ -1425,16 +2316,60 @@ public class JSON {
 				indentText = JSON.this.indentText;
 				suppressNull = JSON.this.suppressNull;
 				mode = JSON.this.mode;
+				numberMode = JSON.this.numberMode;
 				numberFormat = JSON.this.numberFormat;
 				dateFormat = JSON.this.dateFormat;
 				propertyStyle = JSON.this.propertyStyle;
 				enumStyle = JSON.this.enumStyle;
+				parallelExecutor = JSON.this.parallelExecutor;
+				parallelThreshold = JSON.this.parallelThreshold;
+				flushCount = JSON.this.flushCount;
+				flushSize = JSON.this.flushSize;
+				flushTime = JSON.this.flushTime;
+				compactMap = JSON.this.compactMap;
+
+				if (threadCache) {
+					cache = localCache.get();
+				} else {
+					cache = new LocalCache(PACKAGE_NAME + ".Messages", locale, timeZone);
+					if (symbolTable != null) cache.setSymbolTable(symbolTable);
+				}
+			} else {
+				synchronized (JSON.this) {
+					locale = JSON.this.locale;
+					timeZone = JSON.this.timeZone;
+					contextObject = JSON.this.contextObject;
+					maxDepth = JSON.this.maxDepth;
+					prettyPrint = JSON.this.prettyPrint;
+					initialIndent = JSON.this.initialIndent;
+					indentText = JSON.this.indentText;
+					suppressNull = JSON.this.suppressNull;
+					mode = JSON.this.mode;
+					numberMode = JSON.this.numberMode;
+					numberFormat = JSON.this.numberFormat;
+					dateFormat = JSON.this.dateFormat;
+					propertyStyle = JSON.this.propertyStyle;
+					enumStyle = JSON.this.enumStyle;
+					parallelExecutor = JSON.this.parallelExecutor;
+					parallelThreshold = JSON.this.parallelThreshold;
+					flushCount = JSON.this.flushCount;
+					flushSize = JSON.this.flushSize;
+					flushTime = JSON.this.flushTime;
+					compactMap = JSON.this.compactMap;
+
+					cache = new LocalCache(PACKAGE_NAME + ".Messages", locale, timeZone);
+					if (symbolTable != null) cache.setSymbolTable(symbolTable);
+				}
+			}
 
-				cache = new LocalCache(PACKAGE_NAME + ".Messages", locale, timeZone);
+			if (JSON.this.getClass() == JSON.class || !JSON.this.isPropertyLookupOverridden()) {
+				planKey = (propertyStyle != null) ? propertyStyle : NamingStyle.NOOP;
+			} else {
+				planKey = null;
 			}
 		}
 
-		private Context(Context context) {
+		private Context(Context context, boolean fork) {
 			synchronized (context) {
 				locale = context.locale;
 				timeZone = context.timeZone;
@@ -1445,10 +2380,17 @@ public class JSON {
 				indentText = context.indentText;
 				suppressNull = context.suppressNull;
 				mode = context.mode;
+				numberMode = context.numberMode;
 				numberFormat = context.numberFormat;
 				dateFormat = context.dateFormat;
 				propertyStyle = context.propertyStyle;
 				enumStyle = context.enumStyle;
+				parallelExecutor = fork ? null : context.parallelExecutor;
+				parallelThreshold = context.parallelThreshold;
+				flushCount = fork ? 0 : context.flushCount;
+				flushSize = fork ? 0 : context.flushSize;
+				flushTime = fork ? 0L : context.flushTime;
+				compactMap = context.compactMap;
 				depth = context.depth;
 
 				path = new State[context.path.length];
@@ -1459,12 +2401,72 @@ public class JSON {
 					path[i].hint = context.path[i].hint;
 				}
 
-				cache = context.cache;
+				planKey = context.planKey;
+				if (fork) {
+					cache = new LocalCache(PACKAGE_NAME + ".Messages", locale, timeZone);
+					if (symbolTable != null) cache.setSymbolTable(symbolTable);
+				} else {
+					cache = context.cache;
+				}
 			}
 		}
 
 		Context copy() {
-			return new Context(this);
+			return new Context(this, false);
+		}
+
+		/**
+		 * Copies this context for another thread. The copy has its own cache,
+		 * and does not format in parallel.
+		 */
+		Context fork() {
+			return new Context(this, true);
+		}
+
+		ExecutorService getParallelExecutor() {
+			return parallelExecutor;
+		}
+
+		int getParallelThreshold() {
+			return parallelThreshold;
+		}
+
+		boolean isCompactMap() {
+			return compactMap;
+		}
+
+		/**
+		 * Flushes the output after an element of an array, if the flush policy is satisfied.
+		 */
+		void flushPoint(OutputSource out) throws IOException {
+			if (flushCount == 0 && flushSize == 0 && flushTime == 0L) {
+				return;
+			}
+
+			boolean flush = false;
+			if (flushCount > 0 && ++flushedCount >= flushCount) {
+				flush = true;
+			}
+			if (flushSize > 0 && out instanceof CountingOutputSource
+					&& ((CountingOutputSource)out).getCount() - flushedSize >= flushSize) {
+				flush = true;
+			}
+			long now = 0L;
+			if (flushTime > 0L) {
+				now = System.currentTimeMillis();
+				if (now - flushedTime >= flushTime) {
+					flush = true;
+				}
+			}
+
+			if (flush) {
+				out.flush();
+				flushedCount = 0;
+				if (out instanceof CountingOutputSource) {
+					flushedSize = ((CountingOutputSource)out).getCount();
+				}
+				flushedTime = now;
+			}
 		}
 
 		public Locale getLocale() {
@@ -1499,6 +2501,10 @@ public class JSON {
 			return mode;
 		}
 
+		public NumberMode getNumberMode() {
+			return numberMode;
+		}
+
 		public NamingStyle getPropertyStyle() {
 			return propertyStyle;
 		}
@@ -1611,6 +2617,14 @@ public class JSON {
 			}
 		}
 
+		void append(OutputSource out, char[] cbuf, int start, int end) throws IOException {
+			if (out instanceof CharArrayOutputSource) {
+				((CharArrayOutputSource)out).append(cbuf, start, end);
+			} else {
+				out.append(String.valueOf(cbuf, start, end - start));
+			}
+		}
+
 		NumberFormat getNumberFormat() {
 			JSONHint hint = getHint();
 			String format = (hint != null && hint.format().length() > 0) ? hint.format() : numberFormat;
@@ -1712,29 +2726,7 @@ public class JSON {
 			}
 
 			if (f == null) {
-				f = FORMAT_MAP.get(o.getClass());
-			}
-
-			if (f == null && memberCache != null) {
-				f = (Formatter)memberCache.get(o.getClass());
-			}
-
-			if (f == null) {
-				for (Formatter formatter : FORMAT_LIST) {
-					if (formatter.accept(o)) {
-						f = formatter;
-						break;
-					}
-				}
-
-				if (f == null) {
-					f = new ObjectFormatter(o.getClass());
-				}
-
-				if (memberCache == null) {
-					memberCache = new HashMap<Class<?>, Object>();
-				}
-				memberCache.put(o.getClass(), f);
+				f = getFormatter(o);
 			}
 
 			try {
@@ -1778,6 +2770,105 @@ public class JSON {
 			return result;
 		}
 
+		@SuppressWarnings("unchecked")
+		<T> T convertInternal(JSONReader reader, Class<?> cls, Type type) throws IOException, JSONException {
+			if (JSON.this.getClass() != JSON.class && JSON.this.isPostparseOverridden()) {
+				return (T)convertInternal(reader.getValue(), cls, type);
+			}
+
+			T result = null;
+			try {
+				enter(ROOT, null);
+				result = (T)reader.bindValue(cls, type);
+				exit();
+			} catch (IOException e) {
+				throw e;
+			} catch (JSONException e) {
+				if (e.getErrorCode() == JSONException.PARSE_ERROR) {
+					throw e;
+				}
+				throw new JSONException(getMessage("json.parse.ConversionError",
+						reader.getFailedValueText(), type, this),
+						JSONException.POSTPARSE_ERROR, e);
+			} catch (Exception e) {
+				throw new JSONException(getMessage("json.parse.ConversionError",
+						reader.getFailedValueText(), type, this),
+						JSONException.POSTPARSE_ERROR, e);
+			}
+			return result;
+		}
+
+		Formatter getFormatter(Object o) {
+			Class<?> cls = o.getClass();
+			Formatter f = FORMAT_MAP.get(cls);
+
+			if (f == null) {
+				if (planKey != null) {
+					f = FORMATTER_CACHE.get(cls, planKey);
+				} else if (memberCache != null) {
+					f = (Formatter)memberCache.get(cls);
+				}
+			}
+
+			if (f == null) {
+				for (Formatter formatter : FORMAT_LIST) {
+					if (formatter.accept(o)) {
+						f = formatter;
+						break;
+					}
+				}
+
+				if (f == null) {
+					f = new ObjectFormatter(cls);
+				}
+
+				if (planKey != null) {
+					f = FORMATTER_CACHE.putIfAbsent(cls, planKey, f);
+				} else {
+					if (memberCache == null) {
+						memberCache = new HashMap<Class<?>, Object>();
+					}
+					memberCache.put(cls, f);
+				}
+			}
+			return f;
+		}
+
+		Converter getConverter(Class<?> cls) {
+			Converter c = CONVERT_MAP.get(cls);
+
+			if (c == null) {
+				if (planKey != null) {
+					c = CONVERTER_CACHE.get(cls, planKey);
+				} else if (memberCache != null) {
+					c = (Converter)memberCache.get(cls);
+				}
+			}
+
+			if (c == null) {
+				for (Converter converter : CONVERT_LIST) {
+					if (converter.accept(cls)) {
+						c = converter;
+						break;
+					}
+				}
+
+				if (c == null) {
+					c = new ObjectConverter(cls);
+				}
+
+				if (planKey != null) {
+					c = CONVERTER_CACHE.putIfAbsent(cls, planKey, c);
+				} else {
+					if (memberCache == null) {
+						memberCache = new HashMap<Class<?>, Object>();
+					}
+					memberCache.put(cls, c);
+				}
+			}
+			return c;
+		}
+
 		<T> T createInternal(Class<? extends T> c) throws Exception {
 			return create(this, c);
 		}
@@ -1799,6 +2890,17 @@ public class JSON {
 		Object key;
 		JSONHint hint;
 	}
+
+	private static class SharedInstances {
+		final Locale locale;
+		final TimeZone timeZone;
+		final AtomicReferenceArray<JSON> instances = new AtomicReferenceArray<JSON>(4);
+
+		SharedInstances(Locale locale, TimeZone timeZone) {
+			this.locale = locale;
+			this.timeZone = timeZone;
+		}
+	}
 }
 
 class DateTimeFormatterProvider implements LocalCache.Provider<DateTimeFormatter> {
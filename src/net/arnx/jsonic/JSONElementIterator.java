@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates elements of a JSON array, or entries of a JSON object. Each element is decoded
+ * lazily when it is requested, so a huge array can be processed with a constant memory.
+ *
+ * When it iterates the whole input (JSON#parseElements and JSON#parseEntries), anything but
+ * whitespaces and comments after the array or the object is an error as in JSON#parse.
+ *
+ * This object is also an Iterable which returns itself, so it can be iterated only once.
+ * I/O errors are thrown as JSONException with the cause.
+ */
+public class JSONElementIterator<T> implements Iterator<T>, Iterable<T>, Closeable {
+	private final Type type;
+	private final boolean entries;
+	private JSONReader reader;
+	private final Closeable closeable;
+
+	private boolean root;
+	private boolean single;
+	private int index = -1;
+
+	private boolean fetched = false;
+	private boolean ended = false;
+	private T value;
+
+	JSONElementIterator(JSONReader reader, Type type, boolean entries, boolean root, Closeable closeable) {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		this.reader = reader;
+		this.type = type;
+		this.entries = entries;
+		this.root = root;
+		this.single = root;
+		this.closeable = closeable;
+	}
+
+	/**
+	 * Returns the index of the last element returned by {@link #next()}.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched && !ended) {
+			try {
+				fetched = fetch();
+				ended = !fetched;
+			} catch (IOException e) {
+				throw new JSONException(e.getMessage(), JSONException.PARSE_ERROR, e);
+			}
+		}
+		return fetched;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean fetch() throws IOException {
+		if (root) {
+			root = false;
+			JSONEventType start = (entries) ? JSONEventType.START_OBJECT : JSONEventType.START_ARRAY;
+			JSONEventType current = nextValue();
+			if (current == null) {
+				throw new JSONException(reader.getContext().getMessage("json.parse.EmptyInputError"), JSONException.PARSE_ERROR);
+			} else if (current != start) {
+				String text = (current == JSONEventType.START_OBJECT) ? "{...}"
+						: (current == JSONEventType.START_ARRAY) ? "[...]"
+						: String.valueOf(reader.getValue());
+				throw new JSONException(reader.getContext().getMessage("json.parse.ConversionError",
+						text, (entries) ? Map.class : List.class, JSON.ROOT),
+						JSONException.POSTPARSE_ERROR);
+			}
+		}
+
+		JSONEventType current = nextValue();
+		if (current == JSONEventType.END_ARRAY || current == JSONEventType.END_OBJECT || current == null) {
+			if (single && current != null) {
+				single = false;
+				reader.validateEnd();
+			}
+			return false;
+		}
+
+		index++;
+		if (entries) {
+			String name = reader.getString();
+			nextValue();
+			value = (T)new AbstractMap.SimpleImmutableEntry<String, Object>(name, reader.getValue(type));
+		} else {
+			value = (T)reader.getValue(type);
+		}
+		return true;
+	}
+
+	private JSONEventType nextValue() throws IOException {
+		JSONEventType current;
+		do {
+			current = reader.next();
+		} while (current == JSONEventType.WHITESPACE || current == JSONEventType.COMMENT);
+		return current;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T result = value;
+		value = null;
+		fetched = false;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	/**
+	 * Stops the iteration and releases the reader. The file which is opened by
+	 * {@link JSON#parseElements(java.io.File, Type)} is closed.
+	 * Streams and readers given by a caller are not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		ended = true;
+		fetched = false;
+		value = null;
+		reader = null;
+		if (closeable != null) {
+			closeable.close();
+		}
+	}
+}
@@ -72,5 +72,10 @@ public enum JSONEventType {
 	/**
 	 * Single line or Multi line comment.
 	 */
-	COMMENT
+	COMMENT,
+	
+	/**
+	 * No event is available until more input is fed (getPushReader).
+	 */
+	NEED_MORE_INPUT
 }
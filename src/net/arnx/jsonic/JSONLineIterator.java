@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.LineInputSource;
+import net.arnx.jsonic.util.ClassUtil;
+
+/**
+ * Iterates values of JSON Lines (newline delimited JSON). Each line is decoded
+ * lazily when it is requested, and blank lines are ignored.
+ *
+ * This object is also an Iterable which returns itself, so it can be iterated only once.
+ * I/O errors are thrown as JSONException with the cause.
+ */
+public class JSONLineIterator<T> implements Iterator<T>, Iterable<T>, Closeable {
+	final JSON json;
+	final Type type;
+	private final LineInputSource in;
+	private final Closeable closeable;
+
+	private JSON.Context context;
+	private boolean skipMalformedLines = false;
+	long malformedLines = 0L;
+	long lineNumber = 0L;
+
+	private boolean fetched = false;
+	private boolean ended = false;
+	T value;
+
+	JSONLineIterator(JSON json, InputSource in, Type type, Closeable closeable) {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		this.json = json;
+		this.type = type;
+		this.in = (in != null) ? new LineInputSource(in) : null;
+		this.closeable = closeable;
+	}
+
+	/**
+	 * Sets whether a malformed line is skipped and counted instead of throwing JSONException.
+	 *
+	 * @param value true to skip malformed lines
+	 */
+	public void setSkipMalformedLines(boolean value) {
+		this.skipMalformedLines = value;
+	}
+
+	public boolean isSkipMalformedLines() {
+		return skipMalformedLines;
+	}
+
+	/**
+	 * Returns the count of the skipped malformed lines.
+	 */
+	public long getMalformedLineCount() {
+		return malformedLines;
+	}
+
+	/**
+	 * Returns the line number of the last value returned by {@link #next()}.
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched && !ended) {
+			try {
+				fetched = fetch();
+				ended = !fetched;
+			} catch (IOException e) {
+				throw new JSONException(e.getMessage(), JSONException.PARSE_ERROR, e);
+			}
+		}
+		return fetched;
+	}
+
+	/**
+	 * Reads the next value into {@link #value}.
+	 *
+	 * @return false if no more value exists.
+	 */
+	@SuppressWarnings("unchecked")
+	boolean fetch() throws IOException {
+		if (context == null) {
+			context = json.new Context(false);
+		}
+
+		Class<?> cls = ClassUtil.getRawType(type);
+		while (in.nextLine()) {
+			if (isBlankLine(in)) {
+				continue;
+			}
+
+			try {
+				value = (T)decodeLine(context, in, cls, type);
+				lineNumber = in.getLineNumber();
+				return true;
+			} catch (JSONException e) {
+				if (!skipMalformedLines) {
+					throw e;
+				}
+				malformedLines++;
+				context = json.new Context(false);
+			}
+		}
+		return false;
+	}
+
+	static boolean isBlankLine(LineInputSource in) {
+		int n;
+		do {
+			n = in.next();
+		} while (n == ' ' || n == '\t' || n == '\r');
+		if (n == -1) {
+			return true;
+		}
+		in.back();
+		return false;
+	}
+
+	static Object decodeLine(JSON.Context context, LineInputSource in, Class<?> cls, Type type) throws IOException {
+		JSONReader reader = new JSONReader(context, in, false, true);
+		reader.next();
+		return context.convertInternal(reader, cls, type);
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T result = value;
+		value = null;
+		fetched = false;
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	/**
+	 * Closes the file which is opened by {@link JSON#parseLines(java.io.File, Type)}.
+	 * Streams and readers given by a caller are not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		ended = true;
+		fetched = false;
+		value = null;
+		if (closeable != null) {
+			closeable.close();
+		}
+	}
+}
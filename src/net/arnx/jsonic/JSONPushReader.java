@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import net.arnx.jsonic.JSON.Context;
+import net.arnx.jsonic.io.FeedInputSource;
+
+/**
+ * Non-blocking pull parser which is fed with chunks of input.
+ *
+ * {@link #next()} returns {@link JSONEventType#NEED_MORE_INPUT} instead of blocking when
+ * the fed data is not enough to read the next event. The event stream is the same as
+ * JSONReader's, however the input is divided. In multiline mode, which is the default,
+ * a sequence of root values is read; otherwise the input must be exactly one root value.
+ */
+public class JSONPushReader {
+	private final FeedInputSource in;
+	private final JSONReader reader;
+
+	JSONPushReader(Context context, boolean multilineMode, boolean ignoreWhitespace) {
+		this.in = new FeedInputSource();
+		this.reader = new JSONReader(context, in, multilineMode, ignoreWhitespace);
+	}
+
+	/**
+	 * Appends UTF-8 bytes to the input. All remaining bytes of the buffer are consumed.
+	 *
+	 * @param src the bytes
+	 */
+	public void feed(ByteBuffer src) {
+		in.feed(src);
+	}
+
+	/**
+	 * Appends chars to the input.
+	 *
+	 * @param cbuf the chars
+	 * @param off the start offset of the chars
+	 * @param len the length of the chars
+	 */
+	public void feed(char[] cbuf, int off, int len) {
+		in.feed(cbuf, off, len);
+	}
+
+	/**
+	 * Marks the end of input. After that, next() never returns NEED_MORE_INPUT.
+	 */
+	public void endOfInput() {
+		in.endOfInput();
+	}
+
+	/**
+	 * Reads the next event.
+	 *
+	 * @return the next event, NEED_MORE_INPUT if more input is needed, or null if the input is ended.
+	 * @throws IOException if I/O error occurred.
+	 */
+	public JSONEventType next() throws IOException {
+		return reader.next();
+	}
+
+	public String getString() throws IOException {
+		return reader.getString();
+	}
+
+	public BigDecimal getNumber() throws IOException {
+		return reader.getNumber();
+	}
+
+	public Boolean getBoolean() throws IOException {
+		return reader.getBoolean();
+	}
+
+	public int getDepth() {
+		return reader.getDepth();
+	}
+}
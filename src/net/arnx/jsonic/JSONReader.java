@@ -15,10 +15,16 @@
  */
 package net.arnx.jsonic;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,30 +32,46 @@ import java.util.Map;
 import net.arnx.jsonic.JSON.Context;
 import net.arnx.jsonic.io.InputSource;
 import net.arnx.jsonic.parse.JSONParser;
+import net.arnx.jsonic.parse.LazyNumber;
+import net.arnx.jsonic.parse.Projection;
 import net.arnx.jsonic.parse.ScriptParser;
 import net.arnx.jsonic.parse.TraditionalParser;
 import net.arnx.jsonic.util.ClassUtil;
+import net.arnx.jsonic.util.CompactMap;
+import net.arnx.jsonic.util.PropertyInfo;
 
-public class JSONReader {
+public class JSONReader implements Closeable {
 	private Context context;
+	private InputSource in;
 	private JSONParser parser;
 	private JSONEventType type;
 
+	private boolean failed;
+	private Object failedValue;
+
 	JSONReader(Context context, InputSource in, boolean multilineMode, boolean ignoreWhitespace) {
+		this(context, in, multilineMode, ignoreWhitespace, null);
+	}
+
+	JSONReader(Context context, InputSource in, boolean multilineMode, boolean ignoreWhitespace, Projection projection) {
 		this.context = context;
+		this.in = in;
 
 		switch (context.getMode()) {
 		case STRICT:
 			parser = new JSONParser(in, context.getMaxDepth(), multilineMode, ignoreWhitespace,
-					context.getLocalCache());
+					context.getNumberMode(), context.getLocalCache());
 			break;
 		case SCRIPT:
 			parser = new ScriptParser(in, context.getMaxDepth(), multilineMode, ignoreWhitespace,
-					context.getLocalCache());
+					context.getNumberMode(), context.getLocalCache());
 			break;
 		default:
 			parser = new TraditionalParser(in, context.getMaxDepth(), multilineMode, ignoreWhitespace,
-					context.getLocalCache());
+					context.getNumberMode(), context.getLocalCache());
+		}
+		if (projection != null) {
+			parser.setProjection(projection);
 		}
 	}
 
@@ -60,7 +82,11 @@ public class JSONReader {
 
 	@SuppressWarnings("unchecked")
 	public <T> T getValue(Class<T> cls) throws IOException {
-		return (T)context.convertInternal(getValue(), cls, cls);
+		if (type == null) {
+			throw new IllegalStateException("you should call next.");
+		}
+
+		return (T)context.convertInternal(this, cls, cls);
 	}
 
 	public Object getValue(Type type) throws IOException {
@@ -68,7 +94,39 @@ public class JSONReader {
 			type = ((TypeReference<?>)type).getType();
 		}
 
-		return context.convertInternal(getValue(), ClassUtil.getRawType(type), type);
+		if (this.type == null) {
+			throw new IllegalStateException("you should call next.");
+		}
+
+		return context.convertInternal(this, ClassUtil.getRawType(type), type);
+	}
+
+	/**
+	 * Returns an iterator which decodes elements of the current array one by one.
+	 * The reader should be at START_ARRAY, and it is at END_ARRAY after the iteration.
+	 *
+	 * @param type a type of each element
+	 * @return an iterator of the elements
+	 */
+	public <T> JSONElementIterator<T> getElements(Type type) {
+		if (this.type != JSONEventType.START_ARRAY) {
+			throw new IllegalStateException("current event is not START_ARRAY.");
+		}
+		return new JSONElementIterator<T>(this, type, false, false, null);
+	}
+
+	/**
+	 * Returns an iterator which decodes entries of the current object one by one.
+	 * The reader should be at START_OBJECT, and it is at END_OBJECT after the iteration.
+	 *
+	 * @param type a type of each value
+	 * @return an iterator of the entries
+	 */
+	public <T> JSONElementIterator<Map.Entry<String, T>> getEntries(Type type) {
+		if (this.type != JSONEventType.START_OBJECT) {
+			throw new IllegalStateException("current event is not START_OBJECT.");
+		}
+		return new JSONElementIterator<Map.Entry<String, T>>(this, type, true, false, null);
 	}
 
 	public Map<?, ?> getMap() throws IOException {
@@ -84,7 +142,16 @@ public class JSONReader {
 	}
 
 	public BigDecimal getNumber() throws IOException {
-		return (BigDecimal)parser.getValue();
+		Object value = parser.getValue();
+		if (value == null || value instanceof BigDecimal) {
+			return (BigDecimal)value;
+		} else if (value instanceof LazyNumber) {
+			return ((LazyNumber)value).toBigDecimal();
+		} else if (value instanceof Double) {
+			return BigDecimal.valueOf((Double)value);
+		} else {
+			return BigDecimal.valueOf(((Number)value).longValue());
+		}
 	}
 
 	public Boolean getBoolean() throws IOException {
@@ -96,24 +163,36 @@ public class JSONReader {
 			throw new IllegalStateException("you should call next.");
 		}
 
-		int ilen = 0;
+		skip(parser.isInterpretterMode());
+	}
 
-		do {
-			switch (type) {
-			case START_OBJECT:
-			case START_ARRAY:
-				ilen++;
-				break;
-			case END_ARRAY:
-			case END_OBJECT:
-				ilen--;
-				break;
-			}
+	private void skip(boolean subtree) throws IOException {
+		if (type == JSONEventType.START_OBJECT || type == JSONEventType.START_ARRAY) {
+			parser.skipValue();
+			type = (type == JSONEventType.START_OBJECT) ? JSONEventType.END_OBJECT : JSONEventType.END_ARRAY;
+		}
 
-			if (parser.isInterpretterMode() && ilen == 0) {
-				break;
-			}
-		} while ((type = parser.next()) != null);
+		if (!subtree) {
+			parser.skipAll();
+			type = null;
+		}
+	}
+
+	/**
+	 * Checks the syntax of the whole input without decoding values.
+	 */
+	void validate() throws IOException {
+		parser.skipAll();
+		type = null;
+	}
+
+	/**
+	 * Checks that the rest of the input has only whitespaces and comments,
+	 * as if the current root value were the whole input.
+	 */
+	void validateEnd() throws IOException {
+		parser.setInterpretterMode(false);
+		validate();
 	}
 
 	Object getValue() throws IOException {
@@ -121,6 +200,10 @@ public class JSONReader {
 			throw new IllegalStateException("you should call next.");
 		}
 
+		return read(parser.isInterpretterMode());
+	}
+
+	private Object read(boolean subtree) throws IOException {
 		int ilen = 0;
 		int[] istack = new int[8];
 
@@ -150,7 +233,8 @@ public class JSONReader {
 			case END_OBJECT: {
 				int start = istack[--ilen];
 				int len = olen - start;
-				Map<Object, Object> object = new LinkedHashMap<Object, Object>(
+				Map<Object, Object> object = (context.isCompactMap()) ? new CompactMap<Object, Object>(len / 2)
+						: new LinkedHashMap<Object, Object>(
 						(len < 2) ? 4 :
 						(len < 4) ? 8 :
 						(len < 12) ? 16 :
@@ -175,7 +259,7 @@ public class JSONReader {
 			}
 			}
 
-			if (parser.isInterpretterMode() && ilen == 0) {
+			if (subtree && ilen == 0) {
 				break;
 			}
 		} while ((type = parser.next()) != null);
@@ -183,10 +267,217 @@ public class JSONReader {
 		return ostack[0];
 	}
 
+	/**
+	 * Binds the current value to the specified type without building an intermediate tree.
+	 * Called by the context inside the root state. When the reader is not in
+	 * interpreter mode, the rest of the input is consumed for validation.
+	 */
+	Object bindValue(Class<?> c, Type t) throws Exception {
+		failed = false;
+		failedValue = null;
+
+		Object result = bind(c, t);
+		if (!parser.isInterpretterMode()) {
+			while ((type = parser.next()) != null);
+		}
+		return result;
+	}
+
+	String getFailedValueText() {
+		if (!failed) {
+			return (type == JSONEventType.START_ARRAY || type == JSONEventType.END_ARRAY) ? "[...]" : "{...}";
+		} else if (failedValue instanceof CharSequence) {
+			return "\"" + failedValue + "\"";
+		} else {
+			try {
+				return String.valueOf(failedValue);
+			} catch (Exception e) {
+				return failedValue.getClass().toString();
+			}
+		}
+	}
+
+	private Object bind(Class<?> c, Type t) throws Exception {
+		if (type == JSONEventType.START_OBJECT || type == JSONEventType.START_ARRAY) {
+			Class<?> cls = c;
+
+			JSONHint hint = context.getHint();
+			if (hint == null) {
+				// no handle
+			} else if ((hint.serialized() && hint != context.skipHint)
+					|| Serializable.class.equals(hint.type())
+					|| String.class.equals(hint.type())) {
+				return convert(c, t);
+			} else if (hint.type() != Object.class && cls.isAssignableFrom(hint.type())) {
+				cls = hint.type().asSubclass(cls);
+			}
+
+			if (type == JSONEventType.START_OBJECT) {
+				if (cls == t && cls.isAssignableFrom(context.isCompactMap() ? CompactMap.class : LinkedHashMap.class)) {
+					return read(true);
+				}
+
+				Converter converter = context.getConverter(cls);
+				if (converter == MapConverter.INSTANCE) {
+					return bindMap(cls, t);
+				} else if (converter instanceof ObjectConverter) {
+					return bindObject((ObjectConverter)converter, cls, t);
+				}
+			} else {
+				if (cls == t && cls.isAssignableFrom(ArrayList.class)) {
+					return read(true);
+				}
+
+				Converter converter = context.getConverter(cls);
+				if (converter == CollectionConverter.INSTANCE) {
+					return bindCollection(cls, t);
+				} else if (converter == ArrayConverter.INSTANCE) {
+					return bindArray(cls, t);
+				}
+			}
+		}
+
+		return convert(c, t);
+	}
+
+	private Object convert(Class<?> c, Type t) throws Exception {
+		Object value = read(true);
+		try {
+			return context.postparseInternal(value, c, t);
+		} catch (Exception e) {
+			if (!failed) {
+				failed = true;
+				failedValue = value;
+			}
+			throw e;
+		}
+	}
+
+	private Object bindObject(ObjectConverter converter, Class<?> c, Type t) throws Exception {
+		Object o = context.createInternal(c);
+		if (o == null) {
+			skip(true);
+			return null;
+		}
+
+		while (nextValue() != JSONEventType.END_OBJECT) {
+			String name = (String)parser.getValue();
+			nextValue();
+
+			PropertyInfo target = converter.getSetProperty(context, name);
+			if (target == null) {
+				skip(true);
+				continue;
+			}
+
+			JSONHint hint = target.getWriteAnnotation(JSONHint.class);
+			context.enter(name, hint);
+			Type ttype = target.getWriteGenericType();
+			Class<?> tcls = target.getWriteType();
+			if (ttype != tcls && t instanceof ParameterizedType) {
+				ttype = context.getResolvedType(t, c, ttype);
+				tcls = ClassUtil.getRawType(ttype);
+			}
+			target.set(o, bind(tcls, ttype));
+			context.exit();
+		}
+		return o;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object bindMap(Class<?> c, Type t) throws Exception {
+		Type pt0 = context.getResolvedType(t, c, MapConverter.TYPE_VARIABLE_KEY);
+		Type pt1 = context.getResolvedType(t, c, MapConverter.TYPE_VARIABLE_VALUE);
+		Class<?> pc0 = ClassUtil.getRawType(pt0);
+		Class<?> pc1 = ClassUtil.getRawType(pt1);
+
+		Map<Object, Object> map = (Map<Object, Object>)context.createInternal(c);
+
+		boolean plain = Object.class.equals(pc0) && Object.class.equals(pc1);
+		JSONHint hint = context.getHint();
+		while (nextValue() != JSONEventType.END_OBJECT) {
+			String name = (String)parser.getValue();
+			nextValue();
+
+			if (plain) {
+				map.put(name, read(true));
+			} else {
+				Object key = context.postparseInternal(name, pc0, pt0);
+				context.enter(name, hint);
+				map.put(key, bind(pc1, pt1));
+				context.exit();
+			}
+		}
+		return map;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object bindCollection(Class<?> c, Type t) throws Exception {
+		Type pt = context.getResolvedType(t, c, CollectionConverter.TYPE_VARIABLE);
+		Class<?> pc = ClassUtil.getRawType(pt);
+
+		Collection<Object> collection = (Collection<Object>)context.createInternal(c);
+
+		boolean plain = Object.class.equals(pc);
+		JSONHint hint = context.getHint();
+		for (int i = 0; nextValue() != JSONEventType.END_ARRAY; i++) {
+			if (plain) {
+				collection.add(read(true));
+			} else {
+				context.enter(i, hint);
+				collection.add(bind(pc, pt));
+				context.exit();
+			}
+		}
+		return collection;
+	}
+
+	private Object bindArray(Class<?> c, Type t) throws Exception {
+		Class<?> pc = c.getComponentType();
+		Type pt = (t instanceof GenericArrayType) ?
+				((GenericArrayType)t).getGenericComponentType() : pc;
+
+		List<Object> list = new ArrayList<Object>();
+		JSONHint hint = context.getHint();
+		for (int i = 0; nextValue() != JSONEventType.END_ARRAY; i++) {
+			context.enter(i, hint);
+			list.add(bind(pc, pt));
+			context.exit();
+		}
+
+		Object array = Array.newInstance(pc, list.size());
+		for (int i = 0; i < list.size(); i++) {
+			Array.set(array, i, list.get(i));
+		}
+		return array;
+	}
+
+	private JSONEventType nextValue() throws IOException {
+		do {
+			type = parser.next();
+		} while (type == JSONEventType.WHITESPACE || type == JSONEventType.COMMENT);
+		return type;
+	}
+
 	public int getDepth() {
 		return parser.getDepth();
 	}
 
+	/**
+	 * Releases the input. The file which is opened by {@link JSON#getReader(java.io.File)}
+	 * is closed. Streams and readers given by a caller are not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (in instanceof Closeable) {
+			((Closeable)in).close();
+		}
+	}
+
+	Context getContext() {
+		return context;
+	}
+
 	private int[] iexpand(int[] array, int min) {
 		if (min > array.length) {
 			int[] narray = new int[array.length * 3 / 2 + 1];
@@ -0,0 +1,571 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import net.arnx.jsonic.io.CharSequenceInputSource;
+import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.StringInputSource;
+
+/**
+ * Lazy tree of a JSON document. Objects and arrays are Map and List views over
+ * offsets into the retained source. A container is indexed when it is first accessed,
+ * and each value is decoded when it is first read and then memoized.
+ *
+ * The structure of the whole input is checked first. When the input uses a syntax
+ * which this tree does not index (for example, unquoted keys or empty elements),
+ * it is parsed eagerly by JSON#parse instead. Otherwise the input is validated by
+ * the parser of the mode without decoding values, so that the same errors as
+ * JSON#parse are thrown up front and every value decodes as it does in place.
+ */
+final class LazyTree {
+	private static final Object UNDECODED = new Object();
+
+	private static final int VALUE = 0;
+	private static final int FIRST_VALUE = 1;
+	private static final int FIRST_KEY = 2;
+	private static final int KEY = 3;
+	private static final int AFTER_VALUE = 4;
+
+	private final CharSequence cs;
+	private final boolean lenient;
+	private final JSON.Context context;
+
+	private LazyTree(JSON json, CharSequence cs) {
+		this.cs = cs;
+		this.lenient = json.getMode() != JSON.Mode.STRICT;
+		this.context = json.new Context(false);
+	}
+
+	static Object parse(JSON json, CharSequence cs) throws JSONException {
+		boolean lenient = json.getMode() != JSON.Mode.STRICT;
+		int start = ParallelArrayParser.skip(cs, 0, lenient);
+		if (start < cs.length() && cs.charAt(start) == '\uFEFF') {
+			start = ParallelArrayParser.skip(cs, start + 1, lenient);
+		}
+
+		if (start < cs.length() && (cs.charAt(start) == '{' || cs.charAt(start) == '[')) {
+			int end = check(cs, start, lenient, json.getMaxDepth());
+			if (end >= 0 && ParallelArrayParser.skip(cs, end, lenient) == cs.length()) {
+				LazyTree tree = new LazyTree(json, cs);
+				tree.validate();
+				return tree.node(start, end);
+			}
+		}
+		return json.parse(cs);
+	}
+
+	/**
+	 * Checks the structure of the value at the offset.
+	 *
+	 * @return the end offset of the value, or -1 if it cannot be indexed.
+	 */
+	static int check(CharSequence cs, int i, boolean lenient, int maxDepth) {
+		int len = cs.length();
+		char[] stack = new char[8];
+		int depth = 0;
+		int state = VALUE;
+
+		while (true) {
+			i = ParallelArrayParser.skip(cs, i, lenient);
+			if (state == AFTER_VALUE && depth == 0) {
+				return i;
+			}
+			if (i >= len) {
+				return -1;
+			}
+
+			char c = cs.charAt(i);
+			switch (state) {
+			case FIRST_VALUE:
+			case FIRST_KEY:
+				if (c == stack[depth - 1]) {
+					depth--;
+					i++;
+					state = AFTER_VALUE;
+					break;
+				}
+				state = (state == FIRST_KEY) ? KEY : VALUE;
+				break;
+			case VALUE:
+				if (c == '{' || c == '[') {
+					if (depth >= maxDepth) return -1;
+					if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+					stack[depth++] = (c == '{') ? '}' : ']';
+					i++;
+					state = (c == '{') ? FIRST_KEY : FIRST_VALUE;
+				} else {
+					i = skipScalar(cs, i, lenient);
+					if (i < 0) return -1;
+					state = AFTER_VALUE;
+				}
+				break;
+			case KEY:
+				if (c != '"' && !(c == '\'' && lenient)) return -1;
+				i = ParallelArrayParser.skipString(cs, i);
+				if (i < 0) return -1;
+				i = ParallelArrayParser.skip(cs, i, lenient);
+				if (i >= len || cs.charAt(i) != ':') return -1;
+				i++;
+				state = VALUE;
+				break;
+			default:
+				if (c == ',') {
+					i++;
+					state = (stack[depth - 1] == '}') ? KEY : VALUE;
+				} else if (c == stack[depth - 1]) {
+					depth--;
+					i++;
+				} else {
+					return -1;
+				}
+			}
+		}
+	}
+
+	private static int skipScalar(CharSequence cs, int i, boolean lenient) {
+		char c = cs.charAt(i);
+		if (c == '"' || (c == '\'' && lenient)) {
+			return ParallelArrayParser.skipString(cs, i);
+		}
+
+		int start = i;
+		while (i < cs.length()) {
+			c = cs.charAt(i);
+			if (!(Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.' || c == '_' || c == '$')) {
+				break;
+			}
+			i++;
+		}
+		return (i > start) ? i : -1;
+	}
+
+	private int skipValue(int i) {
+		char c = cs.charAt(i);
+		if (c != '{' && c != '[') {
+			return skipScalar(cs, i, lenient);
+		}
+
+		int depth = 0;
+		while (true) {
+			c = cs.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = ParallelArrayParser.skipString(cs, i);
+				continue;
+			} else if (c == '/') {
+				i = ParallelArrayParser.skipComment(cs, i);
+				continue;
+			} else if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				depth--;
+				if (depth == 0) return i + 1;
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Finds the ranges of the keys and the values of the container at the offset.
+	 *
+	 * @return start and end offsets of each key and value for an object, or each value for an array.
+	 */
+	private int[] index(int start) {
+		boolean object = cs.charAt(start) == '{';
+		int[] ranges = new int[16];
+		int size = 0;
+
+		int i = ParallelArrayParser.skip(cs, start + 1, lenient);
+		char close = object ? '}' : ']';
+		while (cs.charAt(i) != close) {
+			if (size + 4 > ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2);
+			if (object) {
+				ranges[size++] = i;
+				i = ParallelArrayParser.skipString(cs, i);
+				ranges[size++] = i;
+				i = ParallelArrayParser.skip(cs, i, lenient) + 1;
+				i = ParallelArrayParser.skip(cs, i, lenient);
+			}
+			ranges[size++] = i;
+			i = skipValue(i);
+			ranges[size++] = i;
+			i = ParallelArrayParser.skip(cs, i, lenient);
+			if (cs.charAt(i) == ',') {
+				i = ParallelArrayParser.skip(cs, i + 1, lenient);
+			}
+		}
+		return Arrays.copyOf(ranges, size);
+	}
+
+	private void validate() {
+		try {
+			new JSONReader(context, toInputSource(cs), false, true).validate();
+		} catch (IOException e) {
+			throw new JSONException(e.getMessage(), JSONException.PARSE_ERROR, e);
+		}
+	}
+
+	private Object node(int start, int end) {
+		char c = cs.charAt(start);
+		if (c == '{') {
+			return new LazyMap(this, start);
+		} else if (c == '[') {
+			return new LazyList(this, start);
+		}
+		return decode(start, end);
+	}
+
+	private String key(int start, int end) {
+		return (String)decode(start, end);
+	}
+
+	private Object decode(int start, int end) {
+		if (cs.charAt(start) == '"' && isPlainString(start, end)) {
+			return cs.subSequence(start + 1, end - 1).toString();
+		}
+
+		try {
+			JSONReader reader = new JSONReader(context, toInputSource(cs.subSequence(start, end)), false, true);
+			reader.next();
+			return reader.getValue();
+		} catch (IOException e) {
+			throw new JSONException(e.getMessage(), JSONException.PARSE_ERROR, e);
+		}
+	}
+
+	private static InputSource toInputSource(CharSequence cs) {
+		return (cs instanceof String) ? new StringInputSource((String)cs) : new CharSequenceInputSource(cs);
+	}
+
+	private boolean isPlainString(int start, int end) {
+		for (int i = start + 1; i < end - 1; i++) {
+			char c = cs.charAt(i);
+			if (c == '\\' || c < 0x20) return false;
+		}
+		return true;
+	}
+
+	static final class LazyMap extends AbstractMap<String, Object> implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final transient LazyTree tree;
+		private final int start;
+
+		private String[] keys;
+		private int[] ranges;
+		private Object[] values;
+		private int size = -1;
+		private Map<String, Integer> positions;
+
+		private Map<String, Object> materialized;
+
+		LazyMap(LazyTree tree, int start) {
+			this.tree = tree;
+			this.start = start;
+		}
+
+		private void ensureIndexed() {
+			synchronized (tree) {
+				if (size >= 0) return;
+
+				int[] found = tree.index(start);
+				int count = found.length / 4;
+				String[] keys = new String[count];
+				int[] ranges = new int[count * 2];
+				Map<String, Integer> positions = (count > 8) ? new HashMap<String, Integer>(count * 4 / 3 + 1) : null;
+
+				int size = 0;
+				for (int i = 0; i < count; i++) {
+					String key = tree.key(found[i * 4], found[i * 4 + 1]);
+					int pos = find(keys, positions, size, key);
+					if (pos < 0) {
+						pos = size++;
+						keys[pos] = key;
+						if (positions != null) positions.put(key, pos);
+					}
+					// the last value wins, as LinkedHashMap#put
+					ranges[pos * 2] = found[i * 4 + 2];
+					ranges[pos * 2 + 1] = found[i * 4 + 3];
+				}
+
+				this.keys = keys;
+				this.ranges = ranges;
+				this.values = new Object[size];
+				Arrays.fill(values, UNDECODED);
+				this.positions = positions;
+				this.size = size;
+			}
+		}
+
+		private static int find(String[] keys, Map<String, Integer> positions, int size, Object key) {
+			if (positions != null) {
+				Integer pos = positions.get(key);
+				return (pos != null) ? pos : -1;
+			}
+			for (int i = 0; i < size; i++) {
+				if (keys[i].equals(key)) return i;
+			}
+			return -1;
+		}
+
+		private Object value(int pos) {
+			synchronized (tree) {
+				if (values[pos] == UNDECODED) {
+					values[pos] = tree.node(ranges[pos * 2], ranges[pos * 2 + 1]);
+				}
+				return values[pos];
+			}
+		}
+
+		private Map<String, Object> materialize() {
+			if (materialized == null) {
+				ensureIndexed();
+				Map<String, Object> map = new LinkedHashMap<String, Object>(size < 12 ? 16 : (int)(size / 0.75f) + 1);
+				for (int i = 0; i < size; i++) {
+					map.put(keys[i], value(i));
+				}
+				materialized = map;
+			}
+			return materialized;
+		}
+
+		@Override
+		public int size() {
+			if (materialized != null) return materialized.size();
+			ensureIndexed();
+			return size;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			if (materialized != null) return materialized.containsKey(key);
+			ensureIndexed();
+			return find(keys, positions, size, key) >= 0;
+		}
+
+		@Override
+		public Object get(Object key) {
+			if (materialized != null) return materialized.get(key);
+			ensureIndexed();
+			int pos = find(keys, positions, size, key);
+			return (pos >= 0) ? value(pos) : null;
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			return materialize().put(key, value);
+		}
+
+		@Override
+		public Object remove(Object key) {
+			return materialize().remove(key);
+		}
+
+		@Override
+		public void clear() {
+			materialize().clear();
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			if (materialized != null) return materialized.entrySet();
+
+			return new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public int size() {
+					return LazyMap.this.size();
+				}
+
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					if (materialized != null) return materialized.entrySet().iterator();
+
+					ensureIndexed();
+					return new Iterator<Map.Entry<String, Object>>() {
+						private int next = 0;
+						private int current = -1;
+
+						@Override
+						public boolean hasNext() {
+							return next < size;
+						}
+
+						@Override
+						public Map.Entry<String, Object> next() {
+							if (next >= size) throw new NoSuchElementException();
+							current = next++;
+							final int pos = current;
+							return new Map.Entry<String, Object>() {
+								@Override
+								public String getKey() {
+									return keys[pos];
+								}
+
+								@Override
+								public Object getValue() {
+									return (materialized != null) ? materialized.get(keys[pos]) : value(pos);
+								}
+
+								@Override
+								public Object setValue(Object value) {
+									if (materialized != null) return materialized.put(keys[pos], value);
+									Object old = value(pos);
+									values[pos] = value;
+									return old;
+								}
+
+								@Override
+								public boolean equals(Object o) {
+									if (!(o instanceof Map.Entry)) return false;
+									Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+									Object value = getValue();
+									return keys[pos].equals(e.getKey())
+											&& (value == null ? e.getValue() == null : value.equals(e.getValue()));
+								}
+
+								@Override
+								public int hashCode() {
+									Object value = getValue();
+									return keys[pos].hashCode() ^ (value == null ? 0 : value.hashCode());
+								}
+
+								@Override
+								public String toString() {
+									return keys[pos] + "=" + getValue();
+								}
+							};
+						}
+
+						@Override
+						public void remove() {
+							if (current < 0) throw new IllegalStateException();
+							materialize().remove(keys[current]);
+							current = -1;
+						}
+					};
+				}
+			};
+		}
+
+		private Object writeReplace() {
+			return new LinkedHashMap<String, Object>(this);
+		}
+	}
+
+	static final class LazyList extends AbstractList<Object> implements RandomAccess, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final transient LazyTree tree;
+		private final int start;
+
+		private int[] ranges;
+		private Object[] values;
+		private int size = -1;
+
+		private List<Object> materialized;
+
+		LazyList(LazyTree tree, int start) {
+			this.tree = tree;
+			this.start = start;
+		}
+
+		private void ensureIndexed() {
+			synchronized (tree) {
+				if (size >= 0) return;
+
+				int[] ranges = tree.index(start);
+				this.ranges = ranges;
+				this.values = new Object[ranges.length / 2];
+				Arrays.fill(values, UNDECODED);
+				this.size = values.length;
+			}
+		}
+
+		private List<Object> materialize() {
+			if (materialized == null) {
+				ensureIndexed();
+				List<Object> list = new ArrayList<Object>(size + 1);
+				for (int i = 0; i < size; i++) {
+					list.add(get(i));
+				}
+				materialized = list;
+			}
+			return materialized;
+		}
+
+		@Override
+		public int size() {
+			if (materialized != null) return materialized.size();
+			ensureIndexed();
+			return size;
+		}
+
+		@Override
+		public Object get(int index) {
+			if (materialized != null) return materialized.get(index);
+			ensureIndexed();
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			synchronized (tree) {
+				if (values[index] == UNDECODED) {
+					values[index] = tree.node(ranges[index * 2], ranges[index * 2 + 1]);
+				}
+				return values[index];
+			}
+		}
+
+		@Override
+		public Object set(int index, Object element) {
+			if (materialized != null) return materialized.set(index, element);
+			Object old = get(index);
+			values[index] = element;
+			return old;
+		}
+
+		@Override
+		public void add(int index, Object element) {
+			materialize().add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public Object remove(int index) {
+			Object old = materialize().remove(index);
+			modCount++;
+			return old;
+		}
+
+		private Object writeReplace() {
+			return new ArrayList<Object>(this);
+		}
+	}
+}
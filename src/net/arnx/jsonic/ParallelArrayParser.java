@@ -0,0 +1,483 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.arnx.jsonic.io.CharSequenceInputSource;
+import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.MappedInputSource;
+import net.arnx.jsonic.io.ReaderInputSource;
+import net.arnx.jsonic.io.StringBuilderInputSource;
+import net.arnx.jsonic.util.ClassUtil;
+
+/**
+ * Decodes the elements of a top-level JSON array in parallel.
+ *
+ * The input is scanned once for structural characters to find the ranges of the
+ * elements at depth 1, and groups of elements are decoded by the executor in order.
+ * Each element is read inside of brackets, so that it is checked in array context
+ * just like a sequential parse does (for example, "-" or "1." is not a number there).
+ * When an element has a parse error, the whole input is validated sequentially,
+ * so that the error has the same line, column and offset as JSON#parse.
+ * When the input is not a plain array (for example, it has empty elements or
+ * something after the array), it is parsed sequentially as a List, so that the
+ * result and the error are the same as JSON#parse.
+ */
+final class ParallelArrayParser {
+	static final int PARALLEL_THRESHOLD = 256 * 1024;
+	static final int TASK_SIZE = 64 * 1024;
+
+	private final JSON json;
+	private final Type type;
+	private final Class<?> cls;
+	private final ExecutorService executor;
+	private final int threshold;
+	private final int taskSize;
+
+	ParallelArrayParser(JSON json, Type type, ExecutorService executor, int threshold, int taskSize) {
+		if (type instanceof TypeReference<?>) {
+			type = ((TypeReference<?>)type).getType();
+		}
+
+		this.json = json;
+		this.type = type;
+		this.cls = ClassUtil.getRawType(type);
+		this.executor = executor;
+		this.threshold = threshold;
+		this.taskSize = taskSize;
+	}
+
+	public <T> List<T> parse(CharSequence cs) throws IOException {
+		int[] ranges = (cs.length() >= threshold) ? split(cs, json.getMode() != JSON.Mode.STRICT) : null;
+		if (ranges == null) {
+			return json.parse(cs, new ListType(type));
+		}
+		return decode(new CharSource(cs), ranges);
+	}
+
+	public <T> List<T> parse(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size >= threshold && size <= Integer.MAX_VALUE) {
+				ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				ByteSequence bytes = new ByteSequence(file, buf);
+				int[] ranges = bytes.isUTF8() ? split(bytes, json.getMode() != JSON.Mode.STRICT) : null;
+				if (ranges != null) {
+					return decode(bytes, ranges);
+				}
+			}
+		} finally {
+			raf.close();
+		}
+		return json.parse(file, new ListType(type));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> decode(Source source, int[] ranges) throws IOException {
+		int count = ranges.length / 2;
+		List<Task> tasks = new ArrayList<Task>();
+		int first = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == count - 1 || ranges[i * 2 + 1] - ranges[first * 2] >= taskSize) {
+				tasks.add(new Task(source, ranges, first, i + 1));
+				first = i + 1;
+			}
+		}
+
+		List<Object> result = new ArrayList<Object>(count);
+		if (executor == null || tasks.size() < 2) {
+			for (Task task : tasks) {
+				result.addAll(Arrays.asList(task.call()));
+			}
+			return (List<T>)result;
+		}
+
+		List<Future<Object[]>> futures = new ArrayList<Future<Object[]>>(tasks.size());
+		try {
+			for (Task task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			for (Future<Object[]> future : futures) {
+				result.addAll(Arrays.asList(future.get()));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			if (cause instanceof IOException) throw (IOException)cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			for (Future<Object[]> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return (List<T>)result;
+	}
+
+	/**
+	 * Finds the ranges of the elements at depth 1.
+	 *
+	 * @return start and end offsets of each element, or null if the input is not a plain array.
+	 */
+	static int[] split(CharSequence cs, boolean lenient) {
+		int len = cs.length();
+		int i = skip(cs, 0, lenient);
+		if (i < len && cs.charAt(i) == '\uFEFF') i = skip(cs, i + 1, lenient);
+		if (i >= len || cs.charAt(i) != '[') return null;
+
+		int[] ranges = new int[64];
+		int size = 0;
+
+		i = skip(cs, i + 1, lenient);
+		if (i < len && cs.charAt(i) == ']') {
+			return (skip(cs, i + 1, lenient) == len) ? new int[0] : null;
+		}
+
+		int depth = 1;
+		int start = i;
+		int end = i; // after the last char except whitespaces and comments
+		while (i < len) {
+			char c = cs.charAt(i);
+			switch (c) {
+			case '"':
+			case '\'':
+				if (c == '\'' && !lenient) return null;
+				i = skipString(cs, i);
+				if (i < 0) return null;
+				end = i;
+				continue;
+			case '/':
+				if (!lenient) return null;
+				int next = skipComment(cs, i);
+				if (next < 0) return null;
+				i = next;
+				continue;
+			case '{':
+			case '[':
+				depth++;
+				break;
+			case '}':
+			case ']':
+				depth--;
+				if (depth > 0) break;
+				if (c != ']') return null;
+			case ',':
+				if (depth > 1) break;
+				if (end == start) return null;
+				if (size + 2 > ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2);
+				ranges[size++] = start;
+				ranges[size++] = end;
+				if (c == ']') {
+					return (skip(cs, i + 1, lenient) == len) ? Arrays.copyOf(ranges, size) : null;
+				}
+				i = skip(cs, i + 1, lenient);
+				start = i;
+				end = i;
+				continue;
+			}
+			if (c != ' ' && c != '\t' && c != '\r' && c != '\n') end = i + 1;
+			i++;
+		}
+		return null;
+	}
+
+	static int skipString(CharSequence cs, int i) {
+		int len = cs.length();
+		char quote = cs.charAt(i++);
+		while (i < len) {
+			char c = cs.charAt(i++);
+			if (c == quote) {
+				return i;
+			} else if (c == '\\') {
+				i++;
+			} else if (c == '\n' || c == '\r') {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	static int skipComment(CharSequence cs, int i) {
+		int len = cs.length();
+		if (i + 1 >= len) return -1;
+		char c = cs.charAt(i + 1);
+		if (c == '/') {
+			for (i += 2; i < len; i++) {
+				c = cs.charAt(i);
+				if (c == '\n' || c == '\r') return i;
+			}
+			return len;
+		} else if (c == '*') {
+			for (i += 2; i + 1 < len; i++) {
+				if (cs.charAt(i) == '*' && cs.charAt(i + 1) == '/') return i + 2;
+			}
+		}
+		return -1;
+	}
+
+	static int skip(CharSequence cs, int i, boolean lenient) {
+		int len = cs.length();
+		while (i < len) {
+			char c = cs.charAt(i);
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				i++;
+			} else if (c == '/' && lenient) {
+				int next = skipComment(cs, i);
+				if (next < 0) return i;
+				i = next;
+			} else {
+				break;
+			}
+		}
+		return i;
+	}
+
+	private final class Task implements Callable<Object[]> {
+		private final Source source;
+		private final int[] ranges;
+		private final int first;
+		private final int last;
+
+		Task(Source source, int[] ranges, int first, int last) {
+			this.source = source;
+			this.ranges = ranges;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		public Object[] call() throws IOException {
+			JSON.Context context = json.new Context();
+			Object[] values = new Object[last - first];
+			for (int i = first; i < last; i++) {
+				InputSource in = source.get(ranges[i * 2], ranges[i * 2 + 1]);
+				JSONReader reader = new JSONReader(context, in, false, true);
+				try {
+					reader.next();
+					reader.next();
+					values[i - first] = context.convertInternal(reader, cls, type);
+					reader.next();
+				} catch (JSONException e) {
+					throw relocate(e);
+				}
+			}
+			return values;
+		}
+
+		/**
+		 * Replaces a parse error of an element with the error of the whole input, so that
+		 * it has the same message and position as JSON#parse. The input is validated
+		 * sequentially for this, but only when an element is malformed.
+		 */
+		private JSONException relocate(JSONException e) throws IOException {
+			if (e.getErrorCode() != JSONException.PARSE_ERROR) {
+				return e;
+			}
+
+			InputSource in = source.open();
+			try {
+				new JSONReader(json.new Context(false), in, false, true).validate();
+			} catch (JSONException whole) {
+				return whole;
+			} finally {
+				if (in instanceof Closeable) ((Closeable)in).close();
+			}
+			return e;
+		}
+	}
+
+	private static interface Source {
+		/**
+		 * Returns the range enclosed in brackets.
+		 */
+		InputSource get(int start, int end);
+
+		/**
+		 * Returns the whole input.
+		 */
+		InputSource open() throws IOException;
+	}
+
+	private static final class CharSource implements Source {
+		private final CharSequence cs;
+
+		CharSource(CharSequence cs) {
+			this.cs = cs;
+		}
+
+		@Override
+		public InputSource get(int start, int end) {
+			StringBuilder sb = new StringBuilder(end - start + 2);
+			sb.append('[').append(cs, start, end).append(']');
+			return new StringBuilderInputSource(sb);
+		}
+
+		@Override
+		public InputSource open() {
+			return new CharSequenceInputSource(cs);
+		}
+	}
+
+	/**
+	 * Bytes as a sequence of chars. Multibyte UTF-8 sequences never contain ASCII bytes,
+	 * so structural characters can be found without decoding.
+	 */
+	private static final class ByteSequence implements CharSequence, Source {
+		private final File file;
+		private final ByteBuffer buf;
+
+		ByteSequence(File file, ByteBuffer buf) {
+			if (buf.limit() >= 3 && buf.get(0) == (byte)0xEF && buf.get(1) == (byte)0xBB && buf.get(2) == (byte)0xBF) {
+				buf.position(3);
+				buf = buf.slice();
+			}
+			this.file = file;
+			this.buf = buf;
+		}
+
+		private ByteSequence(ByteBuffer buf) {
+			this.file = null;
+			this.buf = buf;
+		}
+
+		boolean isUTF8() {
+			int len = Math.min(buf.limit(), 4);
+			byte[] check = new byte[len];
+			for (int i = 0; i < len; i++) check[i] = buf.get(i);
+			for (byte b : check) {
+				if (b == 0 || b == (byte)0xFE || b == (byte)0xFF) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public int length() {
+			return buf.limit();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char)(buf.get(index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || start > end || end > buf.limit()) {
+				throw new IndexOutOfBoundsException();
+			}
+			ByteBuffer slice = buf.duplicate();
+			slice.position(start);
+			slice.limit(end);
+			return new ByteSequence(slice.slice());
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[buf.limit()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = charAt(i);
+			}
+			return new String(chars);
+		}
+
+		@Override
+		public InputSource open() throws IOException {
+			return new MappedInputSource(file);
+		}
+
+		@Override
+		public InputSource get(int start, int end) {
+			final ByteBuffer slice = buf.duplicate();
+			slice.position(start);
+			slice.limit(end);
+			return new ReaderInputSource(new InputStream() {
+				private int state = 0; // 0 '[' 1 slice ']' 2 E
+
+				@Override
+				public int read() {
+					if (state == 0) {
+						state = 1;
+						return '[';
+					} else if (state == 1) {
+						if (slice.hasRemaining()) return slice.get() & 0xFF;
+						state = 2;
+						return ']';
+					}
+					return -1;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					if (len == 0) return 0;
+					if (state != 1 || !slice.hasRemaining()) {
+						int c = read();
+						if (c == -1) return -1;
+						b[off] = (byte)c;
+						return 1;
+					}
+					len = Math.min(len, slice.remaining());
+					slice.get(b, off, len);
+					return len;
+				}
+			});
+		}
+	}
+
+	private static final class ListType implements ParameterizedType {
+		private final Type[] args;
+
+		ListType(Type type) {
+			this.args = new Type[] { type };
+		}
+
+		@Override
+		public Type[] getActualTypeArguments() {
+			return args.clone();
+		}
+
+		@Override
+		public Type getRawType() {
+			return List.class;
+		}
+
+		@Override
+		public Type getOwnerType() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.LineInputSource;
+import net.arnx.jsonic.io.ReaderInputSource;
+import net.arnx.jsonic.io.StringInputSource;
+import net.arnx.jsonic.util.ClassUtil;
+
+/**
+ * Decodes JSON Lines on an executor. The calling thread splits the input into chunks
+ * at line breaks, and each chunk is decoded by a task with its own context. At most
+ * maxInFlight chunks are read ahead, so the memory usage is bounded by the chunk size.
+ */
+class ParallelLineIterator<T> extends JSONLineIterator<T> {
+	static final int CHUNK_SIZE = 1024 * 1024;
+
+	private final InputStream stream;
+	private final Reader reader;
+	private final ExecutorService executor;
+	private final ExecutorCompletionService<Chunk> completion;
+	private final int chunkSize;
+	private final int maxInFlight;
+
+	private final LinkedList<Future<Chunk>> futures = new LinkedList<Future<Chunk>>();
+
+	private byte[] bytes;
+	private char[] chars;
+	private int rest = 0;
+	private boolean eof = false;
+	private long lines = 0L;
+
+	private Chunk current;
+	private int index;
+
+	ParallelLineIterator(JSON json, InputStream stream, Reader reader, Type type, Closeable closeable,
+			ExecutorService executor, boolean ordered, int chunkSize, int maxInFlight) {
+		super(json, null, type, closeable);
+		if (executor == null) throw new NullPointerException("executor must not be null");
+		if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+
+		this.stream = stream;
+		this.reader = reader;
+		this.executor = executor;
+		this.completion = ordered ? null : new ExecutorCompletionService<Chunk>(executor);
+		this.chunkSize = chunkSize;
+		this.maxInFlight = maxInFlight;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	boolean fetch() throws IOException {
+		while (true) {
+			if (current != null) {
+				if (index < current.values.size()) {
+					value = (T)current.values.set(index, null);
+					lineNumber = current.lineNumbers[index];
+					index++;
+					return true;
+				}
+
+				RuntimeException error = current.error;
+				current = null;
+				if (error != null) {
+					close();
+					throw error;
+				}
+			}
+
+			while (futures.size() < maxInFlight) {
+				Chunk chunk = (stream != null) ? readBytes() : readChars();
+				if (chunk == null) break;
+				futures.add((completion != null) ? completion.submit(chunk) : executor.submit(chunk));
+			}
+			if (futures.isEmpty()) {
+				return false;
+			}
+
+			current = take();
+			index = 0;
+			malformedLines += current.malformed;
+		}
+	}
+
+	private Chunk take() throws IOException {
+		try {
+			Future<Chunk> future;
+			if (completion != null) {
+				future = completion.take();
+				futures.remove(future);
+			} else {
+				future = futures.removeFirst();
+			}
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			close();
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			if (cause instanceof IOException) throw (IOException)cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private Chunk readBytes() throws IOException {
+		if (eof) return null;
+		if (bytes == null) bytes = new byte[chunkSize];
+
+		byte[] buf = bytes;
+		int len = rest;
+		while (true) {
+			if (len == buf.length) {
+				int last = len - 1;
+				while (last >= 0 && buf[last] != '\n') last--;
+				if (last >= 0) {
+					bytes = new byte[Math.max(chunkSize, len - last - 1)];
+					rest = len - last - 1;
+					System.arraycopy(buf, last + 1, bytes, 0, rest);
+					len = last + 1;
+					break;
+				}
+
+				byte[] nbuf = new byte[buf.length * 2];
+				System.arraycopy(buf, 0, nbuf, 0, len);
+				buf = nbuf;
+			}
+
+			int n = stream.read(buf, len, buf.length - len);
+			if (n == -1) {
+				eof = true;
+				bytes = null;
+				if (len == 0) return null;
+				break;
+			}
+			len += n;
+		}
+
+		long first = lines;
+		for (int i = 0; i < len; i++) {
+			if (buf[i] == '\n') lines++;
+		}
+		return new Chunk(new ReaderInputSource(new ByteArrayInputStream(buf, 0, len)), first);
+	}
+
+	private Chunk readChars() throws IOException {
+		if (eof) return null;
+		if (chars == null) chars = new char[chunkSize];
+
+		char[] buf = chars;
+		int len = rest;
+		while (true) {
+			if (len == buf.length) {
+				int last = len - 1;
+				while (last >= 0 && buf[last] != '\n') last--;
+				if (last >= 0) {
+					chars = new char[Math.max(chunkSize, len - last - 1)];
+					rest = len - last - 1;
+					System.arraycopy(buf, last + 1, chars, 0, rest);
+					len = last + 1;
+					break;
+				}
+
+				char[] nbuf = new char[buf.length * 2];
+				System.arraycopy(buf, 0, nbuf, 0, len);
+				buf = nbuf;
+			}
+
+			int n = reader.read(buf, len, buf.length - len);
+			if (n == -1) {
+				eof = true;
+				chars = null;
+				if (len == 0) return null;
+				break;
+			}
+			len += n;
+		}
+
+		long first = lines;
+		for (int i = 0; i < len; i++) {
+			if (buf[i] == '\n') lines++;
+		}
+		return new Chunk(new StringInputSource(new String(buf, 0, len)), first);
+	}
+
+	/**
+	 * Cancels the chunks in flight, and closes the file opened by JSON.
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Iterator<Future<Chunk>> i = futures.iterator(); i.hasNext(); ) {
+			i.next().cancel(true);
+			i.remove();
+		}
+		current = null;
+		eof = true;
+		bytes = null;
+		chars = null;
+		super.close();
+	}
+
+	private final class Chunk implements Callable<Chunk> {
+		private final InputSource source;
+		private final long firstLine;
+		private final boolean skipMalformedLines;
+
+		final List<Object> values = new ArrayList<Object>();
+		long[] lineNumbers = new long[64];
+		long malformed = 0L;
+		RuntimeException error;
+
+		Chunk(InputSource source, long firstLine) {
+			this.source = source;
+			this.firstLine = firstLine;
+			this.skipMalformedLines = isSkipMalformedLines();
+		}
+
+		@Override
+		public Chunk call() throws IOException {
+			JSON.Context context = json.new Context();
+			LineInputSource in = new LineInputSource(source, firstLine);
+			Class<?> cls = ClassUtil.getRawType(type);
+
+			while (in.nextLine()) {
+				if (isBlankLine(in)) {
+					continue;
+				}
+
+				try {
+					Object value = decodeLine(context, in, cls, type);
+					if (values.size() == lineNumbers.length) {
+						long[] nlineNumbers = new long[lineNumbers.length * 2];
+						System.arraycopy(lineNumbers, 0, nlineNumbers, 0, lineNumbers.length);
+						lineNumbers = nlineNumbers;
+					}
+					lineNumbers[values.size()] = in.getLineNumber();
+					values.add(value);
+				} catch (JSONException e) {
+					if (!skipMalformedLines) {
+						error = e;
+						break;
+					}
+					malformed++;
+					context = json.new Context();
+				}
+			}
+			return this;
+		}
+	}
+}
@@ -17,8 +17,9 @@ package net.arnx.jsonic.io;
 
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.Writer;
 
-public class AppendableOutputSource implements OutputSource {
+public class AppendableOutputSource implements CharArrayOutputSource {
 	private final Appendable ap;
 	
 	public AppendableOutputSource(Appendable ap) {
@@ -35,6 +36,17 @@ public class AppendableOutputSource implements OutputSource {
 		ap.append(text, start, end);
 	}
 	
+	@Override
+	public void append(char[] cbuf, int start, int end) throws IOException {
+		if (ap instanceof Writer) {
+			((Writer)ap).write(cbuf, start, end - start);
+		} else {
+			for (int i = start; i < end; i++) {
+				ap.append(cbuf[i]);
+			}
+		}
+	}
+	
 	@Override
 	public void append(char c) throws IOException {
 		ap.append(c);
@@ -0,0 +1,27 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.io.IOException;
+
+/**
+ * An output source which appends a range of a char array without creating a string.
+ * This is an optional fast path for the formatters of jsonic; other output sources
+ * receive the same range as a string.
+ */
+public interface CharArrayOutputSource extends OutputSource {
+	public void append(char[] cbuf, int start, int end) throws IOException;
+}
@@ -15,7 +15,9 @@
  */
 package net.arnx.jsonic.io;
 
-public class CharSequenceInputSource implements InputSource {
+import net.arnx.jsonic.util.SymbolTable;
+
+public class CharSequenceInputSource implements SymbolInputSource {
 	private int lines = 1;
 	private int columns = 0;
 	private int offset = 0;
@@ -94,6 +96,14 @@ public class CharSequenceInputSource implements InputSource {
 		return String.valueOf(array);
 	}
 	
+	@Override
+	public String copy(int len, SymbolTable symbols) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > cs.length()) throw new IndexOutOfBoundsException();
+		
+		return symbols.get(cs, mark, mark + len);
+	}
+	
 	@Override
 	public long getLineNumber() {
 		return lines;
@@ -0,0 +1,75 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.io.IOException;
+
+/**
+ * Counts chars which are appended to the underlying output source.
+ */
+public class CountingOutputSource implements CharArrayOutputSource {
+	private final OutputSource out;
+	private long count = 0L;
+
+	public CountingOutputSource(OutputSource out) {
+		this.out = out;
+	}
+
+	@Override
+	public void append(String text) throws IOException {
+		out.append(text);
+		count += text.length();
+	}
+
+	@Override
+	public void append(String text, int start, int end) throws IOException {
+		out.append(text, start, end);
+		count += end - start;
+	}
+
+	@Override
+	public void append(char[] cbuf, int start, int end) throws IOException {
+		if (out instanceof CharArrayOutputSource) {
+			((CharArrayOutputSource)out).append(cbuf, start, end);
+		} else {
+			out.append(String.valueOf(cbuf, start, end - start));
+		}
+		count += end - start;
+	}
+
+	@Override
+	public void append(char c) throws IOException {
+		out.append(c);
+		count++;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Returns the number of chars which are appended.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return out.toString();
+	}
+}
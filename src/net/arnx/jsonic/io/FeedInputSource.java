@@ -0,0 +1,319 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.nio.ByteBuffer;
+
+import net.arnx.jsonic.util.SymbolTable;
+
+/**
+ * An input source which is fed with chunks of data instead of reading from a stream.
+ *
+ * When the fed data runs out before {@link #endOfInput()} is called, {@link #next()}
+ * throws {@link NeedMoreInputException}. A reader sets a checkpoint before each token
+ * and rolls back to it on the exception, so that the token is read again from the
+ * beginning when more data is fed. To keep long tokens which span many chunks from
+ * being read again for each chunk, the reader can {@link #await(int)} the char which
+ * may end the token. Bytes are decoded as UTF-8, and an incomplete
+ * byte sequence at the end of a chunk is kept until the next chunk.
+ */
+public class FeedInputSource implements SymbolInputSource {
+	private static int BACK = 20;
+
+	private long lines = 1L;
+	private long columns = 0L;
+	private long offset = 0L;
+
+	private char[] buf = new char[1024];
+	private int start = 0;
+	private int end = 0;
+	private int mark = -1;
+	private boolean eof = false;
+
+	private UTF8Decoder decoder;
+
+	private int checkpoint = 0;
+	private long checkpointLines = 1L;
+	private long checkpointColumns = 0L;
+	private long checkpointOffset = 0L;
+
+	private int awaitChar = -1;
+	private int awaitPos = 0;
+
+	public FeedInputSource() {
+	}
+
+	/**
+	 * Appends chars to the input.
+	 *
+	 * @param cbuf the chars
+	 * @param off the start offset of the chars
+	 * @param len the length of the chars
+	 */
+	public void feed(char[] cbuf, int off, int len) {
+		if (off < 0 || len < 0 || off + len > cbuf.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (eof) {
+			throw new IllegalStateException("input is already ended");
+		}
+		if (decoder != null && decoder.end > decoder.start) {
+			throw new IllegalStateException("incomplete byte sequence");
+		}
+
+		ensure(len);
+		System.arraycopy(cbuf, off, buf, end, len);
+		end += len;
+	}
+
+	/**
+	 * Appends UTF-8 bytes to the input. All remaining bytes of the buffer are consumed.
+	 *
+	 * @param src the bytes
+	 */
+	public void feed(ByteBuffer src) {
+		if (eof) {
+			throw new IllegalStateException("input is already ended");
+		}
+		if (decoder == null) {
+			decoder = new UTF8Decoder(1024);
+		}
+
+		do {
+			int free = decoder.compact();
+			int n = Math.min(free, src.remaining());
+			src.get(decoder.bytes, decoder.end, n);
+			decoder.end += n;
+			decode();
+		} while (src.hasRemaining());
+	}
+
+	/**
+	 * Marks the end of input. After that, {@link #next()} returns -1 at the end of data.
+	 */
+	public void endOfInput() {
+		if (eof) {
+			return;
+		}
+		if (decoder != null) {
+			decoder.eof = true;
+			decode();
+		}
+		eof = true;
+	}
+
+	public boolean isEndOfInput() {
+		return eof;
+	}
+
+	private void decode() {
+		int size;
+		do {
+			ensure(Math.max(decoder.end - decoder.start, 2));
+			size = decoder.decode(buf, end, buf.length - end, null);
+			end += size;
+		} while (size > 0 && decoder.end > decoder.start);
+	}
+
+	private void ensure(int len) {
+		if (end + len <= buf.length) {
+			return;
+		}
+
+		// keeps some chars before the checkpoint for back() and error messages
+		int head = Math.max(Math.min(checkpoint, start) - BACK, 0);
+		if (head > 0) {
+			System.arraycopy(buf, head, buf, 0, end - head);
+			start -= head;
+			end -= head;
+			checkpoint -= head;
+			awaitPos -= head;
+			mark = -1;
+		}
+
+		if (end + len > buf.length) {
+			char[] nbuf = new char[Math.max(buf.length * 2, end + len)];
+			System.arraycopy(buf, 0, nbuf, 0, end);
+			buf = nbuf;
+		}
+	}
+
+	/**
+	 * Records the current position. It is restored by {@link #rollback()}.
+	 */
+	public void checkpoint() {
+		checkpoint = start;
+		checkpointLines = lines;
+		checkpointColumns = columns;
+		checkpointOffset = offset;
+	}
+
+	/**
+	 * Records that the current token can not end until the specified char is fed.
+	 * It must be called before {@link #rollback()} when the data runs out.
+	 *
+	 * @param c the char which may end the current token
+	 */
+	public void await(int c) {
+		awaitChar = c;
+		awaitPos = Math.min(start, end);
+	}
+
+	/**
+	 * Checks whether the char specified by {@link #await(int)} is not fed yet.
+	 * Each fed char is examined only once.
+	 *
+	 * @return true if reading the current token again is useless
+	 */
+	public boolean isAwaiting() {
+		if (awaitChar == -1) {
+			return false;
+		}
+
+		if (!eof) {
+			for (int i = awaitPos; i < end; i++) {
+				if (buf[i] == awaitChar) {
+					awaitChar = -1;
+					return false;
+				}
+			}
+			awaitPos = end;
+			return true;
+		}
+
+		awaitChar = -1;
+		return false;
+	}
+
+	/**
+	 * Restores the position recorded by {@link #checkpoint()}.
+	 */
+	public void rollback() {
+		start = checkpoint;
+		lines = checkpointLines;
+		columns = checkpointColumns;
+		offset = checkpointOffset;
+		mark = -1;
+	}
+
+	@Override
+	public int next() throws NeedMoreInputException {
+		if (start >= end) {
+			if (!eof) {
+				throw NeedMoreInputException.INSTANCE;
+			}
+			start++;
+			return -1;
+		}
+
+		int n = buf[start++];
+		offset++;
+		if (n == '\r') {
+			lines++;
+			columns = 0;
+		} else if (n == '\n') {
+			if (start < 2 || buf[start-2] != '\r') {
+				lines++;
+				columns = 0;
+			}
+		} else {
+			columns++;
+		}
+		return n;
+	}
+
+	@Override
+	public void back() {
+		if (start == 0) {
+			throw new IllegalStateException("no backup charcter");
+		}
+		start--;
+		if (start < end) {
+			offset--;
+			columns--;
+		}
+	}
+
+	@Override
+	public int mark() throws NeedMoreInputException {
+		if (start >= end) {
+			if (!eof) {
+				throw NeedMoreInputException.INSTANCE;
+			}
+			mark = -1;
+			return 0;
+		}
+
+		mark = start;
+		return end - mark;
+	}
+
+	@Override
+	public void copy(StringBuilder sb, int len) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end) throw new IndexOutOfBoundsException();
+
+		sb.append(buf, mark, len);
+	}
+
+	@Override
+	public String copy(int len) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end) throw new IndexOutOfBoundsException();
+
+		return String.valueOf(buf, mark, len);
+	}
+
+	@Override
+	public String copy(int len, SymbolTable symbols) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end) throw new IndexOutOfBoundsException();
+
+		return symbols.get(buf, mark, mark + len);
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lines;
+	}
+
+	@Override
+	public long getColumnNumber() {
+		return columns;
+	}
+
+	@Override
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public String toString() {
+		int spos = 0;
+		int max = Math.min(start-1, end-1);
+		int charCount = 0;
+		for (int i = 0; i < max + 1 && i < BACK; i++) {
+			char c = buf[max-i];
+			if (c == '\r' || (c == '\n' && (max-i-1 < 0 || buf[max-i-1] != '\r'))) {
+				if (charCount > 0) break;
+			} else if (c != '\n') {
+				spos = max-i;
+				charCount++;
+			}
+		}
+		return (spos <= max) ? String.valueOf(buf, spos, max - spos + 1) : "";
+	}
+}
@@ -0,0 +1,162 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.io.IOException;
+
+import net.arnx.jsonic.util.SymbolTable;
+
+/**
+ * Reads an input source line by line. The current line is read into a buffer,
+ * its line break is reported as the end of input, and {@link #nextLine()} moves
+ * to the next line.
+ */
+public class LineInputSource implements SymbolInputSource {
+	private final InputSource in;
+
+	private long lines = 0L;
+	private long offset = 0L;
+
+	private char[] buf = new char[256];
+	private int start = 0;
+	private int end = 0;
+	private int mark = -1;
+	private boolean started = false;
+	private boolean eof = false;
+
+	public LineInputSource(InputSource in) {
+		this(in, 0L);
+	}
+
+	/**
+	 * @param in the input source
+	 * @param lineNumber the line number before the first line of the input source
+	 */
+	public LineInputSource(InputSource in, long lineNumber) {
+		if (in == null) throw new NullPointerException();
+		this.in = in;
+		this.lines = lineNumber;
+	}
+
+	/**
+	 * Moves to the next line. The rest of the current line is skipped.
+	 *
+	 * @return false if the input is ended.
+	 * @throws IOException if I/O error occurred.
+	 */
+	public boolean nextLine() throws IOException {
+		if (eof) {
+			return false;
+		}
+
+		if (started) {
+			offset += end + 1;
+		}
+		started = true;
+		start = 0;
+		end = 0;
+		mark = -1;
+
+		int n;
+		while ((n = in.next()) != '\n') {
+			if (n == -1) {
+				eof = true;
+				if (end == 0) return false;
+				break;
+			}
+			if (end == buf.length) {
+				char[] nbuf = new char[buf.length * 2];
+				System.arraycopy(buf, 0, nbuf, 0, end);
+				buf = nbuf;
+			}
+			buf[end++] = (char)n;
+		}
+		lines++;
+		return true;
+	}
+
+	@Override
+	public int next() {
+		if (start < end) {
+			return buf[start++];
+		}
+		start++;
+		return -1;
+	}
+
+	@Override
+	public void back() {
+		if (start == 0) {
+			throw new IllegalStateException("no backup charcter");
+		}
+		start--;
+	}
+
+	/**
+	 * Returns the number of the current line, which counts only '\n' as a line break.
+	 */
+	@Override
+	public long getLineNumber() {
+		return lines;
+	}
+
+	@Override
+	public long getColumnNumber() {
+		return Math.min(start, end);
+	}
+
+	@Override
+	public long getOffset() {
+		return offset + Math.min(start, end);
+	}
+
+	@Override
+	public int mark() {
+		mark = start;
+		return Math.max(end - mark, 0);
+	}
+
+	@Override
+	public void copy(StringBuilder sb, int len) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end) throw new IndexOutOfBoundsException();
+
+		sb.append(buf, mark, len);
+	}
+
+	@Override
+	public String copy(int len) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end) throw new IndexOutOfBoundsException();
+
+		return String.valueOf(buf, mark, len);
+	}
+
+	@Override
+	public String copy(int len, SymbolTable symbols) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end) throw new IndexOutOfBoundsException();
+
+		return symbols.get(buf, mark, mark + len);
+	}
+
+	@Override
+	public String toString() {
+		int max = Math.min(start, end);
+		int spos = Math.max(max - 20, 0);
+		return String.valueOf(buf, spos, max - spos);
+	}
+}
@@ -0,0 +1,311 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.arnx.jsonic.util.SymbolTable;
+
+/**
+ * InputSource reading a file through memory-mapped windows.
+ * Files larger than the window size are remapped window by window,
+ * and the file is closed when the last window is mapped.
+ * UTF-8 bytes are copied from the window into a small buffer of the decoder
+ * (8KB at a time) with a bulk get and decoded there, so the file is never read
+ * through a stream, but it is not decoded in place either.
+ * getOffset() returns the absolute byte position in the file.
+ */
+public class MappedInputSource implements SymbolInputSource, Closeable {
+	private static int BACK = 20;
+	private static final long WINDOW_SIZE = 1L << 30;
+
+	private long lines = 1L;
+	private long columns = 0L;
+	private long offset = 0L;
+
+	private FileChannel channel;
+	private final long size;
+	private final long windowSize;
+	private MappedByteBuffer window;
+	private long windowEnd = 0L;
+
+	private UTF8Decoder decoder;
+	private Reader reader;
+	private int unitSize;
+
+	private final char[] buf = new char[1024];
+	private final byte[] widths = new byte[1024];
+	private int back = BACK;
+	private int start = BACK;
+	private int end = BACK - 1;
+	private int mark = -1;
+
+	public MappedInputSource(File file) throws IOException {
+		this(file, WINDOW_SIZE);
+	}
+
+	MappedInputSource(File file, long windowSize) throws IOException {
+		if (file == null) throw new NullPointerException();
+		if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) throw new IllegalArgumentException();
+
+		this.channel = new RandomAccessFile(file, "r").getChannel();
+		this.windowSize = windowSize;
+		try {
+			this.size = channel.size();
+			map();
+		} catch (IOException e) {
+			closeChannel();
+			throw e;
+		}
+
+		byte[] check = new byte[4];
+		int len = 0;
+		if (window != null) {
+			len = Math.min(check.length, window.remaining());
+			for (int i = 0; i < len; i++) {
+				check[i] = window.get(i);
+			}
+		}
+
+		String encoding = ReaderInputSource.determineEncoding(check, len);
+		if ("UTF-8".equals(encoding)) {
+			decoder = new UTF8Decoder(8192);
+		} else {
+			reader = new InputStreamReader(new InputStream() {
+				@Override
+				public int read() throws IOException {
+					byte[] b = new byte[1];
+					return (readBytes(b, 0, 1) == -1) ? -1 : (b[0] & 0xFF);
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					return readBytes(b, off, len);
+				}
+			}, encoding);
+			unitSize = encoding.startsWith("UTF-32") ? 4 : 2;
+		}
+	}
+
+	@Override
+	public int next() throws IOException {
+		int n = -1;
+		if ((n = get()) != -1) {
+			offset += widths[start-1];
+			if (n == '\r') {
+				lines++;
+				columns = 0;
+			} else if (n == '\n') {
+				if (start < 2 || buf[start-2] != '\r') {
+					lines++;
+					columns = 0;
+				}
+			} else {
+				columns++;
+			}
+		}
+		return n;
+	}
+
+	private int get() throws IOException {
+		if (start > end) {
+			if (end > BACK) {
+				int len = Math.min(BACK, end - BACK  + 1);
+				System.arraycopy(buf, end + 1 - len, buf, BACK - len, len);
+				System.arraycopy(widths, end + 1 - len, widths, BACK - len, len);
+				back = BACK - len;
+			}
+			int size = (reader != null) ? read(buf, BACK, buf.length-BACK) : decode(buf, BACK, buf.length-BACK);
+			if (size != -1) {
+				mark = (mark > end - BACK) ? BACK - (end - mark + 1) : -1;
+				start = BACK;
+				end = BACK + size - 1;
+			} else {
+				start++;
+				return -1;
+			}
+		}
+		return buf[start++];
+	}
+
+	private int decode(char[] cbuf, int off, int len) throws IOException {
+		int size = decoder.decode(cbuf, off, len, widths);
+		while (size < len && !decoder.eof) {
+			int free = decoder.compact();
+			int n = readBytes(decoder.bytes, decoder.end, free);
+			if (n == -1) {
+				decoder.eof = true;
+			} else {
+				decoder.end += n;
+			}
+			size += decoder.decode(cbuf, off + size, len - size, widths);
+		}
+		return (size > 0) ? size : -1;
+	}
+
+	private int read(char[] cbuf, int off, int len) throws IOException {
+		int size = 0;
+		while (size < len) {
+			int n = reader.read(cbuf, off + size, len - size);
+			if (n == -1) break;
+			size += n;
+		}
+		for (int i = off; i < off + size; i++) {
+			char c = cbuf[i];
+			widths[i] = (byte)((unitSize == 4 && c >= '\uDC00' && c <= '\uDFFF') ? 0 : unitSize);
+		}
+		return (size > 0) ? size : -1;
+	}
+
+	private int readBytes(byte[] b, int off, int len) throws IOException {
+		while (window == null || !window.hasRemaining()) {
+			if (windowEnd >= size) {
+				closeChannel();
+				return -1;
+			}
+			map();
+		}
+
+		int n = Math.min(len, window.remaining());
+		window.get(b, off, n);
+		return n;
+	}
+
+	private void map() throws IOException {
+		long len = Math.min(windowSize, size - windowEnd);
+		if (len > 0) {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, len);
+			windowEnd += len;
+		}
+		if (windowEnd >= size) {
+			closeChannel();
+		}
+	}
+
+	@Override
+	public void back() {
+		if (start <= back) {
+			throw new IllegalStateException("no backup charcter");
+		}
+		start--;
+		if (start <= end) {
+			offset -= widths[start];
+			columns--;
+		}
+	}
+
+	@Override
+	public int mark() throws IOException {
+		if (start > end) {
+			int c = get();
+			back();
+			if (c == -1) {
+				mark = -1;
+				return 0;
+			}
+		}
+
+		mark = start;
+		return end - mark + 1;
+	}
+
+	@Override
+	public void copy(StringBuilder sb, int len) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end + 1) throw new IndexOutOfBoundsException();
+
+		sb.append(buf, mark, len);
+	}
+
+	@Override
+	public String copy(int len) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end + 1) throw new IndexOutOfBoundsException();
+
+		return String.valueOf(buf, mark, len);
+	}
+
+	@Override
+	public String copy(int len, SymbolTable symbols) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end + 1) throw new IndexOutOfBoundsException();
+
+		return symbols.get(buf, mark, mark + len);
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lines;
+	}
+
+	@Override
+	public long getColumnNumber() {
+		return columns;
+	}
+
+	@Override
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Closes the file and releases the mapped window. After that, no more bytes are read
+	 * and the input ends after the chars which are already decoded.
+	 */
+	@Override
+	public void close() throws IOException {
+		window = null;
+		windowEnd = size;
+		if (decoder != null) {
+			decoder.start = decoder.end;
+			decoder.eof = true;
+		}
+		closeChannel();
+	}
+
+	private void closeChannel() throws IOException {
+		if (channel != null) {
+			FileChannel current = channel;
+			channel = null;
+			current.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		int spos = back;
+		int max = Math.min(start-1, end);
+		int charCount = 0;
+		for (int i = 0; i < max + 1 - back && i < BACK; i++) {
+			char c = buf[max-i];
+			if (c == '\r' || (c == '\n' && (max-i-1 < 0 || buf[max-i-1] != '\r'))) {
+				if (charCount > 0) break;
+			} else if (c != '\n') {
+				spos = max-i;
+				charCount++;
+			}
+		}
+		return (spos <= max) ? String.valueOf(buf, spos, max - spos + 1) : "";
+	}
+}
@@ -0,0 +1,39 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.io.IOException;
+
+/**
+ * Signals that an input source has no more data for now, but the end of input
+ * is not reached yet.
+ *
+ * The instance is shared and has no stack trace, since it is thrown on every chunk boundary.
+ */
+public final class NeedMoreInputException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	static final NeedMoreInputException INSTANCE = new NeedMoreInputException();
+
+	private NeedMoreInputException() {
+		super("need more input");
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
@@ -21,7 +21,9 @@ import java.io.InputStreamReader;
 import java.io.PushbackInputStream;
 import java.io.Reader;
 
-public class ReaderInputSource implements InputSource {
+import net.arnx.jsonic.util.SymbolTable;
+
+public class ReaderInputSource implements SymbolInputSource {
 	private static int BACK = 20;
 	
 	private long lines = 1L;
@@ -31,6 +33,8 @@ public class ReaderInputSource implements InputSource {
 	private InputStream in;
 	private Reader reader;
 	private final char[] buf = new char[1024];
+
+	private UTF8Decoder decoder;
 	private int back = BACK;
 	private int start = BACK;
 	private int end = BACK - 1;
@@ -73,12 +77,17 @@ public class ReaderInputSource implements InputSource {
 				System.arraycopy(buf, end + 1 - len, buf, BACK - len, len);
 				back = BACK - len;
 			}
-			if (in != null) {
+			if (in != null && decoder == null) {
 				if (!in.markSupported()) in = new PushbackInputStream(in, 4);
-				this.reader = new InputStreamReader(in, determineEncoding(in));
-				this.in = null;
+				String encoding = determineEncoding(in);
+				if ("UTF-8".equals(encoding)) {
+					decoder = new UTF8Decoder(1024);
+				} else {
+					this.reader = new InputStreamReader(in, encoding);
+					this.in = null;
+				}
 			}
-			int size = reader.read(buf, BACK, buf.length-BACK);
+			int size = (reader != null) ? reader.read(buf, BACK, buf.length-BACK) : decode(buf, BACK, buf.length-BACK);
 			if (size != -1) {
 				mark = (mark > end - BACK) ? BACK - (end - mark + 1) : -1;
 				start = BACK;
@@ -91,6 +100,21 @@ public class ReaderInputSource implements InputSource {
 		return buf[start++];
 	}
 	
+	private int decode(char[] cbuf, int off, int len) throws IOException {
+		int size = decoder.decode(cbuf, off, len, null);
+		while (size == 0 && !decoder.eof) {
+			int free = decoder.compact();
+			int n = in.read(decoder.bytes, decoder.end, free);
+			if (n == -1) {
+				decoder.eof = true;
+			} else {
+				decoder.end += n;
+			}
+			size = decoder.decode(cbuf, off, len, null);
+		}
+		return (size > 0) ? size : -1;
+	}
+
 	@Override
 	public void back() {
 		if (start <= back) {
@@ -134,6 +158,14 @@ public class ReaderInputSource implements InputSource {
 		return String.valueOf(buf, mark, len);
 	}
 	
+	@Override
+	public String copy(int len, SymbolTable symbols) {
+		if (mark == -1) throw new IllegalStateException("no mark");
+		if (mark + len > end + 1) throw new IndexOutOfBoundsException();
+		
+		return symbols.get(buf, mark, mark + len);
+	}
+	
 	@Override
 	public long getLineNumber() {
 		return lines;
@@ -150,13 +182,22 @@ public class ReaderInputSource implements InputSource {
 	}
 	
 	private static String determineEncoding(InputStream in) throws IOException {
-		String encoding = "UTF-8";
-
 		if (in.markSupported()) {
 			in.mark(4);
 		}
 		byte[] check = new byte[4];
 		int size = in.read(check);
+		String encoding = determineEncoding(check, size);
+		if (in.markSupported()) {
+			in.reset();
+		} else {
+			((PushbackInputStream)in).unread(check, 0, size);
+		}
+		return encoding;
+	}
+
+	static String determineEncoding(byte[] check, int size) {
+		String encoding = "UTF-8";
 		if (size == 2) {
 			if (((check[0] & 0xFF) == 0x00 && (check[1] & 0xFF) != 0x00) 
 					|| ((check[0] & 0xFF) == 0xFE && (check[1] & 0xFF) == 0xFF)) {
@@ -178,11 +219,6 @@ public class ReaderInputSource implements InputSource {
 				encoding = "UTF-16LE";
 			}
 		}
-		if (in.markSupported()) {
-			in.reset();
-		} else {
-			((PushbackInputStream)in).unread(check, 0, size);
-		}
 		return encoding;
 	}
 	
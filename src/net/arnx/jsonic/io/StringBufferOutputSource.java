@@ -15,7 +15,7 @@
  */
 package net.arnx.jsonic.io;
 
-public class StringBufferOutputSource implements OutputSource {
+public class StringBufferOutputSource implements CharArrayOutputSource {
 	private final StringBuffer sb;
 
 	public StringBufferOutputSource(int size) {
@@ -36,6 +36,11 @@ public class StringBufferOutputSource implements OutputSource {
 		sb.append(text, start, end);
 	}
 
+	@Override
+	public void append(char[] cbuf, int start, int end) {
+		sb.append(cbuf, start, end - start);
+	}
+
 	@Override
 	public void append(char c) {
 		sb.append(c);
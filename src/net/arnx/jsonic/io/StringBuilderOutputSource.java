@@ -15,7 +15,7 @@
  */
 package net.arnx.jsonic.io;
 
-public class StringBuilderOutputSource implements OutputSource {
+public class StringBuilderOutputSource implements CharArrayOutputSource {
 	private final StringBuilder sb;
 
 	public StringBuilderOutputSource(int size) {
@@ -36,6 +36,11 @@ public class StringBuilderOutputSource implements OutputSource {
 		sb.append(text, start, end);
 	}
 
+	@Override
+	public void append(char[] cbuf, int start, int end) {
+		sb.append(cbuf, start, end - start);
+	}
+
 	@Override
 	public void append(char c) {
 		sb.append(c);
@@ -0,0 +1,27 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import net.arnx.jsonic.util.SymbolTable;
+
+/**
+ * An input source which looks up a range from the mark in a symbol table without
+ * creating a temporary string. This is an optional fast path for the parser of jsonic;
+ * other input sources are copied into a buffer first.
+ */
+public interface SymbolInputSource extends InputSource {
+	String copy(int len, SymbolTable symbols);
+}
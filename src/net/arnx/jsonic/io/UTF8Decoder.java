@@ -0,0 +1,179 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.util.Arrays;
+
+/**
+ * Decodes UTF-8 bytes into chars without CharsetDecoder.
+ * Runs of ASCII bytes are copied directly. A malformed sequence is replaced by one
+ * U+FFFD for the same bytes as the REPLACE action of the UTF-8 CharsetDecoder, so the
+ * result is equal to InputStreamReader.
+ */
+final class UTF8Decoder {
+	final byte[] bytes;
+	int start = 0;
+	int end = 0;
+	boolean eof = false;
+
+	private int pending = -1;
+
+	UTF8Decoder(int size) {
+		bytes = new byte[size];
+	}
+
+	/**
+	 * Moves the rest bytes to the head of the buffer.
+	 *
+	 * @return the free space after the rest bytes
+	 */
+	int compact() {
+		int rest = end - start;
+		if (rest > 0 && start > 0) System.arraycopy(bytes, start, bytes, 0, rest);
+		start = 0;
+		end = rest;
+		return bytes.length - end;
+	}
+
+	/**
+	 * Decodes bytes until the destination is full or more bytes are needed.
+	 *
+	 * @param cbuf the destination
+	 * @param off the offset of the destination
+	 * @param len the maximum length to decode
+	 * @param widths if not null, receives the byte length of each decoded char.
+	 *   The second char of a surrogate pair has the length 0.
+	 * @return the count of decoded chars
+	 */
+	int decode(char[] cbuf, int off, int len, byte[] widths) {
+		int pos = off;
+		int limit = off + len;
+
+		if (pending != -1 && pos < limit) {
+			if (widths != null) widths[pos] = 0;
+			cbuf[pos++] = (char)pending;
+			pending = -1;
+		}
+
+		while (pos < limit) {
+			int avail = end - start;
+			if (avail == 0 || (!eof && avail < sequenceLength(bytes[start]))) {
+				break;
+			}
+
+			// fast path for ASCII
+			int b = bytes[start];
+			if (b >= 0) {
+				int first = pos;
+				int max = Math.min(start + (limit - pos), end);
+				do {
+					cbuf[pos++] = (char)b;
+					if (++start >= max) break;
+					b = bytes[start];
+				} while (b >= 0);
+				if (widths != null) Arrays.fill(widths, first, pos, (byte)1);
+				continue;
+			}
+
+			int n = sequenceLength(b);
+			int c = -1;
+			int bad = 1;
+			if (n > 1) {
+				bad = malformedLength(b, avail, n);
+				if (bad == 0) {
+					int b1 = bytes[start + 1];
+					if (n == 2) {
+						c = ((b & 0x1F) << 6) | (b1 & 0x3F);
+					} else if (n == 3) {
+						c = ((b & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (bytes[start + 2] & 0x3F);
+						// an encoded surrogate is replaced as a whole
+						if (c >= 0xD800 && c <= 0xDFFF) {
+							c = -1;
+							bad = 3;
+						}
+					} else {
+						c = ((b & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((bytes[start + 2] & 0x3F) << 6) | (bytes[start + 3] & 0x3F);
+					}
+				}
+			}
+
+			if (c == -1) {
+				if (widths != null) widths[pos] = (byte)bad;
+				cbuf[pos++] = '\uFFFD';
+				start += bad;
+			} else if (c < 0x10000) {
+				if (widths != null) widths[pos] = (byte)n;
+				cbuf[pos++] = (char)c;
+				start += n;
+			} else {
+				c -= 0x10000;
+				if (widths != null) widths[pos] = 4;
+				cbuf[pos++] = (char)(0xD800 | (c >>> 10));
+				if (pos < limit) {
+					if (widths != null) widths[pos] = 0;
+					cbuf[pos++] = (char)(0xDC00 | (c & 0x3FF));
+				} else {
+					pending = 0xDC00 | (c & 0x3FF);
+				}
+				start += 4;
+			}
+		}
+
+		return pos - off;
+	}
+
+	/**
+	 * Checks the sequence at the start, which is expected to have n bytes.
+	 *
+	 * @return 0 if the sequence is well-formed, or the count of bytes replaced by one U+FFFD.
+	 *   A sequence truncated by the end of input is replaced as a whole.
+	 */
+	private int malformedLength(int b, int avail, int n) {
+		if (avail < 2) return avail;
+		int b1 = bytes[start + 1] & 0xFF;
+		if ((b1 & 0xC0) != 0x80) return 1;
+		if (n == 2) return 0;
+
+		switch (b & 0xFF) {
+		case 0xE0:
+			if (b1 < 0xA0) return 1;
+			break;
+		case 0xF0:
+			if (b1 < 0x90) return 1;
+			break;
+		case 0xF4:
+			if (b1 > 0x8F) return 1;
+			break;
+		}
+
+		if (avail < 3) return avail;
+		if ((bytes[start + 2] & 0xC0) != 0x80) return 2;
+		if (n == 3) return 0;
+
+		if (avail < 4) return avail;
+		if ((bytes[start + 3] & 0xC0) != 0x80) return 3;
+		return 0;
+	}
+
+	private static int sequenceLength(int b) {
+		if (b >= 0) return 1;
+		b &= 0xFF;
+		if (b >= 0xC2 && b <= 0xDF) return 2;
+		if (b >= 0xE0 && b <= 0xEF) return 3;
+		if (b >= 0xF0 && b <= 0xF4) return 4;
+		return 1;
+	}
+}
@@ -0,0 +1,174 @@
+/* 
+ * Copyright 2014 Hidekatsu Izuno
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes chars as UTF-8 into a byte buffer.
+ *
+ * When an OutputStream is given, the buffer is written to it on overflow and flush.
+ * Otherwise the buffer grows and the result is available from {@link #toByteArray()}.
+ * Unpaired surrogates are replaced with '?', as OutputStreamWriter does.
+ */
+public class UTF8OutputSource implements CharArrayOutputSource {
+	private final OutputStream out;
+
+	private byte[] buf;
+	private int pos = 0;
+
+	private char high = 0;
+
+	public UTF8OutputSource(OutputStream out) {
+		this.out = out;
+		this.buf = new byte[8192];
+	}
+
+	public UTF8OutputSource(int size) {
+		this.out = null;
+		this.buf = new byte[Math.max(size, 16)];
+	}
+
+	@Override
+	public void append(String text) throws IOException {
+		append(text, 0, text.length());
+	}
+
+	@Override
+	public void append(String text, int start, int end) throws IOException {
+		int i = start;
+		while (i < end) {
+			if (high == 0) {
+				// ASCII fast path: copy directly while the buffer has room
+				int limit = Math.min(end, i + buf.length - pos);
+				while (i < limit) {
+					char c = text.charAt(i);
+					if (c >= 0x80) break;
+					buf[pos++] = (byte)c;
+					i++;
+				}
+				if (i >= end) break;
+				if (i < limit) {
+					append(text.charAt(i++));
+					continue;
+				}
+				ensure(1);
+			} else {
+				append(text.charAt(i++));
+			}
+		}
+	}
+
+	@Override
+	public void append(char[] cbuf, int start, int end) throws IOException {
+		int i = start;
+		while (i < end) {
+			if (high == 0) {
+				int limit = Math.min(end, i + buf.length - pos);
+				while (i < limit) {
+					char c = cbuf[i];
+					if (c >= 0x80) break;
+					buf[pos++] = (byte)c;
+					i++;
+				}
+				if (i >= end) break;
+				if (i < limit) {
+					append(cbuf[i++]);
+					continue;
+				}
+				ensure(1);
+			} else {
+				append(cbuf[i++]);
+			}
+		}
+	}
+
+	@Override
+	public void append(char c) throws IOException {
+		if (high != 0) {
+			char h = high;
+			high = 0;
+			if (Character.isLowSurrogate(c)) {
+				int cp = Character.toCodePoint(h, c);
+				ensure(4);
+				buf[pos++] = (byte)(0xF0 | (cp >> 18));
+				buf[pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+				buf[pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+				buf[pos++] = (byte)(0x80 | (cp & 0x3F));
+				return;
+			}
+			ensure(1);
+			buf[pos++] = '?';
+		}
+
+		if (c < 0x80) {
+			ensure(1);
+			buf[pos++] = (byte)c;
+		} else if (c < 0x800) {
+			ensure(2);
+			buf[pos++] = (byte)(0xC0 | (c >> 6));
+			buf[pos++] = (byte)(0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c)) {
+			high = c;
+		} else if (Character.isLowSurrogate(c)) {
+			ensure(1);
+			buf[pos++] = '?';
+		} else {
+			ensure(3);
+			buf[pos++] = (byte)(0xE0 | (c >> 12));
+			buf[pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+			buf[pos++] = (byte)(0x80 | (c & 0x3F));
+		}
+	}
+
+	private void ensure(int size) throws IOException {
+		if (pos + size <= buf.length) {
+			return;
+		}
+
+		if (out != null) {
+			out.write(buf, 0, pos);
+			pos = 0;
+		} else {
+			byte[] nbuf = new byte[Math.max(buf.length * 2, pos + size)];
+			System.arraycopy(buf, 0, nbuf, 0, pos);
+			buf = nbuf;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (out != null) {
+			if (pos > 0) {
+				out.write(buf, 0, pos);
+				pos = 0;
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * Returns the encoded bytes. A trailing unpaired high surrogate is not included.
+	 *
+	 * @return a copy of the buffered bytes
+	 */
+	public byte[] toByteArray() {
+		byte[] result = new byte[pos];
+		System.arraycopy(buf, 0, result, 0, pos);
+		return result;
+	}
+}
@@ -18,7 +18,7 @@ package net.arnx.jsonic.io;
 import java.io.IOException;
 import java.io.Writer;
 
-public class WriterOutputSource implements OutputSource {
+public class WriterOutputSource implements CharArrayOutputSource {
 	private final Writer writer;
 	
 	private final char[] buf = new char[1024];
@@ -55,6 +55,28 @@ public class WriterOutputSource implements OutputSource {
 		}
 	}
 	
+	@Override
+	public void append(char[] cbuf, int start, int end) throws IOException {
+		int length = end-start;
+		if (pos + length < buf.length) {
+			System.arraycopy(cbuf, start, buf, pos, length);
+			pos += length;
+			return;
+		}
+	
+		if (pos > 0) {
+			writer.write(buf, 0, pos);
+			pos = 0;
+		}
+			
+		if (length < buf.length) {
+			System.arraycopy(cbuf, start, buf, 0, length);
+			pos = length;
+		} else {
+			writer.write(cbuf, start, length);
+		}
+	}
+	
 	@Override
 	public void append(char c) throws IOException {
 		if (pos + 1 >= buf.length) {
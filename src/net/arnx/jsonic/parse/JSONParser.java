@@ -18,11 +18,16 @@ package net.arnx.jsonic.parse;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import net.arnx.jsonic.JSON.NumberMode;
 import net.arnx.jsonic.JSONEventType;
 import net.arnx.jsonic.JSONException;
+import net.arnx.jsonic.io.FeedInputSource;
 import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.NeedMoreInputException;
+import net.arnx.jsonic.io.SymbolInputSource;
 import net.arnx.jsonic.util.LocalCache;
 
 public class JSONParser {
@@ -36,6 +41,12 @@ public class JSONParser {
 
 	private static final int[] ESCAPE_CHARS = new int[128];
 
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
 	static {
 		for (int i = 0; i < 32; i++) {
 			ESCAPE_CHARS[i] = 3;
@@ -47,10 +58,12 @@ public class JSONParser {
 	}
 
 	private InputSource in;
+	private FeedInputSource feed;
 
 	private int maxDepth;
 	private boolean interpretterMode;
 	private boolean ignoreWhirespace;
+	private NumberMode numberMode;
 	private LocalCache cache;
 
 	private int state = BEFORE_ROOT;
@@ -60,14 +73,26 @@ public class JSONParser {
 	private Object value;
 	private boolean first;
 	private boolean active;
+	private boolean raw;
 
 	private JSONEventType parsedType;
 
-	public JSONParser(InputSource in, int maxDepth, boolean interpretterMode, boolean ignoreWhirespace, LocalCache cache) {
+	private Projection projection;
+	private Projection.Node[] nodes;
+	private int[] indexes;
+	private Projection.Node pending;
+	private int skip;
+
+	// the char which may end the token being read, or -1 if any char may end it
+	private int awaiting = -1;
+
+	public JSONParser(InputSource in, int maxDepth, boolean interpretterMode, boolean ignoreWhirespace, NumberMode numberMode, LocalCache cache) {
 		this.in = in;
+		this.feed = (in instanceof FeedInputSource) ? (FeedInputSource)in : null;
 		this.maxDepth = maxDepth;
 		this.interpretterMode = interpretterMode;
 		this.ignoreWhirespace = ignoreWhirespace;
+		this.numberMode = numberMode;
 		this.cache = cache;
 
 		this.active = stack.size() < maxDepth;
@@ -81,10 +106,41 @@ public class JSONParser {
 		return interpretterMode;
 	}
 
+	/**
+	 * Changes the interpretter mode. When it is turned off after a root value, anything
+	 * but whitespaces and comments after the value is an error.
+	 *
+	 * @param interpretterMode true to read a sequence of root values
+	 */
+	public void setInterpretterMode(boolean interpretterMode) {
+		this.interpretterMode = interpretterMode;
+	}
+
 	public boolean isIgnoreWhitespace() {
 		return ignoreWhirespace;
 	}
 
+	/**
+	 * Sets the projection, which must be done before the first call of {@link #next()}.
+	 * Events of values outside of the projection are not reported, and the values
+	 * are skipped without being decoded.
+	 *
+	 * @param projection the projection or null to report all values
+	 */
+	public void setProjection(Projection projection) {
+		this.projection = projection;
+		if (projection != null) {
+			nodes = new Projection.Node[8];
+			indexes = new int[8];
+			pending = projection.root;
+			skip = 0;
+		}
+	}
+
+	public Projection getProjection() {
+		return projection;
+	}
+
 	public Object getValue() {
 		return value;
 	}
@@ -97,32 +153,40 @@ public class JSONParser {
 		}
 	}
 
+	/**
+	 * Reads the next event. If the input source is a {@link FeedInputSource} and
+	 * its data runs out in the middle of a token, the source is rolled back to the
+	 * start of the token and {@link JSONEventType#NEED_MORE_INPUT} is returned.
+	 * An unclosed string or comment is not read again until its closing char is fed.
+	 *
+	 * @return the next event or null if the input is ended.
+	 * @throws IOException if I/O error occurred.
+	 */
 	public JSONEventType next() throws IOException {
+		if (feed != null) {
+			if (feed.isAwaiting()) {
+				return JSONEventType.NEED_MORE_INPUT;
+			}
+
+			awaiting = -1;
+			try {
+				return nextEvent();
+			} catch (NeedMoreInputException e) {
+				if (awaiting != -1) feed.await(awaiting);
+				feed.rollback();
+				return JSONEventType.NEED_MORE_INPUT;
+			}
+		}
+		return nextEvent();
+	}
+
+	private JSONEventType nextEvent() throws IOException {
 		JSONEventType type = null;
 		do {
 			set(null, null, false);
-			switch (state) {
-			case BEFORE_ROOT:
-				state = beforeRoot();
-				break;
-			case AFTER_ROOT:
-				state = afterRoot();
-				break;
-			case BEFORE_NAME:
-				state = beforeName();
-				break;
-			case AFTER_NAME:
-				state = afterName();
-				break;
-			case BEFORE_VALUE:
-				state = beforeValue();
-				break;
-			case AFTER_VALUE:
-				state = afterValue();
-				break;
-			case OTHER_STATE:
-				state = otherState();
-				break;
+			state = step();
+			if (skip > 0) {
+				skipContainer();
 			}
 
 			if (getDepth() <= getMaxDepth()) {
@@ -133,6 +197,77 @@ public class JSONParser {
 		return type;
 	}
 
+	/**
+	 * Skips the value which begins with the last event. If it is START_OBJECT or START_ARRAY,
+	 * the input is read up to the matching END_OBJECT or END_ARRAY, which becomes the last event.
+	 * The inner values are checked for syntax, but are neither decoded nor reported.
+	 *
+	 * @throws IOException if I/O error occurred.
+	 */
+	public void skipValue() throws IOException {
+		JSONEventType type = getType();
+		if (type == JSONEventType.START_OBJECT || type == JSONEventType.START_ARRAY) {
+			skipContainer();
+			this.type = (type == JSONEventType.START_OBJECT) ? JSONEventType.END_OBJECT : JSONEventType.END_ARRAY;
+			this.value = null;
+		}
+	}
+
+	/**
+	 * Checks the syntax of the rest of the input without decoding values or reporting events.
+	 *
+	 * @throws IOException if I/O error occurred.
+	 */
+	public void skipAll() throws IOException {
+		raw = true;
+		try {
+			while (state != -1) {
+				active = false;
+				state = step();
+			}
+		} finally {
+			raw = false;
+		}
+		set(null, null, false);
+	}
+
+	private void skipContainer() throws IOException {
+		int depth = stack.size();
+		raw = true;
+		try {
+			do {
+				active = false;
+				state = step();
+			} while (stack.size() >= depth && state != -1);
+		} finally {
+			raw = false;
+		}
+		active = stack.size() < maxDepth && (projection == null || (skip == 0 && pending != null));
+	}
+
+	private int step() throws IOException {
+		if (feed != null) {
+			feed.checkpoint();
+		}
+		switch (state) {
+		case BEFORE_ROOT:
+			return beforeRoot();
+		case AFTER_ROOT:
+			return afterRoot();
+		case BEFORE_NAME:
+			return beforeName();
+		case AFTER_NAME:
+			return afterName();
+		case BEFORE_VALUE:
+			return beforeValue();
+		case AFTER_VALUE:
+			return afterValue();
+		case OTHER_STATE:
+			return otherState();
+		}
+		return state;
+	}
+
 	int beforeRoot() throws IOException {
 		int n = in.next();
 		if (n == 0xFEFF) n = in.next();
@@ -249,7 +384,7 @@ public class JSONParser {
 			return BEFORE_NAME;
 		case '"':
 			in.back();
-			set(JSONEventType.NAME, parseString(false), false);
+			set(JSONEventType.NAME, parseString(false, true), false);
 			return AFTER_NAME;
 		case '}':
 			if (isFirst() && getBeginType() == JSONEventType.START_OBJECT) {
@@ -429,12 +564,14 @@ public class JSONParser {
 		stack.add(type);
 		first = true;
 		active = stack.size() < maxDepth;
+		if (projection != null) enterProjection(type);
 	}
 
 	void set(JSONEventType type, Object value, boolean isValue) {
 		this.type = type;
 		this.value = value;
 		if (isValue) first = false;
+		if (projection != null && type != null) filterProjection(type, isValue);
 	}
 
 	void pop() {
@@ -448,6 +585,75 @@ public class JSONParser {
 		}
 		first = false;
 		active = stack.size() < maxDepth;
+		if (projection != null) leaveProjection();
+	}
+
+	private void enterProjection(JSONEventType type) {
+		if (skip > 0 || pending == null) {
+			skip++;
+			this.type = null;
+			active = false;
+			return;
+		}
+
+		int level = stack.size() - 1;
+		if (level >= nodes.length) {
+			int size = Math.max(nodes.length * 2, level + 1);
+			nodes = Arrays.copyOf(nodes, size);
+			indexes = Arrays.copyOf(indexes, size);
+		}
+		nodes[level] = pending;
+		indexes[level] = 0;
+		if (type == JSONEventType.START_ARRAY) {
+			pending = pending.child(0);
+			active &= (pending != null);
+		}
+	}
+
+	private void filterProjection(JSONEventType type, boolean isValue) {
+		if (skip > 0 || pending == null) {
+			this.type = null;
+			this.value = null;
+			if (isValue && skip == 0) nextProjection();
+		} else if (type == JSONEventType.NAME) {
+			pending = (value != null) ? nodes[stack.size() - 1].child((String)value) : null;
+			if (pending == null) {
+				this.type = null;
+				this.value = null;
+				active = false;
+			}
+		} else if (isValue) {
+			nextProjection();
+		}
+	}
+
+	private void leaveProjection() {
+		if (skip > 0) {
+			skip--;
+			this.type = null;
+			if (skip > 0) {
+				active = false;
+				return;
+			}
+		}
+		nextProjection();
+	}
+
+	/**
+	 * Moves to the next value after a value of the current container is done.
+	 * In an object, the container node itself is pending until the next name is read.
+	 */
+	private void nextProjection() {
+		int level = stack.size() - 1;
+		if (level < 0) {
+			pending = projection.root;
+		} else if (stack.get(level) == JSONEventType.START_ARRAY) {
+			pending = nodes[level].child(++indexes[level]);
+			active = (pending != null) && stack.size() < maxDepth;
+		} else {
+			pending = nodes[level];
+			active = stack.size() < maxDepth;
+		}
 	}
 
 	JSONEventType getBeginType() {
@@ -467,13 +673,21 @@ public class JSONParser {
 	}
 
 	Object parseString(boolean any) throws IOException {
+		return parseString(any, false);
+	}
+
+	Object parseString(boolean any, boolean name) throws IOException {
 		StringBuilder sb = active ? cache.getCachedBuffer() : null;
 
 		int start = in.next();
+		awaiting = start;
 
 		int rest = in.mark();
 		int len = 0;
 
+		// a name without escapes inside one buffer window is looked up in place
+		boolean direct = name && (in instanceof SymbolInputSource);
+
 		int n = -1;
 		while ((n = in.next()) != -1) {
 			rest--;
@@ -485,6 +699,10 @@ public class JSONParser {
 					if (rest == 0 && sb != null) in.copy(sb, len);
 				} else if (type == 1) { // "'
 					if (n == start) {
+						awaiting = -1;
+						if (direct) {
+							return (sb != null) ? ((SymbolInputSource)in).copy(len - 1, cache.getSymbolTable()) : null;
+						}
 						if (len > 1 && sb != null) in.copy(sb, len - 1);
 						break;
 					} else {
@@ -493,6 +711,7 @@ public class JSONParser {
 				} else if (type == 2) { // escape chars
 					if (len > 0 && sb != null) in.copy(sb, len - 1);
 					rest = 0;
+					direct = false;
 
 					in.back();
 					char c = parseEscape();
@@ -511,13 +730,19 @@ public class JSONParser {
 			if (rest == 0) {
 				rest = in.mark();
 				len = 0;
+				direct = false;
 			}
 		}
 
 		if (n != start) {
 			throw createParseException(in, "json.parse.StringNotClosedError");
 		}
-		return (sb != null) ? cache.getString(sb) : null;
+		if (sb == null) {
+			return null;
+		} else if (name) {
+			return cache.getSymbolTable().get(sb, 0, sb.length());
+		}
+		return cache.getString(sb);
 	}
 
 	char parseEscape() throws IOException {
@@ -670,19 +895,29 @@ public class JSONParser {
 		}
 
 		if (sb != null) {
+			if (numberMode == NumberMode.LAZY) {
+				return new LazyNumber(sb.toString());
+			}
+
 			if (sp == -1 && ep == -1) {
 				int s = (sb.charAt(0) == '-') ? 1 : 0;
 				if (sb.length() == s + 1) {
 					long num = sb.charAt(s) - 48;
 					if (sb.charAt(0) == '-') num *= -1;
-					return BigDecimal.valueOf(num);
+					return (numberMode == NumberMode.NATIVE) ? Long.valueOf(num) : BigDecimal.valueOf(num);
 				} else if (sb.length() < s + 19) {
 					long num = 0;
 					for (int i = s; i < sb.length(); i++) {
 						num = num * 10 + (sb.charAt(i) - 48);
 					}
 					if (sb.charAt(0) == '-') num *= -1;
-					return BigDecimal.valueOf(num);
+					return (numberMode == NumberMode.NATIVE) ? Long.valueOf(num) : BigDecimal.valueOf(num);
+				} else if (numberMode == NumberMode.NATIVE && sb.length() == s + 19) {
+					try {
+						return Long.valueOf(sb.toString());
+					} catch (NumberFormatException e) {
+						// out of long range
+					}
 				}
 			} else {
 				int s = (sb.charAt(0) == '-') ? 1 : 0;
@@ -705,6 +940,12 @@ public class JSONParser {
 						if (sb.charAt(ep+1) == '-') scale *= -1;
 					}
 					if (sp >= 0) scale -= e-(sp+1);
+
+					// both operands are exact doubles, so one operation rounds correctly
+					if (numberMode == NumberMode.NATIVE && num > -MAX_EXACT_MANTISSA && num < MAX_EXACT_MANTISSA
+							&& scale > -POWERS_OF_TEN.length && scale < POWERS_OF_TEN.length) {
+						return (scale >= 0) ? num * POWERS_OF_TEN[scale] : num / POWERS_OF_TEN[-scale];
+					}
 					return BigDecimal.valueOf(num, -scale);
 				}
 			}
@@ -784,7 +1025,7 @@ public class JSONParser {
 
 	String parseComment() throws IOException {
 		int point = 0; // 0 '/' 1 '*' 2  '*' 3 '/' E or  0 '/' 1 '/' 4  '\r|\n|\r\n' E
-		StringBuilder sb = !isIgnoreWhitespace() ? cache.getCachedBuffer() : null;
+		StringBuilder sb = (!isIgnoreWhitespace() && !raw) ? cache.getCachedBuffer() : null;
 
 		int n = -1;
 
@@ -804,6 +1045,7 @@ public class JSONParser {
 					point = 4;
 				} else if (point == 3) {
 					if (len > 1 && sb != null) in.copy(sb, len);
+					awaiting = -1;
 					break loop;
 				} else if (point == 2 || point == 4) {
 					if (rest == 0 && sb != null) in.copy(sb, len);
@@ -815,6 +1057,7 @@ public class JSONParser {
 				if (point == 1) {
 					if (rest == 0 && sb != null) in.copy(sb, len);
 					point = 2;
+					awaiting = '/';
 				} else if (point == 2) {
 					if (rest == 0 && sb != null) in.copy(sb, len);
 					point = 3;
@@ -865,7 +1108,7 @@ public class JSONParser {
 	}
 
 	String parseWhitespace() throws IOException {
-		StringBuilder sb = !isIgnoreWhitespace() ? cache.getCachedBuffer() : null;
+		StringBuilder sb = (!isIgnoreWhitespace() && !raw) ? cache.getCachedBuffer() : null;
 
 		int n = -1;
 
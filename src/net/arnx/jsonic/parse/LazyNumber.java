@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.parse;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A json number which keeps its text and decodes it on first use.
+ */
+public final class LazyNumber extends Number implements Comparable<LazyNumber> {
+	private static final long serialVersionUID = 1L;
+
+	private final String text;
+	private final boolean integral;
+
+	private transient BigDecimal decimal;
+
+	public LazyNumber(String text) {
+		this.text = text;
+
+		boolean integral = true;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '.' || c == 'e' || c == 'E') {
+				integral = false;
+				break;
+			}
+		}
+		this.integral = integral;
+	}
+
+	@Override
+	public int intValue() {
+		return (int)longValue();
+	}
+
+	@Override
+	public long longValue() {
+		if (integral && text.length() < 19) {
+			return Long.parseLong(text);
+		}
+		return toBigDecimal().longValue();
+	}
+
+	@Override
+	public float floatValue() {
+		return Float.parseFloat(text);
+	}
+
+	@Override
+	public double doubleValue() {
+		return Double.parseDouble(text);
+	}
+
+	/**
+	 * Converts this number to an int, checking for lost information.
+	 *
+	 * @return this number converted to an int
+	 * @throws ArithmeticException if this number has a nonzero fractional part or is out of the int range.
+	 */
+	public int intValueExact() {
+		if (integral && text.length() < 10) {
+			return Integer.parseInt(text);
+		}
+		return toBigDecimal().intValueExact();
+	}
+
+	/**
+	 * Converts this number to a long, checking for lost information.
+	 *
+	 * @return this number converted to a long
+	 * @throws ArithmeticException if this number has a nonzero fractional part or is out of the long range.
+	 */
+	public long longValueExact() {
+		if (integral && text.length() < 19) {
+			return Long.parseLong(text);
+		}
+		return toBigDecimal().longValueExact();
+	}
+
+	public BigInteger toBigIntegerExact() {
+		return toBigDecimal().toBigIntegerExact();
+	}
+
+	public BigDecimal toBigDecimal() {
+		BigDecimal decimal = this.decimal;
+		if (decimal == null) {
+			decimal = new BigDecimal(text);
+			this.decimal = decimal;
+		}
+		return decimal;
+	}
+
+	@Override
+	public int compareTo(LazyNumber o) {
+		return toBigDecimal().compareTo(o.toBigDecimal());
+	}
+
+	@Override
+	public int hashCode() {
+		return toBigDecimal().hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof LazyNumber)) return false;
+		return toBigDecimal().equals(((LazyNumber)obj).toBigDecimal());
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.parse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compiled set of paths which selects the parts of a document to read.
+ *
+ * A path is a JSON Pointer ("/items/0/id") or a dotted path ("$.items[*].id",
+ * "items[0]['a.b']"), where "*" matches any member or element. A value at a selected
+ * path is read as a whole. Containers on the way keep only their selected members
+ * and elements, and everything else is skipped by the parser without being decoded.
+ * A scalar found where a path expects a container is kept as it is.
+ */
+public final class Projection {
+	private static final int CACHE_SIZE = 256;
+	private static final ConcurrentMap<List<String>, Projection> cache =
+		new ConcurrentHashMap<List<String>, Projection>();
+
+	/**
+	 * Compiles the paths. Recently compiled projections are reused.
+	 *
+	 * @param paths JSON Pointers or dotted paths
+	 * @return the projection
+	 * @throws IllegalArgumentException if a path is malformed
+	 */
+	public static Projection compile(String... paths) {
+		Projection projection = cache.get(Arrays.asList(paths));
+		if (projection == null) {
+			projection = new Projection(paths.clone());
+			if (cache.size() >= CACHE_SIZE) {
+				cache.clear();
+			}
+			cache.put(Arrays.asList(projection.paths), projection);
+		}
+		return projection;
+	}
+
+	private final String[] paths;
+	final Node root;
+
+	private Projection(String[] paths) {
+		Step root = new Step();
+		for (String path : paths) {
+			if (path == null) {
+				throw new NullPointerException("path must not be null.");
+			}
+			add(root, path);
+		}
+		this.paths = paths;
+		this.root = Node.build(Collections.singletonList(root));
+	}
+
+	public String[] getPaths() {
+		return paths.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "Projection " + Arrays.toString(paths);
+	}
+
+	private static void add(Step root, String path) {
+		List<Step> current = Collections.singletonList(root);
+
+		if (path.length() == 0 || path.charAt(0) == '/') {
+			int start = 1;
+			while (start <= path.length()) {
+				int end = path.indexOf('/', start);
+				if (end == -1) end = path.length();
+				String token = path.substring(start, end).replace("~1", "/").replace("~0", "~");
+				int index = toIndex(token);
+
+				List<Step> next = new ArrayList<Step>();
+				for (Step step : current) {
+					next.add(step.name(token));
+					if (index >= 0) next.add(step.index(index));
+				}
+				current = next;
+				start = end + 1;
+			}
+		} else {
+			int i = (path.charAt(0) == '$') ? 1 : 0;
+			boolean first = (i == 0);
+			while (i < path.length()) {
+				char c = path.charAt(i);
+				Step step = current.get(0);
+				if ((first && c != '[') || c == '.') {
+					if (c == '.') i++;
+					first = false;
+
+					int start = i;
+					while (i < path.length() && path.charAt(i) != '.' && path.charAt(i) != '[') i++;
+					if (i == start) {
+						throw new IllegalArgumentException("Invalid path: " + path);
+					}
+					String name = path.substring(start, i);
+					step = ("*".equals(name)) ? step.any() : step.name(name);
+				} else if (c == '[' && i + 1 < path.length()
+						&& (path.charAt(i + 1) == '\'' || path.charAt(i + 1) == '"')) {
+					int end = path.indexOf(path.charAt(i + 1), i + 2);
+					if (end == -1 || end + 1 >= path.length() || path.charAt(end + 1) != ']') {
+						throw new IllegalArgumentException("Invalid path: " + path);
+					}
+					step = step.name(path.substring(i + 2, end));
+					i = end + 2;
+				} else if (c == '[') {
+					int end = path.indexOf(']', i);
+					String token = (end != -1) ? path.substring(i + 1, end) : "";
+					int index = toIndex(token);
+					if ("*".equals(token)) {
+						step = step.any();
+					} else if (index >= 0) {
+						step = step.index(index);
+					} else {
+						throw new IllegalArgumentException("Invalid path: " + path);
+					}
+					i = end + 1;
+				} else {
+					throw new IllegalArgumentException("Invalid path: " + path);
+				}
+				first = false;
+				current = Collections.singletonList(step);
+			}
+		}
+
+		for (Step step : current) {
+			step.all = true;
+		}
+	}
+
+	private static int toIndex(String token) {
+		if (token.length() == 0 || token.length() > 9
+				|| (token.length() > 1 && token.charAt(0) == '0')) {
+			return -1;
+		}
+		for (int i = 0; i < token.length(); i++) {
+			char c = token.charAt(i);
+			if (c < '0' || c > '9') return -1;
+		}
+		return Integer.parseInt(token);
+	}
+
+	private static final class Step {
+		boolean all;
+		Map<String, Step> names;
+		Map<Integer, Step> indexes;
+		Step any;
+
+		Step name(String name) {
+			if (names == null) names = new LinkedHashMap<String, Step>();
+			Step step = names.get(name);
+			if (step == null) {
+				step = new Step();
+				names.put(name, step);
+			}
+			return step;
+		}
+
+		Step index(int index) {
+			if (indexes == null) indexes = new LinkedHashMap<Integer, Step>();
+			Step step = indexes.get(index);
+			if (step == null) {
+				step = new Step();
+				indexes.put(index, step);
+			}
+			return step;
+		}
+
+		Step any() {
+			if (any == null) any = new Step();
+			return any;
+		}
+	}
+
+	/**
+	 * A deterministic state of the projection. A step which matches a name or an
+	 * index is merged with the wildcard steps of the same state when compiled,
+	 * so the parser only follows one node per level.
+	 */
+	static final class Node {
+		static final Node ALL = new Node();
+
+		private Map<String, Node> names = Collections.emptyMap();
+		private int[] indexes = new int[0];
+		private Node[] indexNodes = new Node[0];
+		private Node any;
+
+		Node child(String name) {
+			if (this == ALL) return ALL;
+			Node node = names.get(name);
+			return (node != null) ? node : any;
+		}
+
+		Node child(int index) {
+			if (this == ALL) return ALL;
+			for (int i = 0; i < indexes.length; i++) {
+				if (indexes[i] == index) return indexNodes[i];
+			}
+			return any;
+		}
+
+		static Node build(List<Step> steps) {
+			if (steps.isEmpty()) {
+				return null;
+			}
+
+			List<Step> anys = new ArrayList<Step>();
+			Set<String> names = new LinkedHashSet<String>();
+			Set<Integer> indexes = new LinkedHashSet<Integer>();
+			for (Step step : steps) {
+				if (step.all) return ALL;
+				if (step.any != null) anys.add(step.any);
+				if (step.names != null) names.addAll(step.names.keySet());
+				if (step.indexes != null) indexes.addAll(step.indexes.keySet());
+			}
+
+			Node node = new Node();
+			node.any = build(anys);
+			if (!names.isEmpty()) {
+				node.names = new HashMap<String, Node>();
+				for (String name : names) {
+					List<Step> next = new ArrayList<Step>(anys);
+					for (Step step : steps) {
+						if (step.names != null && step.names.containsKey(name)) next.add(step.names.get(name));
+					}
+					node.names.put(name, build(next));
+				}
+			}
+			if (!indexes.isEmpty()) {
+				node.indexes = new int[indexes.size()];
+				node.indexNodes = new Node[indexes.size()];
+				int i = 0;
+				for (Integer index : indexes) {
+					List<Step> next = new ArrayList<Step>(anys);
+					for (Step step : steps) {
+						if (step.indexes != null && step.indexes.containsKey(index)) next.add(step.indexes.get(index));
+					}
+					node.indexes[i] = index;
+					node.indexNodes[i] = build(next);
+					i++;
+				}
+			}
+			return node;
+		}
+	}
+}
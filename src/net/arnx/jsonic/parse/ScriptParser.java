@@ -17,6 +17,7 @@ package net.arnx.jsonic.parse;
 
 import java.io.IOException;
 
+import net.arnx.jsonic.JSON.NumberMode;
 import net.arnx.jsonic.JSONEventType;
 import net.arnx.jsonic.io.InputSource;
 import net.arnx.jsonic.util.LocalCache;
@@ -24,8 +25,8 @@ import net.arnx.jsonic.util.LocalCache;
 public class ScriptParser extends JSONParser {
 	private InputSource in;
 
-	public ScriptParser(InputSource in, int maxDepth, boolean interpretterMode, boolean ignoreWhirespace, LocalCache cache) {
-		super(in, maxDepth, interpretterMode, ignoreWhirespace, cache);
+	public ScriptParser(InputSource in, int maxDepth, boolean interpretterMode, boolean ignoreWhirespace, NumberMode numberMode, LocalCache cache) {
+		super(in, maxDepth, interpretterMode, ignoreWhirespace, numberMode, cache);
 		this.in = in;
 	}
 
@@ -172,7 +173,7 @@ public class ScriptParser extends JSONParser {
 		case '"':
 		case '\'':
 			in.back();
-			set(JSONEventType.NAME, parseString(true), false);
+			set(JSONEventType.NAME, parseString(true, true), false);
 			return AFTER_NAME;
 		case '0':
 		case '1':
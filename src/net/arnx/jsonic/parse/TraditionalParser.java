@@ -18,6 +18,7 @@ package net.arnx.jsonic.parse;
 import java.io.IOException;
 import java.util.LinkedList;
 
+import net.arnx.jsonic.JSON.NumberMode;
 import net.arnx.jsonic.JSONEventType;
 import net.arnx.jsonic.io.InputSource;
 import net.arnx.jsonic.util.LocalCache;
@@ -43,8 +44,8 @@ public class TraditionalParser extends JSONParser {
 		}
 	}
 
-	public TraditionalParser(InputSource in, int maxDepth, boolean interpretterMode, boolean ignoreWhirespace, LocalCache cache) {
-		super(in, maxDepth, interpretterMode, ignoreWhirespace, cache);
+	public TraditionalParser(InputSource in, int maxDepth, boolean interpretterMode, boolean ignoreWhirespace, NumberMode numberMode, LocalCache cache) {
+		super(in, maxDepth, interpretterMode, ignoreWhirespace, numberMode, cache);
 		this.in = in;
 	}
 
@@ -189,7 +190,7 @@ public class TraditionalParser extends JSONParser {
 		case '"':
 		case '\'':
 			in.back();
-			set(JSONEventType.NAME, parseString(true), false);
+			set(JSONEventType.NAME, parseString(true, true), false);
 			return AFTER_NAME;
 		case '-':
 		case '0':
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Reads, writes or creates through a bean member.
+ *
+ * This class uses reflection. If java.lang.invoke.LambdaMetafactory is available,
+ * public members of public classes are bound to generated functions instead,
+ * which avoid the argument array and the access checks of each reflective call.
+ */
+class Accessor {
+	private static final Factory FACTORY = newFactory();
+
+	static Accessor getter(Class<?> beanClass, Member member) {
+		return FACTORY.getter(beanClass, member);
+	}
+
+	static Accessor setter(Class<?> beanClass, Member member) {
+		return FACTORY.setter(beanClass, member);
+	}
+
+	static Accessor creator(Constructor<?> con) {
+		return FACTORY.creator(con);
+	}
+
+	private static Factory newFactory() {
+		try {
+			Class.forName("java.lang.invoke.LambdaMetafactory");
+			return (Factory)Class.forName(Accessor.class.getPackage().getName() + ".LambdaAccessorFactory",
+					true, Accessor.class.getClassLoader()).getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			// no handle
+		} catch (LinkageError e) {
+			// no handle
+		}
+		return new Factory();
+	}
+
+	final Member member;
+
+	Accessor(Member member) {
+		this.member = member;
+	}
+
+	Object get(Object target) throws Exception {
+		if (member instanceof Method) {
+			return ((Method)member).invoke(target, (Object[])null);
+		} else {
+			return ((Field)member).get(target);
+		}
+	}
+
+	void set(Object target, Object value) throws Exception {
+		if (member instanceof Method) {
+			((Method)member).invoke(target, value);
+		} else {
+			((Field)member).set(target, value);
+		}
+	}
+
+	Object newInstance() throws Exception {
+		return ((Constructor<?>)member).newInstance();
+	}
+
+	static class Factory {
+		Accessor getter(Class<?> beanClass, Member member) {
+			return new Accessor(member);
+		}
+
+		Accessor setter(Class<?> beanClass, Member member) {
+			return new Accessor(member);
+		}
+
+		Accessor creator(Constructor<?> con) {
+			return new Accessor(con);
+		}
+	}
+}
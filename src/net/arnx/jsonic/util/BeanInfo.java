@@ -15,6 +15,7 @@
  */
 package net.arnx.jsonic.util;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -23,38 +24,83 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class BeanInfo {
-	private static final Map<ClassLoader, Map<Class<?>, BeanInfo>> cache =
-		new WeakHashMap<ClassLoader, Map<Class<?>, BeanInfo>>();
+	private static final ClassCache<BeanInfo> cache = ClassCache.newInstance();
+
+	// insertion order for eviction; entries of unloaded classes are just skipped
+	private static final Queue<WeakReference<Class<?>>> order = new ConcurrentLinkedQueue<WeakReference<Class<?>>>();
+	private static final AtomicInteger count = new AtomicInteger();
+	private static final CacheStatistics statistics = new CacheStatistics();
+	private static volatile int cacheSize = 1024;
 
 	public static BeanInfo get(Class<?> cls) {
-		synchronized(cache) {
-			BeanInfo info = null;
-			Map<Class<?>, BeanInfo> map = cache.get(cls.getClassLoader());
-			if (map == null) {
-				map = new LinkedHashMap<Class<?>, BeanInfo>(16, 0.75f, true) {
-					protected boolean removeEldestEntry(Map.Entry<Class<?>, BeanInfo> eldest) {
-						return size() > 1024;
-					};
-				};
-				cache.put(cls.getClassLoader(), map);
-			} else {
-				info = map.get(cls);
-			}
+		BeanInfo info = cache.get(cls, BeanInfo.class);
+		if (info != null) {
+			statistics.hits.incrementAndGet();
+			return info;
+		}
 
-			if (info == null) {
-				info = new BeanInfo(cls);
-				map.put(cls, info);
+		statistics.misses.incrementAndGet();
+		info = new BeanInfo(cls);
+		BeanInfo current = cache.putIfAbsent(cls, BeanInfo.class, info);
+		if (current == info) {
+			order.add(new WeakReference<Class<?>>(cls));
+			if (count.incrementAndGet() > cacheSize) {
+				evict();
 			}
-			return info;
 		}
+		return current;
 	}
 
 	public static void clear() {
-		synchronized (cache) {
-			cache.clear();
+		cache.clear();
+		order.clear();
+		count.set(0);
+	}
+
+	/**
+	 * Returns the maximum number of cached BeanInfo instances.
+	 *
+	 * @return the cache size
+	 */
+	public static int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of cached BeanInfo instances.
+	 * When it is exceeded, the oldest instances are removed first.
+	 *
+	 * @param size the cache size
+	 */
+	public static void setCacheSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size must be positive: " + size);
+		}
+		cacheSize = size;
+		evict();
+	}
+
+	public static CacheStatistics getCacheStatistics() {
+		return statistics;
+	}
+
+	private static void evict() {
+		while (count.get() > cacheSize) {
+			WeakReference<Class<?>> ref = order.poll();
+			if (ref == null) {
+				break;
+			}
+			count.decrementAndGet();
+
+			Class<?> cls = ref.get();
+			if (cls != null && cache.remove(cls, BeanInfo.class) != null) {
+				statistics.evictions.incrementAndGet();
+			}
 		}
 	}
 
@@ -65,6 +111,9 @@ public final class BeanInfo {
 	private Map<String, PropertyInfo> props;
 	private Map<String, MethodInfo> methods;
 
+	private volatile Accessor creator;
+	private volatile Accessor declaredCreator;
+
 	private BeanInfo(Class<?> cls) {
 		type = cls;
 
@@ -209,14 +258,38 @@ public final class BeanInfo {
 
 	public Object newInstance() {
 		try {
-			Constructor<?> target = type.getConstructor();
-			target.setAccessible(true);
-			return target.newInstance();
+			Accessor creator = this.creator;
+			if (creator == null) {
+				Constructor<?> target = type.getConstructor();
+				target.setAccessible(true);
+				creator = Accessor.creator(target);
+				this.creator = creator;
+			}
+			return creator.newInstance();
 		} catch (Exception e) {
 			throw new IllegalStateException(e);
 		}
 	}
 
+	/**
+	 * Creates a new instance by the no-argument constructor, which may be non-public.
+	 * Unlike {@link #newInstance()}, exceptions are thrown as they are.
+	 *
+	 * @return a new instance
+	 * @throws NoSuchMethodException if the no-argument constructor is not declared
+	 * @throws Exception if the constructor fails
+	 */
+	public Object newDeclaredInstance() throws Exception {
+		Accessor creator = this.declaredCreator;
+		if (creator == null) {
+			Constructor<?> target = type.getDeclaredConstructor();
+			target.setAccessible(true);
+			creator = Accessor.creator(target);
+			this.declaredCreator = creator;
+		}
+		return creator.newInstance();
+	}
+
 	public Class<?> getType() {
 		return type;
 	}
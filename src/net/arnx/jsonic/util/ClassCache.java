@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe cache of values associated with a class and an additional key.
+ *
+ * If java.lang.ClassValue is available, values of classes loaded by jsonic's class loader
+ * (or its descendants) are stored with the class itself and are released together with its
+ * class loader. Values of other classes (for example, of JDK classes) and all values on older
+ * runtimes are kept in maps owned by the cache, so they never pin jsonic's class loader.
+ *
+ * @param <V> the type of cached values
+ */
+public abstract class ClassCache<V> {
+	public static <V> ClassCache<V> newInstance() {
+		try {
+			Class.forName("java.lang.ClassValue");
+			@SuppressWarnings("unchecked")
+			ClassCache<V> cache = (ClassCache<V>)Class.forName(ClassCache.class.getPackage().getName() + ".ClassValueCache",
+					true, ClassCache.class.getClassLoader()).getDeclaredConstructor().newInstance();
+			return cache;
+		} catch (Exception e) {
+			// no handle
+		} catch (LinkageError e) {
+			// no handle
+		}
+		return new WeakClassCache<V>();
+	}
+
+	/**
+	 * Returns the cached value.
+	 *
+	 * @param cls the class
+	 * @param key the additional key (not null)
+	 * @return the cached value or null
+	 */
+	public V get(Class<?> cls, Object key) {
+		return getMap(cls).get(key);
+	}
+
+	/**
+	 * Caches the value if absent.
+	 *
+	 * @param cls the class
+	 * @param key the additional key (not null)
+	 * @param value the value (not null)
+	 * @return the value already cached or the specified value
+	 */
+	public V putIfAbsent(Class<?> cls, Object key, V value) {
+		V current = getMap(cls).putIfAbsent(key, value);
+		return (current != null) ? current : value;
+	}
+
+	/**
+	 * Removes the cached value.
+	 *
+	 * @param cls the class
+	 * @param key the additional key (not null)
+	 * @return the removed value or null
+	 */
+	public V remove(Class<?> cls, Object key) {
+		return getMap(cls).remove(key);
+	}
+
+	public abstract void clear();
+
+	protected abstract ConcurrentMap<Object, V> getMap(Class<?> cls);
+
+	private static class WeakClassCache<V> extends ClassCache<V> {
+		private final Map<Class<?>, ConcurrentMap<Object, V>> cache =
+			new WeakHashMap<Class<?>, ConcurrentMap<Object, V>>();
+
+		@Override
+		protected ConcurrentMap<Object, V> getMap(Class<?> cls) {
+			synchronized (cache) {
+				ConcurrentMap<Object, V> map = cache.get(cls);
+				if (map == null) {
+					map = new ConcurrentHashMap<Object, V>();
+					cache.put(cls, map);
+				}
+				return map;
+			}
+		}
+
+		@Override
+		public void clear() {
+			synchronized (cache) {
+				cache.clear();
+			}
+		}
+	}
+}
@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -30,16 +32,20 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.io.ObjectStreamClass;
 
 public final class ClassUtil {
-	private static final Map<ClassLoader, Map<String, Class<?>>> cache =
-		new WeakHashMap<ClassLoader, Map<String, Class<?>>>();
+	private static final LoaderCache cache = new LoaderCache();
+	private static final CacheStatistics statistics = new CacheStatistics();
+	private static volatile int cacheSize = 1024;
 
 	public static Class<?> findClass(String name) {
 		ClassLoader cl;
@@ -49,41 +55,67 @@ public final class ClassUtil {
 			cl = null;
 		}
 
-		Map<String, Class<?>> map;
-		synchronized (cache) {
-			map = cache.get(cl);
-
-			if (map == null) {
-				map = new LinkedHashMap<String, Class<?>>(16, 0.75f, true) {
-					protected boolean removeEldestEntry(Map.Entry<String, Class<?>> eldest) {
-						return size() > 1024;
-					};
-				};
-				cache.put(cl, map);
-			}
+		NameCache names = cache.get(cl);
+		Object value = names.find(name);
+		if (value != null) {
+			statistics.hits.incrementAndGet();
+			return (value instanceof Class<?>) ? (Class<?>)value : null;
 		}
-		synchronized (map) {
-			if (!map.containsKey(name)) {
-				Class<?> target;
-				try {
-					if (cl != null) {
-						target = cl.loadClass(name);
-					} else {
-						target = Class.forName(name);
-					}
-				} catch (ClassNotFoundException e) {
-					target = null;
-				}
-				map.put(name, target);
+
+		statistics.misses.incrementAndGet();
+		Class<?> target;
+		try {
+			if (cl != null) {
+				target = cl.loadClass(name);
+			} else {
+				target = Class.forName(name);
 			}
-			return map.get(name);
+		} catch (ClassNotFoundException e) {
+			target = null;
 		}
+		names.store(name, target);
+		return target;
 	}
 
 	public static void clear() {
-		synchronized (cache) {
-			cache.clear();
+		cache.clear();
+	}
+
+	// for test: number of live class loaders in the cache
+	static int getCachedLoaderCount() {
+		return cache.size();
+	}
+
+	// for test: number of names cached for the class loader
+	static int getCachedNameCount(ClassLoader cl) {
+		NameCache names = cache.find(cl);
+		return (names != null) ? names.size() : 0;
+	}
+
+	/**
+	 * Returns the maximum number of names cached per class loader by {@link #findClass(String)}.
+	 *
+	 * @return the cache size
+	 */
+	public static int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of names cached per class loader by {@link #findClass(String)}.
+	 * When it is exceeded, arbitrary names are removed.
+	 *
+	 * @param size the cache size
+	 */
+	public static void setCacheSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size must be positive: " + size);
 		}
+		cacheSize = size;
+	}
+
+	public static CacheStatistics getCacheStatistics() {
+		return statistics;
 	}
 
 	public static String toUpperCamel(String name) {
@@ -481,4 +513,102 @@ public final class ClassUtil {
 			return true;
 		}
 	}
+
+	/**
+	 * Class loaders are held weakly in a copy-on-write array, which is only
+	 * replaced when a new class loader is seen.
+	 */
+	private static final class LoaderCache {
+		private volatile LoaderEntry[] entries = new LoaderEntry[0];
+
+		NameCache get(ClassLoader cl) {
+			NameCache names = find(cl);
+			if (names == null) {
+				synchronized (this) {
+					names = find(cl);
+					if (names == null) {
+						names = new NameCache();
+						List<LoaderEntry> list = new ArrayList<LoaderEntry>();
+						for (LoaderEntry entry : entries) {
+							if (entry.isAlive()) list.add(entry);
+						}
+						list.add(new LoaderEntry(cl, names));
+						entries = list.toArray(new LoaderEntry[list.size()]);
+					}
+				}
+			}
+			return names;
+		}
+
+		NameCache find(ClassLoader cl) {
+			for (LoaderEntry entry : entries) {
+				if (entry.get() == cl && entry.isAlive()) return entry.names;
+			}
+			return null;
+		}
+
+		int size() {
+			int size = 0;
+			for (LoaderEntry entry : entries) {
+				if (entry.isAlive()) size++;
+			}
+			return size;
+		}
+
+		synchronized void clear() {
+			entries = new LoaderEntry[0];
+		}
+	}
+
+	private static final class LoaderEntry extends WeakReference<ClassLoader> {
+		final boolean bootstrap;
+		final NameCache names;
+
+		LoaderEntry(ClassLoader cl, NameCache names) {
+			super(cl);
+			this.bootstrap = (cl == null);
+			this.names = names;
+		}
+
+		boolean isAlive() {
+			return bootstrap || get() != null;
+		}
+	}
+
+	/**
+	 * Classes are held weakly, so that cached names do not keep the class loader
+	 * of a redeployed application alive. A name that was not found is cached too.
+	 */
+	private static final class NameCache {
+		private static final Object NOT_FOUND = new Object();
+
+		private final ConcurrentMap<String, Object> map = new ConcurrentHashMap<String, Object>();
+
+		Object find(String name) {
+			Object value = map.get(name);
+			if (value instanceof Reference<?>) {
+				return ((Reference<?>)value).get();
+			}
+			return value;
+		}
+
+		void store(String name, Class<?> cls) {
+			map.put(name, (cls != null) ? new WeakReference<Class<?>>(cls) : NOT_FOUND);
+
+			int max = cacheSize;
+			if (map.size() > max) {
+				Iterator<String> i = map.keySet().iterator();
+				while (map.size() > max && i.hasNext()) {
+					if (!name.equals(i.next())) {
+						i.remove();
+						statistics.evictions.incrementAndGet();
+					}
+				}
+			}
+		}
+
+		int size() {
+			return map.size();
+		}
+	}
 }
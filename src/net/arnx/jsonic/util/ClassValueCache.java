@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * ClassValue based cache.
+ *
+ * A value stored by ClassValue is strongly reachable from the class, so a value of a class
+ * loaded by jsonic's class loader would pin that loader as long as the class lives. So
+ * ClassValue is used only for classes which jsonic's class loader can not outlive. Classes
+ * of the bootstrap loader never unload and are kept in a plain map and classes of other
+ * loaders (for example, of JDK extensions or sibling applications) in a weak map. Both
+ * maps are released together with jsonic's class loader.
+ */
+final class ClassValueCache<V> extends ClassCache<V> {
+	private static final ClassLoader LOADER = ClassValueCache.class.getClassLoader();
+
+	private volatile ClassValue<ConcurrentMap<Object, V>> cache = newClassValue();
+
+	private volatile ConcurrentMap<Class<?>, ConcurrentMap<Object, V>> systemCache
+		= new ConcurrentHashMap<Class<?>, ConcurrentMap<Object, V>>();
+
+	private final Map<Class<?>, ConcurrentMap<Object, V>> weakCache
+		= new WeakHashMap<Class<?>, ConcurrentMap<Object, V>>();
+
+	@Override
+	protected ConcurrentMap<Object, V> getMap(Class<?> cls) {
+		ClassLoader cl = cls.getClassLoader();
+		if (isDescendant(cl)) {
+			return cache.get(cls);
+		}
+
+		if (cl == null) {
+			ConcurrentMap<Class<?>, ConcurrentMap<Object, V>> maps = systemCache;
+			ConcurrentMap<Object, V> map = maps.get(cls);
+			if (map == null) {
+				map = new ConcurrentHashMap<Object, V>();
+				ConcurrentMap<Object, V> current = maps.putIfAbsent(cls, map);
+				if (current != null) map = current;
+			}
+			return map;
+		}
+
+		synchronized (weakCache) {
+			ConcurrentMap<Object, V> map = weakCache.get(cls);
+			if (map == null) {
+				map = new ConcurrentHashMap<Object, V>();
+				weakCache.put(cls, map);
+			}
+			return map;
+		}
+	}
+
+	@Override
+	public void clear() {
+		cache = newClassValue();
+		systemCache = new ConcurrentHashMap<Class<?>, ConcurrentMap<Object, V>>();
+		synchronized (weakCache) {
+			weakCache.clear();
+		}
+	}
+
+	private static boolean isDescendant(ClassLoader cl) {
+		if (LOADER == null) {
+			return true;
+		}
+
+		try {
+			for (; cl != null; cl = cl.getParent()) {
+				if (cl == LOADER) return true;
+			}
+		} catch (SecurityException e) {
+			// no handle
+		}
+		return false;
+	}
+
+	private static <V> ClassValue<ConcurrentMap<Object, V>> newClassValue() {
+		return new ClassValue<ConcurrentMap<Object, V>>() {
+			@Override
+			protected ConcurrentMap<Object, V> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<Object, V>();
+			}
+		};
+	}
+}
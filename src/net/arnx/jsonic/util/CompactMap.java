@@ -0,0 +1,303 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An insertion-ordered map backed by a single array of keys and values.
+ *
+ * Small maps are searched by a linear scan. When the size exceeds a threshold,
+ * an open addressed index of positions is built on the first lookup.
+ * Compared with LinkedHashMap, no entry object is allocated per mapping, so
+ * a parsed tree of many small objects takes much less memory. Removal is O(n).
+ * This class is not synchronized.
+ */
+public final class CompactMap<K, V> extends AbstractMap<K, V> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int HASH_THRESHOLD = 8;
+	private static final Object[] EMPTY = new Object[0];
+
+	private transient Object[] table;
+	private transient int size;
+	private transient int[] index;
+	private transient int modCount;
+
+	public CompactMap() {
+		table = EMPTY;
+	}
+
+	/**
+	 * Creates a map.
+	 *
+	 * @param capacity the expected number of mappings
+	 */
+	public CompactMap(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+		}
+		table = (capacity > 0) ? new Object[capacity * 2] : EMPTY;
+	}
+
+	public CompactMap(Map<? extends K, ? extends V> map) {
+		this(map.size());
+		putAll(map);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int pos = indexOf(key);
+		return (pos >= 0) ? (V)table[pos * 2 + 1] : null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		int pos = indexOf(key);
+		if (pos >= 0) {
+			V old = (V)table[pos * 2 + 1];
+			table[pos * 2 + 1] = value;
+			return old;
+		}
+
+		if (size * 2 == table.length) {
+			table = Arrays.copyOf(table, Math.max(8, size * 3) & ~1);
+		}
+		table[size * 2] = key;
+		table[size * 2 + 1] = value;
+		if (index != null) {
+			if ((size + 1) * 2 > index.length) {
+				index = null;
+			} else {
+				insert(index, key, size);
+			}
+		}
+		size++;
+		modCount++;
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		int pos = indexOf(key);
+		if (pos < 0) {
+			return null;
+		}
+		V old = (V)table[pos * 2 + 1];
+		removeAt(pos);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(table, 0, size * 2, null);
+		size = 0;
+		index = null;
+		modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public void clear() {
+				CompactMap.this.clear();
+			}
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator();
+			}
+		};
+	}
+
+	private void removeAt(int pos) {
+		System.arraycopy(table, pos * 2 + 2, table, pos * 2, (size - pos - 1) * 2);
+		size--;
+		table[size * 2] = null;
+		table[size * 2 + 1] = null;
+		index = null;
+		modCount++;
+	}
+
+	private int indexOf(Object key) {
+		if (size <= HASH_THRESHOLD) {
+			for (int i = 0; i < size; i++) {
+				Object k = table[i * 2];
+				if (k == key || (key != null && key.equals(k))) return i;
+			}
+			return -1;
+		}
+
+		if (index == null) {
+			int[] index = new int[Integer.highestOneBit(size * 2) * 2];
+			for (int i = 0; i < size; i++) {
+				insert(index, table[i * 2], i);
+			}
+			this.index = index;
+		}
+
+		int mask = index.length - 1;
+		for (int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+			int pos = index[slot] - 1;
+			Object k = table[pos * 2];
+			if (k == key || (key != null && key.equals(k))) return pos;
+		}
+		return -1;
+	}
+
+	private static void insert(int[] index, Object key, int pos) {
+		int mask = index.length - 1;
+		int slot = hash(key) & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = pos + 1;
+	}
+
+	private static int hash(Object key) {
+		int h = (key != null) ? key.hashCode() : 0;
+		return h ^ (h >>> 16);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < size * 2; i++) {
+			out.writeObject(table[i]);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int size = in.readInt();
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative: " + size);
+		}
+		table = new Object[size * 2];
+		for (int i = 0; i < size * 2; i++) {
+			table[i] = in.readObject();
+		}
+		this.size = size;
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+		private int next = 0;
+		private int current = -1;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next < size;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (modCount != expectedModCount) throw new ConcurrentModificationException();
+			if (next >= size) throw new NoSuchElementException();
+			current = next++;
+			return new Entry(current);
+		}
+
+		@Override
+		public void remove() {
+			if (current < 0) throw new IllegalStateException();
+			if (modCount != expectedModCount) throw new ConcurrentModificationException();
+			removeAt(current);
+			next = current;
+			current = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	private final class Entry implements Map.Entry<K, V> {
+		private final int pos;
+
+		Entry(int pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public K getKey() {
+			return (K)table[pos * 2];
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V getValue() {
+			return (V)table[pos * 2 + 1];
+		}
+
+		@Override
+		public V setValue(V value) {
+			V old = getValue();
+			table[pos * 2 + 1] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry)) return false;
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+			Object k = getKey();
+			Object v = getValue();
+			return (k == null ? e.getKey() == null : k.equals(e.getKey()))
+					&& (v == null ? e.getValue() == null : v.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object k = getKey();
+			Object v = getValue();
+			return (k == null ? 0 : k.hashCode()) ^ (v == null ? 0 : v.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
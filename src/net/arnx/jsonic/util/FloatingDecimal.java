@@ -0,0 +1,378 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+import java.math.BigInteger;
+
+/**
+ * Writes the shortest decimal that rounds to a given double or float,
+ * in the same layout as Double.toString and Float.toString.
+ *
+ * This is the Schubfach algorithm by Raffaello Giulietti, which
+ * Double.toString uses since Java 19. Earlier JDKs sometimes print
+ * more digits than needed, so output may be shorter than theirs but
+ * always parses back to the same value.
+ */
+public final class FloatingDecimal {
+	/**
+	 * The maximum number of chars written for a double.
+	 */
+	public static final int MAX_CHARS = 24;
+
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+
+	private static final long MASK_63 = (1L << 63) - 1;
+	private static final int MASK_28 = (1 << 28) - 1;
+
+	private static final long[] POW10 = new long[18];
+
+	// 126-bit approximations of 10^-k split into two 63-bit halves.
+	private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+
+		for (int k = K_MIN; k <= K_MAX; k++) {
+			int r = flog2pow10(-k) - 125;
+			BigInteger g;
+			if (k <= 0) {
+				g = BigInteger.TEN.pow(-k);
+				g = (r >= 0) ? g.shiftRight(r) : g.shiftLeft(-r);
+			} else {
+				g = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+			}
+			g = g.add(BigInteger.ONE);
+			G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+			G[(k - K_MIN) << 1 | 1] = g.longValue() & MASK_63;
+		}
+	}
+
+	private FloatingDecimal() {
+	}
+
+	/**
+	 * Writes a finite double into the buffer.
+	 *
+	 * @param v a finite double value
+	 * @param buf a buffer with at least {@link #MAX_CHARS} free chars from off
+	 * @param off start offset
+	 * @return end offset
+	 */
+	public static int toChars(double v, char[] buf, int off) {
+		long bits = Double.doubleToRawLongBits(v);
+		long t = bits & ((1L << 52) - 1);
+		int bq = (int)(bits >>> 52) & 0x7FF;
+
+		int pos = off;
+		if (bits < 0) buf[pos++] = '-';
+
+		if (bq != 0) {
+			int mq = 1074 + 1 - bq;
+			long c = (1L << 52) | t;
+			if (0 < mq && mq < 53) {
+				long f = c >> mq;
+				if (f << mq == c) {
+					return toChars(f, 0, buf, pos);
+				}
+			}
+			return toDecimal(-mq, c, 0, buf, pos);
+		} else if (t != 0) {
+			return (t < 3) ? toDecimal(-1074, 10 * t, -1, buf, pos) : toDecimal(-1074, t, 0, buf, pos);
+		}
+
+		buf[pos++] = '0';
+		buf[pos++] = '.';
+		buf[pos++] = '0';
+		return pos;
+	}
+
+	/**
+	 * Writes a finite float into the buffer.
+	 *
+	 * @param v a finite float value
+	 * @param buf a buffer with at least {@link #MAX_CHARS} free chars from off
+	 * @param off start offset
+	 * @return end offset
+	 */
+	public static int toChars(float v, char[] buf, int off) {
+		int bits = Float.floatToRawIntBits(v);
+		int t = bits & ((1 << 23) - 1);
+		int bq = (bits >>> 23) & 0xFF;
+
+		int pos = off;
+		if (bits < 0) buf[pos++] = '-';
+
+		if (bq != 0) {
+			int mq = 149 + 1 - bq;
+			int c = (1 << 23) | t;
+			if (0 < mq && mq < 24) {
+				int f = c >> mq;
+				if (f << mq == c) {
+					return toChars(f, 0, buf, pos);
+				}
+			}
+			return toDecimal(-mq, c, 0, buf, pos);
+		} else if (t != 0) {
+			return (t < 8) ? toDecimal(-149, 10 * t, -1, buf, pos) : toDecimal(-149, t, 0, buf, pos);
+		}
+
+		buf[pos++] = '0';
+		buf[pos++] = '.';
+		buf[pos++] = '0';
+		return pos;
+	}
+
+	private static int toDecimal(int q, long c, int dk, char[] buf, int pos) {
+		int out = (int)c & 0x1;
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != (1L << 52) || q == -1074) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 2;
+
+		long g1 = G[(k - K_MIN) << 1];
+		long g0 = G[(k - K_MIN) << 1 | 1];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+		if (s >= 100) {
+			long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				return toChars(upin ? sp10 : tp10, k, buf, pos);
+			}
+		}
+
+		long t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			return toChars(uin ? s : t, k + dk, buf, pos);
+		}
+		long cmp = vb - (s + t << 1);
+		return toChars((cmp < 0 || cmp == 0 && (s & 0x1) == 0) ? s : t, k + dk, buf, pos);
+	}
+
+	private static int toDecimal(int q, int c, int dk, char[] buf, int pos) {
+		int out = c & 0x1;
+		long cb = (long)c << 2;
+		long cbr = cb + 2;
+		long cbl;
+		int k;
+		if (c != (1 << 23) || q == -149) {
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else {
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+		int h = q + flog2pow10(-k) + 33;
+
+		long g = G[(k - K_MIN) << 1] + 1;
+
+		int vb = rop(g, cb << h);
+		int vbl = rop(g, cbl << h);
+		int vbr = rop(g, cbr << h);
+
+		int s = vb >> 2;
+		if (s >= 100) {
+			int sp10 = 10 * (int)(s * 1717986919L >>> 34);
+			int tp10 = sp10 + 10;
+			boolean upin = vbl + out <= sp10 << 2;
+			boolean wpin = (tp10 << 2) + out <= vbr;
+			if (upin != wpin) {
+				return toChars(upin ? sp10 : tp10, k, buf, pos);
+			}
+		}
+
+		int t = s + 1;
+		boolean uin = vbl + out <= s << 2;
+		boolean win = (t << 2) + out <= vbr;
+		if (uin != win) {
+			return toChars(uin ? s : t, k + dk, buf, pos);
+		}
+		int cmp = vb - (s + t << 1);
+		return toChars((cmp < 0 || cmp == 0 && (s & 0x1) == 0) ? s : t, k + dk, buf, pos);
+	}
+
+	private static long rop(long g1, long g0, long cp) {
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+		return vbp | (z & MASK_63) + MASK_63 >>> 63;
+	}
+
+	private static int rop(long g, long cp) {
+		long x1 = multiplyHigh(g, cp);
+		long vbp = x1 >>> 31;
+		return (int)(vbp | (x1 & 0xFFFFFFFFL) + 0xFFFFFFFFL >>> 32);
+	}
+
+	private static int toChars(long f, int e, char[] buf, int pos) {
+		// normalize to 17 digits: f 10^e = 0.f 10^(e + len)
+		int len = flog10pow2(64 - Long.numberOfLeadingZeros(f));
+		if (f >= POW10[len]) len++;
+		f *= POW10[17 - len];
+		e += len;
+
+		long hm = multiplyHigh(f, 193428131138340668L) >>> 20;
+		int l = (int)(f - 100000000L * hm);
+		int h = (int)(hm * 1441151881L >>> 57);
+		int m = (int)(hm - 100000000 * h);
+		return toChars(h, m, l, e, buf, pos);
+	}
+
+	private static int toChars(int f, int e, char[] buf, int pos) {
+		// normalize to 9 digits: f 10^e = 0.f 10^(e + len)
+		int len = flog10pow2(32 - Integer.numberOfLeadingZeros(f));
+		if (f >= POW10[len]) len++;
+		f *= (int)POW10[9 - len];
+		e += len;
+
+		int h = (int)(f * 1441151881L >>> 57);
+		int m = f - 100000000 * h;
+		return toChars(h, m, 0, e, buf, pos);
+	}
+
+	private static int toChars(int h, int m, int l, int e, char[] buf, int pos) {
+		if (0 < e && e <= 7) {
+			// plain format without leading zeroes
+			buf[pos++] = (char)('0' + h);
+			int y = y(m);
+			int i = 1;
+			for (; i < e; i++) {
+				int t = 10 * y;
+				buf[pos++] = (char)('0' + (t >>> 28));
+				y = t & MASK_28;
+			}
+			buf[pos++] = '.';
+			for (; i <= 8; i++) {
+				int t = 10 * y;
+				buf[pos++] = (char)('0' + (t >>> 28));
+				y = t & MASK_28;
+			}
+			return lowDigits(l, buf, pos);
+		} else if (-3 < e && e <= 0) {
+			// plain format with leading zeroes
+			buf[pos++] = '0';
+			buf[pos++] = '.';
+			for (; e < 0; e++) {
+				buf[pos++] = '0';
+			}
+			buf[pos++] = (char)('0' + h);
+			pos = append8Digits(m, buf, pos);
+			return lowDigits(l, buf, pos);
+		} else {
+			// computerized scientific notation
+			buf[pos++] = (char)('0' + h);
+			buf[pos++] = '.';
+			pos = append8Digits(m, buf, pos);
+			pos = lowDigits(l, buf, pos);
+			return exponent(e - 1, buf, pos);
+		}
+	}
+
+	private static int lowDigits(int l, char[] buf, int pos) {
+		if (l != 0) {
+			pos = append8Digits(l, buf, pos);
+		}
+
+		// remove trailing zeroes, but keep the one directly after '.'
+		while (buf[pos - 1] == '0') pos--;
+		if (buf[pos - 1] == '.') pos++;
+		return pos;
+	}
+
+	private static int append8Digits(int m, char[] buf, int pos) {
+		int y = y(m);
+		for (int i = 0; i < 8; i++) {
+			int t = 10 * y;
+			buf[pos++] = (char)('0' + (t >>> 28));
+			y = t & MASK_28;
+		}
+		return pos;
+	}
+
+	private static int y(int a) {
+		// floor((a + 1) 2^28 / 10^8) - 1 for left-to-right digit extraction
+		return (int)(multiplyHigh((long)(a + 1) << 28, 193428131138340668L) >>> 20) - 1;
+	}
+
+	private static int exponent(int e, char[] buf, int pos) {
+		buf[pos++] = 'E';
+		if (e < 0) {
+			buf[pos++] = '-';
+			e = -e;
+		}
+		if (e < 10) {
+			buf[pos++] = (char)('0' + e);
+			return pos;
+		}
+		if (e >= 100) {
+			int d = e * 1311 >>> 17;
+			buf[pos++] = (char)('0' + d);
+			e -= 100 * d;
+		}
+		int d = e * 103 >>> 10;
+		buf[pos++] = (char)('0' + d);
+		buf[pos++] = (char)('0' + (e - 10 * d));
+		return pos;
+	}
+
+	private static int flog10pow2(int e) {
+		return (int)(e * 661971961083L >> 41);
+	}
+
+	private static int flog10threeQuartersPow2(int e) {
+		return (int)(e * 661971961083L + -274743187321L >> 41);
+	}
+
+	private static int flog2pow10(int e) {
+		return (int)(e * 913124641741L >> 38);
+	}
+
+	private static long multiplyHigh(long x, long y) {
+		// Math.multiplyHigh is not available before Java 9
+		long x1 = x >> 32;
+		long x2 = x & 0xFFFFFFFFL;
+		long y1 = y >> 32;
+		long y2 = y & 0xFFFFFFFFL;
+		long z2 = x2 * y2;
+		long t = x1 * y2 + (z2 >>> 32);
+		long z1 = t & 0xFFFFFFFFL;
+		long z0 = t >> 32;
+		z1 += x2 * y1;
+		return x1 * y1 + z0 + (z1 >> 32);
+	}
+}
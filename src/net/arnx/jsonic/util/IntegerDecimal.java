@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+/**
+ * Writes decimal integers into a char buffer two digits at a time.
+ */
+public final class IntegerDecimal {
+	/**
+	 * The maximum number of chars written for a long.
+	 */
+	public static final int MAX_CHARS = 20;
+
+	private static final char[] DIGIT_TENS = new char[100];
+	private static final char[] DIGIT_ONES = new char[100];
+
+	static {
+		for (int i = 0; i < 100; i++) {
+			DIGIT_TENS[i] = (char)('0' + i / 10);
+			DIGIT_ONES[i] = (char)('0' + i % 10);
+		}
+	}
+
+	private IntegerDecimal() {
+	}
+
+	/**
+	 * Writes an int into the buffer.
+	 *
+	 * @param value an int value
+	 * @param buf a buffer with at least 11 free chars from off
+	 * @param off start offset
+	 * @return end offset
+	 */
+	public static int toChars(int value, char[] buf, int off) {
+		// work on the negated value so that Integer.MIN_VALUE needs no special case
+		int pos = off;
+		if (value < 0) {
+			buf[pos++] = '-';
+		} else {
+			value = -value;
+		}
+
+		int end = pos + size(value);
+		putChars(value, buf, end);
+		return end;
+	}
+
+	/**
+	 * Writes a long into the buffer.
+	 *
+	 * @param value a long value
+	 * @param buf a buffer with at least {@link #MAX_CHARS} free chars from off
+	 * @param off start offset
+	 * @return end offset
+	 */
+	public static int toChars(long value, char[] buf, int off) {
+		if (value == (int)value) {
+			return toChars((int)value, buf, off);
+		}
+
+		int pos = off;
+		if (value < 0) {
+			buf[pos++] = '-';
+		} else {
+			value = -value;
+		}
+
+		int end = pos + size(value);
+		int p = end;
+		while (value < Integer.MIN_VALUE) {
+			long q = value / 100;
+			int r = (int)(q * 100 - value);
+			value = q;
+			buf[--p] = DIGIT_ONES[r];
+			buf[--p] = DIGIT_TENS[r];
+		}
+		putChars((int)value, buf, p);
+		return end;
+	}
+
+	private static void putChars(int value, char[] buf, int p) {
+		while (value <= -100) {
+			int q = value / 100;
+			int r = q * 100 - value;
+			value = q;
+			buf[--p] = DIGIT_ONES[r];
+			buf[--p] = DIGIT_TENS[r];
+		}
+
+		if (value <= -10) {
+			buf[--p] = DIGIT_ONES[-value];
+			buf[--p] = DIGIT_TENS[-value];
+		} else {
+			buf[--p] = (char)('0' - value);
+		}
+	}
+
+	private static int size(int value) {
+		int p = -10;
+		for (int i = 1; i < 10; i++) {
+			if (value > p) return i;
+			p = 10 * p;
+		}
+		return 10;
+	}
+
+	private static int size(long value) {
+		long p = -10;
+		for (int i = 1; i < 19; i++) {
+			if (value > p) return i;
+			p = 10 * p;
+		}
+		return 19;
+	}
+}
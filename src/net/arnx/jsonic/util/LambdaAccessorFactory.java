@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+final class LambdaAccessorFactory extends Accessor.Factory {
+	private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+	@Override
+	Accessor getter(Class<?> beanClass, Member member) {
+		if (member instanceof Method && isBindable(beanClass, member)) {
+			Method m = (Method)member;
+			try {
+				MethodHandle handle = lookup.unreflect(m);
+				@SuppressWarnings("unchecked")
+				Function<Object, Object> function = (Function<Object, Object>)LambdaMetafactory.metafactory(lookup, "apply",
+						MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class),
+						handle,
+						MethodType.methodType(m.getReturnType().isPrimitive() ? wrap(m.getReturnType()) : Object.class, beanClass)
+					).getTarget().invokeWithArguments();
+				return new GetterAccessor(member, function);
+			} catch (LinkageError e) {
+				// no handle
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				// no handle
+			}
+		}
+		return super.getter(beanClass, member);
+	}
+
+	@Override
+	Accessor setter(Class<?> beanClass, Member member) {
+		if (member instanceof Method && isBindable(beanClass, member)) {
+			Method m = (Method)member;
+			Class<?> type = m.getParameterTypes()[0];
+			if (isVisible(type)) {
+				try {
+					MethodHandle handle = lookup.unreflect(m);
+					@SuppressWarnings("unchecked")
+					BiConsumer<Object, Object> consumer = (BiConsumer<Object, Object>)LambdaMetafactory.metafactory(lookup, "accept",
+							MethodType.methodType(BiConsumer.class),
+							MethodType.methodType(void.class, Object.class, Object.class),
+							handle,
+							MethodType.methodType(void.class, beanClass, wrap(type))
+						).getTarget().invokeWithArguments();
+					return new SetterAccessor(member, consumer, type.isPrimitive());
+				} catch (LinkageError e) {
+					// no handle
+				} catch (Error e) {
+					throw e;
+				} catch (Throwable e) {
+					// no handle
+				}
+			}
+		}
+		return super.setter(beanClass, member);
+	}
+
+	@Override
+	Accessor creator(Constructor<?> con) {
+		Class<?> cls = con.getDeclaringClass();
+		if (con.getParameterTypes().length == 0
+				&& !Modifier.isAbstract(cls.getModifiers())
+				&& isBindable(cls, con)) {
+			try {
+				MethodHandle handle = lookup.unreflectConstructor(con);
+				@SuppressWarnings("unchecked")
+				Supplier<Object> supplier = (Supplier<Object>)LambdaMetafactory.metafactory(lookup, "get",
+						MethodType.methodType(Supplier.class),
+						MethodType.methodType(Object.class),
+						handle,
+						MethodType.methodType(cls)
+					).getTarget().invokeWithArguments();
+				return new CreatorAccessor(con, supplier);
+			} catch (LinkageError e) {
+				// no handle
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				// no handle
+			}
+		}
+		return super.creator(con);
+	}
+
+	private static boolean isBindable(Class<?> beanClass, Member member) {
+		return Modifier.isPublic(member.getModifiers())
+				&& !Modifier.isStatic(member.getModifiers())
+				&& isVisible(beanClass)
+				&& isVisible(member.getDeclaringClass());
+	}
+
+	private static Class<?> wrap(Class<?> cls) {
+		return MethodType.methodType(cls).wrap().returnType();
+	}
+
+	/**
+	 * Generated classes link against this class loader, so every class they name
+	 * must be public and resolve to the same class from here.
+	 */
+	private static boolean isVisible(Class<?> cls) {
+		while (cls.isArray()) {
+			cls = cls.getComponentType();
+		}
+		if (cls.isPrimitive()) {
+			return true;
+		} else if (!Modifier.isPublic(cls.getModifiers())) {
+			return false;
+		}
+
+		try {
+			return Class.forName(cls.getName(), false, LambdaAccessorFactory.class.getClassLoader()) == cls;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	private static final class GetterAccessor extends Accessor {
+		private Function<Object, Object> function;
+
+		GetterAccessor(Member member, Function<Object, Object> function) {
+			super(member);
+			this.function = function;
+		}
+
+		@Override
+		Object get(Object target) throws Exception {
+			Function<Object, Object> function = this.function;
+			if (function != null) {
+				try {
+					return function.apply(target);
+				} catch (IllegalAccessError e) {
+					// access is denied at link time
+					this.function = null;
+				}
+			}
+			return super.get(target);
+		}
+	}
+
+	private static final class SetterAccessor extends Accessor {
+		private BiConsumer<Object, Object> consumer;
+		private final boolean primitive;
+
+		SetterAccessor(Member member, BiConsumer<Object, Object> consumer, boolean primitive) {
+			super(member);
+			this.consumer = consumer;
+			this.primitive = primitive;
+		}
+
+		@Override
+		void set(Object target, Object value) throws Exception {
+			BiConsumer<Object, Object> consumer = this.consumer;
+			if (consumer != null && (value != null || !primitive)) {
+				try {
+					consumer.accept(target, value);
+					return;
+				} catch (IllegalAccessError e) {
+					// access is denied at link time
+					this.consumer = null;
+				}
+			}
+			super.set(target, value);
+		}
+	}
+
+	private static final class CreatorAccessor extends Accessor {
+		private Supplier<Object> supplier;
+
+		CreatorAccessor(Member member, Supplier<Object> supplier) {
+			super(member);
+			this.supplier = supplier;
+		}
+
+		@Override
+		Object newInstance() throws Exception {
+			Supplier<Object> supplier = this.supplier;
+			if (supplier != null) {
+				try {
+					return supplier.get();
+				} catch (IllegalAccessError e) {
+					// access is denied at link time
+					this.supplier = null;
+				}
+			}
+			return super.newInstance();
+		}
+	}
+}
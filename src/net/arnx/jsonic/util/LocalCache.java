@@ -15,7 +15,13 @@
  */
 package net.arnx.jsonic.util;
 
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Member;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -30,17 +36,22 @@ import java.util.TimeZone;
 public class LocalCache {
 	private static final int CACHE_SIZE = 256;
 
+	private static final ClassCache<Type> RESOLVED_TYPE_CACHE = ClassCache.newInstance();
+
+	private String bundle;
 	private ResourceBundle resources;
 	private Locale locale;
 	private TimeZone timeZone;
 
 	private StringBuilder builderCache;
+	private char[] charsCache;
 	private int stringCacheCount = 0;
 	private String[] stringCache;
 	private Map<Class<?>, Map<Object, Object>> formatCache;
+	private SymbolTable symbolTable;
 
 	public LocalCache(String bundle, Locale locale, TimeZone timeZone) {
-		this.resources = ResourceBundle.getBundle(bundle, locale);
+		this.bundle = bundle;
 		this.locale = locale;
 		this.timeZone = timeZone;
 	}
@@ -54,6 +65,24 @@ public class LocalCache {
 		return builderCache;
 	}
 
+	public char[] getCachedChars() {
+		if (charsCache == null) {
+			charsCache = new char[1024];
+		}
+		return charsCache;
+	}
+
+	public SymbolTable getSymbolTable() {
+		if (symbolTable == null) {
+			symbolTable = new SymbolTable(CACHE_SIZE);
+		}
+		return symbolTable;
+	}
+
+	public void setSymbolTable(SymbolTable symbolTable) {
+		this.symbolTable = symbolTable;
+	}
+
 	public String getString(CharSequence cs) {
 		if (cs.length() == 0) return "";
 
@@ -123,7 +152,65 @@ public class LocalCache {
 	}
 
 	public Type getResolvedType(Type ptype, Class<?> pcls, Type type) {
-		return get(Type.class, new ParameterTypeKey(ptype, pcls, type), ResolvedTypeProvider.INSTANCE);
+		ClassLoader cl = pcls.getClassLoader();
+		if (!isVisible(cl, ptype) || !isVisible(cl, type)) {
+			return get(Type.class, new ParameterTypeKey(ptype, pcls, type), ResolvedTypeProvider.INSTANCE);
+		}
+
+		ParameterTypeKey key = new ParameterTypeKey(ptype, pcls, type);
+		Type resolved = RESOLVED_TYPE_CACHE.get(pcls, key);
+		if (resolved == null) {
+			resolved = ClassUtil.getResolvedType(ptype, pcls, type);
+			if (resolved != null) {
+				resolved = RESOLVED_TYPE_CACHE.putIfAbsent(pcls, key, resolved);
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * Checks that all classes referred by the type are loaded by the class loader or its ancestors,
+	 * so that a process-wide cache entry does not keep other class loaders reachable.
+	 */
+	private static boolean isVisible(ClassLoader cl, Type type) {
+		if (type instanceof Class<?>) {
+			Class<?> c = (Class<?>)type;
+			while (c.isArray()) c = c.getComponentType();
+			ClassLoader target = c.getClassLoader();
+			if (target == null) return true;
+			for (ClassLoader current = cl; current != null; current = current.getParent()) {
+				if (current == target) return true;
+			}
+			return false;
+		} else if (type instanceof ParameterizedType) {
+			ParameterizedType ptype = (ParameterizedType)type;
+			if (!isVisible(cl, ptype.getRawType())) return false;
+			if (ptype.getOwnerType() != null && !isVisible(cl, ptype.getOwnerType())) return false;
+			for (Type arg : ptype.getActualTypeArguments()) {
+				if (!isVisible(cl, arg)) return false;
+			}
+			return true;
+		} else if (type instanceof GenericArrayType) {
+			return isVisible(cl, ((GenericArrayType)type).getGenericComponentType());
+		} else if (type instanceof WildcardType) {
+			WildcardType wtype = (WildcardType)type;
+			for (Type bound : wtype.getUpperBounds()) {
+				if (!isVisible(cl, bound)) return false;
+			}
+			for (Type bound : wtype.getLowerBounds()) {
+				if (!isVisible(cl, bound)) return false;
+			}
+			return true;
+		} else if (type instanceof TypeVariable<?>) {
+			GenericDeclaration gd = ((TypeVariable<?>)type).getGenericDeclaration();
+			if (gd instanceof Class<?>) {
+				return isVisible(cl, (Class<?>)gd);
+			} else if (gd instanceof Member) {
+				return isVisible(cl, ((Member)gd).getDeclaringClass());
+			}
+			return false;
+		}
+		return false;
 	}
 
 	public String getMessage(String id) {
@@ -131,6 +218,10 @@ public class LocalCache {
 	}
 
 	public String getMessage(String id, Object... args) {
+		if (resources == null) {
+			resources = ResourceBundle.getBundle(bundle, locale);
+		}
+
 		if (args != null && args.length > 0) {
 			return MessageFormat.format(resources.getString(id), args);
 		} else {
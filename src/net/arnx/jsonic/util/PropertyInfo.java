@@ -32,6 +32,9 @@ public class PropertyInfo implements Comparable<PropertyInfo> {
 	Method writeMethod;
 	int ordinal;
 
+	private volatile Accessor reader;
+	private volatile Accessor writer;
+
 	public PropertyInfo(Class<?> beanClass, String name, Field field, Method readMethod, Method writeMethod, boolean isStatic) {
 		this(beanClass, name, field, readMethod, writeMethod, isStatic, -1);
 	}
@@ -116,13 +119,18 @@ public class PropertyInfo implements Comparable<PropertyInfo> {
 
 	public Object get(Object target) {
 		try {
-			if (readMethod != null) {
-				return readMethod.invoke(target, (Object[])null);
-			} else if (field != null) {
-				return field.get(target);
-			} else {
-				throw new IllegalStateException(name + " property is not readable.");
+			Accessor reader = this.reader;
+			if (reader == null) {
+				if (readMethod != null) {
+					reader = Accessor.getter(beanClass, readMethod);
+				} else if (field != null) {
+					reader = Accessor.getter(beanClass, field);
+				} else {
+					throw new IllegalStateException(name + " property is not readable.");
+				}
+				this.reader = reader;
 			}
+			return reader.get(target);
 		} catch (InvocationTargetException e) {
 			if (e.getCause() instanceof Error) {
 				throw (Error)e.getCause();
@@ -184,13 +192,18 @@ public class PropertyInfo implements Comparable<PropertyInfo> {
 
 	public void set(Object target, Object value) {
 		try {
-			if (writeMethod != null) {
-				writeMethod.invoke(target, value);
-			} else if (field != null && !Modifier.isFinal(field.getModifiers())) {
-				field.set(target, value);
-			} else {
-				throw new IllegalStateException(name + " property is not writable.");
+			Accessor writer = this.writer;
+			if (writer == null) {
+				if (writeMethod != null) {
+					writer = Accessor.setter(beanClass, writeMethod);
+				} else if (field != null && !Modifier.isFinal(field.getModifiers())) {
+					writer = Accessor.setter(beanClass, field);
+				} else {
+					throw new IllegalStateException(name + " property is not writable.");
+				}
+				this.writer = writer;
 			}
+			writer.set(target, value);
 		} catch (InvocationTargetException e) {
 			if (e.getCause() instanceof Error) {
 				throw (Error)e.getCause();
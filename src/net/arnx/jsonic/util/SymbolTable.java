@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 Hidekatsu Izuno
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.arnx.jsonic.util;
+
+/**
+ * A bounded table of interned strings for object keys.
+ *
+ * Lookups hash the full char range and probe a small window of an open
+ * addressed array. When the window is full, the home slot is replaced,
+ * so the table never grows beyond its capacity. An instance may be shared
+ * by concurrent parsers: slots hold immutable strings, and a lost update
+ * only costs a later miss.
+ */
+public final class SymbolTable {
+	private static final int MAX_PROBES = 8;
+	private static final int MAX_LENGTH = 128;
+
+	private final String[] symbols;
+	private final int mask;
+
+	/**
+	 * Creates a symbol table.
+	 *
+	 * @param capacity the maximum number of symbols, rounded up to a power of two
+	 */
+	public SymbolTable(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+
+		int size = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) - 1) << 1;
+		this.symbols = new String[size];
+		this.mask = size - 1;
+	}
+
+	public int getCapacity() {
+		return symbols.length;
+	}
+
+	public String get(char[] cbuf, int start, int end) {
+		int len = end - start;
+		if (len > MAX_LENGTH) {
+			return new String(cbuf, start, len);
+		}
+
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + cbuf[i];
+		}
+
+		int index = (h ^ (h >>> 16)) & mask;
+		int empty = -1;
+		for (int i = 0; i < MAX_PROBES; i++) {
+			int pos = (index + i) & mask;
+			String symbol = symbols[pos];
+			if (symbol == null) {
+				if (empty == -1) empty = pos;
+			} else if (symbol.hashCode() == h && symbol.length() == len && equals(symbol, cbuf, start)) {
+				return symbol;
+			}
+		}
+
+		String symbol = new String(cbuf, start, len);
+		symbols[(empty != -1) ? empty : index] = symbol;
+		return symbol;
+	}
+
+	public String get(CharSequence cs, int start, int end) {
+		int len = end - start;
+		if (len > MAX_LENGTH) {
+			return cs.subSequence(start, end).toString();
+		}
+
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + cs.charAt(i);
+		}
+
+		int index = (h ^ (h >>> 16)) & mask;
+		int empty = -1;
+		for (int i = 0; i < MAX_PROBES; i++) {
+			int pos = (index + i) & mask;
+			String symbol = symbols[pos];
+			if (symbol == null) {
+				if (empty == -1) empty = pos;
+			} else if (symbol.hashCode() == h && symbol.length() == len && equals(symbol, cs, start)) {
+				return symbol;
+			}
+		}
+
+		String symbol = cs.subSequence(start, end).toString();
+		symbols[(empty != -1) ? empty : index] = symbol;
+		return symbol;
+	}
+
+	public void clear() {
+		for (int i = 0; i < symbols.length; i++) {
+			symbols[i] = null;
+		}
+	}
+
+	private static boolean equals(String symbol, char[] cbuf, int start) {
+		for (int i = 0; i < symbol.length(); i++) {
+			if (symbol.charAt(i) != cbuf[start + i]) return false;
+		}
+		return true;
+	}
+
+	private static boolean equals(String symbol, CharSequence cs, int start) {
+		for (int i = 0; i < symbol.length(); i++) {
+			if (symbol.charAt(i) != cs.charAt(start + i)) return false;
+		}
+		return true;
+	}
+}
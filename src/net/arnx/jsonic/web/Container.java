@@ -437,6 +437,9 @@ public class Container {
 				if (processor.numberFormat != null) json.setNumberFormat(processor.numberFormat);
 				if (processor.propertyStyle != null) json.setPropertyStyle(processor.propertyStyle);
 				if (processor.enumStyle != null) json.setEnumStyle(processor.enumStyle);
+				if (processor.flushCount != null) json.setFlushCount(processor.flushCount);
+				if (processor.flushSize != null) json.setFlushSize(processor.flushSize);
+				if (processor.flushTime != null) json.setFlushTime(processor.flushTime);
 			} catch (Exception e) {
 				throw new ServletException(e);
 			}
@@ -594,5 +597,12 @@ public class Container {
 		public String numberFormat;
 		public NamingStyle propertyStyle;
 		public NamingStyle enumStyle;
+
+		// Flushing sends partial output of a long array while it is written. It is off by
+		// default, because an error after the first flush can no longer change the response
+		// status, so the client receives a truncated body with 200.
+		public Integer flushCount;
+		public Integer flushSize;
+		public Long flushTime;
 	}
 }
\ No newline at end of file
@@ -16,9 +16,12 @@
 package net.arnx.jsonic.web;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Enumeration;
@@ -204,6 +207,38 @@ public class GatewayFilter implements Filter {
 		locations = null;
 	}
 	
+	// GZIPOutputStream(OutputStream, boolean) of Java 7 or later
+	private static final Constructor<GZIPOutputStream> SYNC_FLUSH_CONSTRUCTOR;
+
+	static {
+		Constructor<GZIPOutputStream> constructor = null;
+		try {
+			constructor = GZIPOutputStream.class.getConstructor(OutputStream.class, boolean.class);
+		} catch (Exception e) {
+			// no handle
+		}
+		SYNC_FLUSH_CONSTRUCTOR = constructor;
+	}
+
+	/**
+	 * Creates a GZIPOutputStream whose flush() sends all data written so far (syncFlush).
+	 * On Java 6, flush() sends only the data which is already compressed, so the output
+	 * flushed by JSON#setFlushTime and others may be delayed until the end of the response.
+	 */
+	static GZIPOutputStream createGZIPOutputStream(OutputStream out) throws IOException {
+		if (SYNC_FLUSH_CONSTRUCTOR != null) {
+			try {
+				return SYNC_FLUSH_CONSTRUCTOR.newInstance(out, true);
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+				throw new IllegalStateException(e.getCause());
+			} catch (Exception e) {
+				// no handle
+			}
+		}
+		return new GZIPOutputStream(out);
+	}
+
 	class GZIPResponse extends HttpServletResponseWrapper {
 		ServletOutputStream out = null;
 		PrintWriter writer = null;
@@ -216,7 +251,7 @@ public class GatewayFilter implements Filter {
 		public ServletOutputStream getOutputStream() throws IOException {
 			if (out == null) {
 				out = new ServletOutputStream() {
-					GZIPOutputStream cout = new GZIPOutputStream(GZIPResponse.super.getOutputStream());
+					GZIPOutputStream cout = createGZIPOutputStream(GZIPResponse.super.getOutputStream());
 					
 					@Override
 					public void write(byte[] b, int off, int len) throws IOException {
@@ -21,10 +21,18 @@ import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
@@ -233,6 +241,53 @@ public class JSONJava8Test {
 				+ "}", PathBean.class));
 	}
 
+	@Test
+	public void testStream() {
+		assertEquals("[\"a\",null,1]", JSON.encode(Stream.of("a", null, 1)));
+		assertEquals("[0,1,2]", JSON.encode(IntStream.range(0, 3)));
+		assertEquals("[]", JSON.encode(LongStream.empty()));
+		assertEquals("[1.5,2.0]", JSON.encode(DoubleStream.of(1.5, 2.0)));
+		assertEquals("{\"a\":[1,2]}", JSON.encode(Collections.singletonMap("a", Stream.of(1, 2))));
+
+		// infinite streams are consumed lazily
+		final AtomicInteger closed = new AtomicInteger();
+		Stream<Integer> stream = Stream.iterate(0, new UnaryOperator<Integer>() {
+			@Override
+			public Integer apply(Integer t) {
+				return t + 1;
+			}
+		}).limit(100000).onClose(new Runnable() {
+			@Override
+			public void run() {
+				closed.incrementAndGet();
+			}
+		});
+		String text = JSON.encode(stream);
+		assertTrue(text.startsWith("[0,1,2,"));
+		assertTrue(text.endsWith(",99999]"));
+		assertEquals(1, closed.get());
+
+		JSON json = new JSON();
+		json.setPrettyPrint(true);
+		assertEquals(json.format(Arrays.asList(1, 2)), json.format(IntStream.of(1, 2)));
+	}
+
+	@Test
+	public void testFormatLinesStream() throws Exception {
+		JSON json = new JSON();
+		final AtomicInteger closed = new AtomicInteger();
+		Stream<Object> stream = Stream.<Object>of("a", null, Arrays.asList(1, 2)).onClose(new Runnable() {
+			@Override
+			public void run() {
+				closed.incrementAndGet();
+			}
+		});
+		assertEquals("\"a\"\nnull\n[1,2]\n", json.formatLines(stream, new StringBuilder()).toString());
+		assertEquals(1, closed.get());
+
+		assertEquals("0\n1\n2\n", json.formatLines(IntStream.range(0, 3), new StringBuilder()).toString());
+	}
+
 	public static class Java8DataTimeAPIBean {
 		public Duration duration;
 		public Instant instant;
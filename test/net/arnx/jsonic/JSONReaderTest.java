@@ -2,10 +2,21 @@ package net.arnx.jsonic;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import net.arnx.jsonic.io.InputSource;
+import net.arnx.jsonic.io.StringInputSource;
+import net.arnx.jsonic.parse.JSONParser;
+import net.arnx.jsonic.util.LocalCache;
 
 import org.junit.Test;
 
@@ -25,6 +36,42 @@ public class JSONReaderTest {
 		testGetReader(JSON.Mode.STRICT);
 	}
 
+	@Test
+	public void testGetValueBinding() throws Exception {
+		JSON json = new JSON();
+		JSONReader reader = json.getReader("{\"value\": \"a\", \"unknown\": [1, {\"x\": [2]}], \"child\": {\"value\": \"a1\"}} /* c */ "
+				+ "[{\"value\": \"b\"}, {\"value\": \"c\"}] {\"x\": [1, 2], \"y\": []} [[1, 2], [3]] 10", false);
+
+		assertEquals(JSONEventType.START_OBJECT, reader.next());
+		assertEquals(new ReaderBean("a", new ReaderBean("a1", null)), reader.getValue(ReaderBean.class));
+
+		JSONEventType type;
+		while ((type = reader.next()) == JSONEventType.WHITESPACE || type == JSONEventType.COMMENT);
+		assertEquals(JSONEventType.START_ARRAY, type);
+		@SuppressWarnings("unchecked")
+		List<ReaderBean> beans = (List<ReaderBean>)reader.getValue(new TypeReference<List<ReaderBean>>() {});
+		assertEquals(2, beans.size());
+		assertEquals(new ReaderBean("b", null), beans.get(0));
+		assertEquals(new ReaderBean("c", null), beans.get(1));
+
+		while ((type = reader.next()) == JSONEventType.WHITESPACE);
+		@SuppressWarnings("unchecked")
+		Map<String, int[]> map = (Map<String, int[]>)reader.getValue(new TypeReference<Map<String, int[]>>() {});
+		assertEquals(2, map.size());
+		assertArrayEquals(new int[] { 1, 2 }, map.get("x"));
+		assertArrayEquals(new int[0], map.get("y"));
+
+		while ((type = reader.next()) == JSONEventType.WHITESPACE);
+		Integer[][] array = reader.getValue(Integer[][].class);
+		assertEquals(2, array.length);
+		assertArrayEquals(new Integer[] { 1, 2 }, array[0]);
+		assertArrayEquals(new Integer[] { 3 }, array[1]);
+
+		while ((type = reader.next()) == JSONEventType.WHITESPACE);
+		assertEquals(Integer.valueOf(10), reader.getValue(Integer.class));
+		assertNull(reader.next());
+	}
+
 	private void testGetReader(JSON.Mode mode) throws Exception {
 		List<Object> list = new ArrayList<Object>();
 		JSONEventType type;
@@ -196,6 +243,207 @@ public class JSONReaderTest {
 			assertEquals(" \n\n ", list.get(17));
 		}
 	}
+
+	@Test
+	public void testPushReader() throws Exception {
+		String text = "{\"a\\u3042\\n\": [1.5e-3, -0, 12345678901234567890, true, false, null],"
+				+ " \"あ𠮷\": \"x\\\"y\", \"b\": {}} [] 100 \"z\"";
+
+		for (JSON.Mode mode : JSON.Mode.values()) {
+			JSON json = new JSON(mode);
+			boolean ignoreWhitespace = (mode == JSON.Mode.STRICT);
+			String input = ignoreWhitespace ? text : text + " /* c */ // d\n -1";
+
+			List<Object> expected = new ArrayList<Object>();
+			JSONReader reader = json.getReader(input, ignoreWhitespace);
+			JSONEventType type;
+			while ((type = reader.next()) != null) {
+				expected.add(type);
+				expected.add(type == JSONEventType.NUMBER ? reader.getNumber()
+						: type == JSONEventType.BOOLEAN ? reader.getBoolean() : reader.getString());
+			}
+
+			// one char at a time
+			JSONPushReader preader = json.getPushReader(ignoreWhitespace);
+			List<Object> actual = new ArrayList<Object>();
+			char[] chars = input.toCharArray();
+			for (int i = 0; i < chars.length; i++) {
+				preader.feed(chars, i, 1);
+				readPushEvents(preader, actual);
+			}
+			preader.endOfInput();
+			readPushEvents(preader, actual);
+			assertEquals(mode.toString(), expected, actual);
+
+			// one byte at a time
+			preader = json.getPushReader(ignoreWhitespace);
+			actual.clear();
+			byte[] bytes = input.getBytes("UTF-8");
+			for (int i = 0; i < bytes.length; i++) {
+				preader.feed(ByteBuffer.wrap(bytes, i, 1));
+				readPushEvents(preader, actual);
+			}
+			preader.endOfInput();
+			readPushEvents(preader, actual);
+			assertEquals(mode.toString(), expected, actual);
+		}
+
+		JSONPushReader preader = new JSON().getPushReader();
+		assertEquals(JSONEventType.NEED_MORE_INPUT, preader.next());
+		preader.feed("[12".toCharArray(), 0, 3);
+		assertEquals(JSONEventType.START_ARRAY, preader.next());
+		assertEquals(JSONEventType.NEED_MORE_INPUT, preader.next());
+		preader.feed("3]".toCharArray(), 0, 2);
+		assertEquals(JSONEventType.NUMBER, preader.next());
+		assertEquals(new BigDecimal("123"), preader.getNumber());
+		assertEquals(JSONEventType.END_ARRAY, preader.next());
+		assertEquals(JSONEventType.NEED_MORE_INPUT, preader.next());
+		preader.endOfInput();
+		assertNull(preader.next());
+
+		preader = new JSON(JSON.Mode.STRICT).getPushReader();
+		preader.feed("[1,]".toCharArray(), 0, 4);
+		preader.endOfInput();
+		try {
+			while (preader.next() != null);
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void testParserPlainInputSource() throws Exception {
+		String text = "{\"a\": 1, \"b\\u0041\": {\"a\": 2}, \"\": 3}";
+
+		// an input source which does not implement SymbolInputSource
+		final InputSource base = new StringInputSource(text);
+		InputSource in = new InputSource() {
+			public int next() throws IOException { return base.next(); }
+			public void back() { base.back(); }
+			public long getLineNumber() { return base.getLineNumber(); }
+			public long getColumnNumber() { return base.getColumnNumber(); }
+			public long getOffset() { return base.getOffset(); }
+			public int mark() throws IOException { return base.mark(); }
+			public void copy(StringBuilder sb, int len) { base.copy(sb, len); }
+			public String copy(int len) { return base.copy(len); }
+		};
+
+		List<Object> expected = new ArrayList<Object>();
+		JSONParser parser = new JSONParser(new StringInputSource(text), 32, true, true, JSON.NumberMode.BIG_DECIMAL,
+				new LocalCache("net.arnx.jsonic.Messages", Locale.ENGLISH, TimeZone.getDefault()));
+		for (JSONEventType type = parser.next(); type != null; type = parser.next()) {
+			expected.add(type);
+			expected.add(parser.getValue());
+		}
+
+		List<Object> actual = new ArrayList<Object>();
+		parser = new JSONParser(in, 32, true, true, JSON.NumberMode.BIG_DECIMAL,
+				new LocalCache("net.arnx.jsonic.Messages", Locale.ENGLISH, TimeZone.getDefault()));
+		for (JSONEventType type = parser.next(); type != null; type = parser.next()) {
+			actual.add(type);
+			actual.add(parser.getValue());
+		}
+
+		assertEquals(expected, actual);
+		assertTrue(actual.containsAll(Arrays.asList("a", "bA", "")));
+	}
+
+	@Test
+	public void testPushReaderLongToken() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200000; i++) {
+			sb.append((char)('a' + i % 26));
+		}
+		String value = sb.toString();
+		String input = "[\"" + value + "\\\"\", /* " + value + " */ \"" + value + "\"]";
+
+		JSONPushReader preader = new JSON().getPushReader(false);
+		List<Object> actual = new ArrayList<Object>();
+		char[] chars = input.toCharArray();
+		for (int i = 0; i < chars.length; i += 100) {
+			preader.feed(chars, i, Math.min(100, chars.length - i));
+			readPushEvents(preader, actual);
+		}
+		preader.endOfInput();
+		readPushEvents(preader, actual);
+
+		List<Object> expected = new ArrayList<Object>();
+		JSONReader reader = new JSON().getReader(input, false);
+		JSONEventType type;
+		while ((type = reader.next()) != null) {
+			expected.add(type);
+			expected.add(reader.getString());
+		}
+		assertEquals(14, expected.size());
+		assertEquals(value + "\"", expected.get(3));
+		assertEquals(expected, actual);
+
+		// an unclosed string is reported at the end of input
+		preader = new JSON().getPushReader();
+		preader.feed(chars, 0, 1000);
+		assertEquals(JSONEventType.START_ARRAY, preader.next());
+		assertEquals(JSONEventType.NEED_MORE_INPUT, preader.next());
+		preader.feed(chars, 1000, 1000);
+		assertEquals(JSONEventType.NEED_MORE_INPUT, preader.next());
+		preader.endOfInput();
+		try {
+			preader.next();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void testPushReaderMultilineMode() throws Exception {
+		char[] chars = "[1] 2".toCharArray();
+
+		// reads a sequence of root values by default
+		JSONPushReader preader = new JSON().getPushReader();
+		preader.feed(chars, 0, chars.length);
+		preader.endOfInput();
+		List<Object> actual = new ArrayList<Object>();
+		readPushEvents(preader, actual);
+		assertEquals(Arrays.asList(JSONEventType.START_ARRAY, null, JSONEventType.NUMBER, new BigDecimal("1"),
+				JSONEventType.END_ARRAY, null, JSONEventType.NUMBER, new BigDecimal("2")), actual);
+
+		preader = new JSON().getPushReader();
+		preader.endOfInput();
+		assertNull(preader.next());
+
+		// reads exactly one root value
+		preader = new JSON().getPushReader(false, true);
+		preader.feed(chars, 0, chars.length);
+		preader.endOfInput();
+		assertEquals(JSONEventType.START_ARRAY, preader.next());
+		assertEquals(JSONEventType.NUMBER, preader.next());
+		assertEquals(JSONEventType.END_ARRAY, preader.next());
+		try {
+			preader.next();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+
+		preader = new JSON(JSON.Mode.STRICT).getPushReader(false, true);
+		preader.endOfInput();
+		try {
+			preader.next();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+	}
+
+	private static void readPushEvents(JSONPushReader reader, List<Object> list) throws Exception {
+		JSONEventType type;
+		while ((type = reader.next()) != null && type != JSONEventType.NEED_MORE_INPUT) {
+			list.add(type);
+			list.add(type == JSONEventType.NUMBER ? reader.getNumber()
+					: type == JSONEventType.BOOLEAN ? reader.getBoolean() : reader.getString());
+		}
+	}
 }
 
 class ReaderBean {
@@ -246,4 +494,4 @@ class ReaderBean {
 	public String toString() {
 		return "ReaderBean [value=" + value + ", child=" + child + "]";
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -33,18 +33,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.ListIterator;
 import java.util.Properties;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.UUID;
 import java.util.Vector;
@@ -62,8 +66,11 @@ import javax.xml.parsers.DocumentBuilderFactory;
 
 import net.arnx.jsonic.JSON;
 import net.arnx.jsonic.JSON.Mode;
+import net.arnx.jsonic.parse.LazyNumber;
 import net.arnx.jsonic.util.ClassUtil;
+import net.arnx.jsonic.util.CompactMap;
 import net.arnx.jsonic.util.ExtendedDateFormat;
+import net.arnx.jsonic.util.SymbolTable;
 
 import org.junit.Test;
 import org.seasar.framework.util.ReaderUtil;
@@ -1868,8 +1875,1268 @@ public class JSONTest {
 	@Test
 	public void testValidate() throws Exception {
 		JSON.validate(this.getClass().getResourceAsStream("Sample1.json"));
+		JSON.validate("{\"a\": [1, -2.5e3, \"\\u3042\\n\", {\"b\": null}], \"c\": true}");
+		JSON.validate(new StringBuilder(" [] "));
+		JSON.validate(new StringReader("\"a\""));
+
+		for (String text : new String[] { "", "{", "[1,]", "{\"a\" 1}", "[1] [2]", "[\"a]", "[tru]", "{'a': 1}" }) {
+			try {
+				JSON.validate(text);
+				fail(text);
+			} catch (JSONException e) {
+				assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+			}
+		}
+	}
+
+	@Test
+	public void testSkipValue() throws Exception {
+		String text = "[{\"a\": [1, {\"b\": \"x\"}], \"c\": 2}, 3, [4, [5]], {}]";
+
+		JSONReader reader = new JSON().getReader(text);
+		assertEquals(JSONEventType.START_ARRAY, reader.next());
+		assertEquals(JSONEventType.START_OBJECT, reader.next());
+		reader.skipValue();
+		assertEquals(JSONEventType.NUMBER, reader.next());
+		assertEquals(new BigDecimal("3"), reader.getNumber());
+		reader.skipValue();
+		assertEquals(JSONEventType.START_ARRAY, reader.next());
+		reader.skipValue();
+		assertEquals(JSONEventType.START_OBJECT, reader.next());
+		assertEquals(JSONEventType.END_OBJECT, reader.next());
+		assertEquals(JSONEventType.END_ARRAY, reader.next());
+		assertNull(reader.next());
+
+		reader = new JSON().getReader(text, false);
+		assertEquals(JSONEventType.START_ARRAY, reader.next());
+		assertEquals(JSONEventType.START_OBJECT, reader.next());
+		reader.skipValue();
+		assertEquals(JSONEventType.WHITESPACE, reader.next());
+		assertEquals(JSONEventType.NUMBER, reader.next());
+
+		reader = new JSON().getReader("[{\"a\": [1}]");
+		assertEquals(JSONEventType.START_ARRAY, reader.next());
+		assertEquals(JSONEventType.START_OBJECT, reader.next());
+		try {
+			reader.skipValue();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+
+		// unknown properties are skipped while binding
+		ProjectionItem item = new JSON().parse("{\"id\": 1, \"y\": {\"z\": [1, 2, {}]}, \"x\": \"a\"}", ProjectionItem.class);
+		assertEquals(1, item.id);
+		assertEquals("a", item.x);
+	}
+
+	@Test
+	public void testFreeze() throws Exception {
+		JSON json = new JSON();
+		json.setPrettyPrint(true);
+		assertFalse(json.isFrozen());
+		assertSame(json, json.freeze());
+		assertTrue(json.isFrozen());
+
+		try {
+			json.setPrettyPrint(false);
+			fail();
+		} catch (IllegalStateException e) {
+			assertNotNull(e.getMessage());
+		}
+
+		assertEquals("[\n\t1,\n\t2\n]", json.format(Arrays.asList(1, 2)));
+		assertEquals(Arrays.asList(new BigDecimal("1"), new BigDecimal("2")), json.parse("[1, 2]"));
+
+		try {
+			json.parse("[1, 2");
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void testFreezeReaderThread() throws Exception {
+		final JSON json = new JSON().freeze();
+
+		// a returned reader does not share the cache of the creating thread
+		JSONReader reader = json.getReader("[]");
+		assertNotSame(json.new Context().getLocalCache(), reader.getContext().getLocalCache());
+		assertSame(json.new Context().getLocalCache(), json.new Context().getLocalCache());
+
+		final int count = 20000;
+		final JSONPushReader preader = json.getPushReader();
+		final List<String> actual = new ArrayList<String>();
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					StringBuilder sb = new StringBuilder();
+					for (int i = 0; i < count; i++) {
+						sb.setLength(0);
+						sb.append("\"value").append(i).append("\\n\" ");
+						char[] chars = sb.toString().toCharArray();
+						preader.feed(chars, 0, chars.length);
+						JSONEventType type;
+						while ((type = preader.next()) != JSONEventType.NEED_MORE_INPUT) {
+							if (type == JSONEventType.STRING) actual.add(preader.getString());
+						}
+					}
+					preader.endOfInput();
+					while (preader.next() != null) {
+						actual.add(preader.getString());
+					}
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		while (thread.isAlive()) {
+			assertEquals("other\n", json.parse("\"other\\n\""));
+		}
+		thread.join();
+
+		assertNull(error[0]);
+		assertEquals(count, actual.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals("value" + i + "\n", actual.get(i));
+		}
+	}
+
+	@Test
+	public void testEncodeLongString() throws Exception {
+		String chars = "abcdefgh\"\\/\n\t<>\u2028\u2029\u3042\u0001\u007F";
+		Random random = new Random(0);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append(chars.charAt(random.nextInt(chars.length())));
+		}
+		String text = sb.toString();
+
+		for (Mode mode : Mode.values()) {
+			StringBuilder expected = new StringBuilder("\"");
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				switch (c) {
+				case '"': expected.append("\\\""); break;
+				case '\\': expected.append("\\\\"); break;
+				case '\n': expected.append("\\n"); break;
+				case '\t': expected.append("\\t"); break;
+				case '<':
+				case '>':
+					if (mode == Mode.STRICT) {
+						expected.append(c);
+					} else {
+						expected.append(String.format("\\u%04X", (int)c));
+					}
+					break;
+				case '\u2028':
+				case '\u2029':
+				case '\u0001':
+				case '\u007F':
+					expected.append(String.format("\\u%04X", (int)c));
+					break;
+				default:
+					expected.append(c);
+				}
+			}
+			expected.append('"');
+
+			JSON json = new JSON(mode);
+			assertEquals(expected.toString(), json.format(text));
+			assertEquals(text, json.parse(json.format(Arrays.asList(text)), String[].class)[0]);
+		}
+	}
+
+	@Test
+	public void testEncodePropertyNames() throws Exception {
+		EscapedNameBean bean = new EscapedNameBean();
+		bean.a = 1;
+		bean.b = "x";
+
+		JSON json = new JSON();
+		assertEquals("{\"a\\u003Cb\":1,\"b\":\"x\"}", json.format(bean));
+		json.setPrettyPrint(true);
+		assertEquals("{\n\t\"a\\u003Cb\": 1,\n\t\"b\": \"x\"\n}", json.format(bean));
+
+		json = new JSON(Mode.STRICT);
+		assertEquals("{\"a<b\":1,\"b\":\"x\"}", json.format(bean));
+		json.setPrettyPrint(true);
+		assertEquals("{\n\t\"a<b\": 1,\n\t\"b\": \"x\"\n}", json.format(bean));
+
+		bean.b = null;
+		json.setSuppressNull(true);
+		assertEquals("{\n\t\"a<b\": 1\n}", json.format(bean));
+	}
+
+	public static class EscapedNameBean {
+		@JSONHint(name = "a<b", ordinal = 0)
+		public int a;
+		@JSONHint(ordinal = 1)
+		public String b;
+	}
+
+	@Test
+	public void testEncodeIntegers() throws Exception {
+		assertEquals("[0,-1,32767,-32768]", JSON.encode(new short[] { 0, -1, Short.MAX_VALUE, Short.MIN_VALUE }));
+		assertEquals("[2147483647,-2147483648]", JSON.encode(new int[] { Integer.MAX_VALUE, Integer.MIN_VALUE }));
+		assertEquals("[9223372036854775807,-9223372036854775808,12]", JSON.encode(new long[] { Long.MAX_VALUE, Long.MIN_VALUE, 12L }));
+		assertEquals("[1,-2,3,4]", JSON.encode(Arrays.asList(1, (short)-2, 3L, new BigInteger("4"))));
+
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("id", 1234567890123L);
+		assertEquals("{\"id\":1234567890123}", JSON.encode(map));
+
+		JSON json = new JSON();
+		json.setNumberFormat("#,##0");
+		assertEquals("[\"1,234\",\"5,678\"]", json.format(Arrays.asList(1234, 5678L)));
+	}
+
+	@Test
+	public void testEncodeToBytes() throws Exception {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("ascii", "abc");
+		map.put("text", "\u00e9\u3042\ud842\udfb7");
+		map.put("list", Arrays.asList(1, 2));
+
+		String expected = JSON.encode(map);
+		assertArrayEquals(expected.getBytes("UTF-8"), JSON.encodeToBytes(map));
+		assertArrayEquals(JSON.encode(map, true).getBytes("UTF-8"), JSON.encodeToBytes(map, true));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JSON.encode(map, out);
+		assertEquals(expected, new String(out.toByteArray(), "UTF-8"));
+
+		out.reset();
+		JSONWriter writer = new JSON().getWriter(out);
+		writer.beginArray().value("\u3042").endArray().flush();
+		assertEquals("[\"\u3042\"]", new String(out.toByteArray(), "UTF-8"));
+	}
+
+	@Test
+	public void testNumberMode() throws Exception {
+		String text = "[0,-12,9223372036854775807,9223372036854775808,1.5,-2.5e-3,1e400,12345678901234567890.5]";
+
+		JSON json = new JSON();
+		assertEquals(JSON.NumberMode.BIG_DECIMAL, json.getNumberMode());
+		List<?> list = json.parse(text);
+		for (Object o : list) {
+			assertEquals(BigDecimal.class, o.getClass());
+		}
+
+		json.setNumberMode(JSON.NumberMode.NATIVE);
+		list = json.parse(text);
+		assertEquals(0L, list.get(0));
+		assertEquals(-12L, list.get(1));
+		assertEquals(Long.MAX_VALUE, list.get(2));
+		assertEquals(new BigDecimal("9223372036854775808"), list.get(3));
+		assertEquals(1.5, list.get(4));
+		assertEquals(-2.5e-3, list.get(5));
+		assertEquals(new BigDecimal("1e400"), list.get(6));
+		assertEquals(new BigDecimal("12345678901234567890.5"), list.get(7));
+
+		json.setNumberMode(JSON.NumberMode.LAZY);
+		list = json.parse(text);
+		assertEquals(LazyNumber.class, list.get(0).getClass());
+		assertEquals(new BigDecimal("1e400"), ((LazyNumber)list.get(6)).toBigDecimal());
+		assertEquals(-0.0025, ((Number)list.get(5)).doubleValue(), 0.0);
+		assertEquals(text, json.format(list));
+
+		for (JSON.NumberMode mode : JSON.NumberMode.values()) {
+			json.setNumberMode(mode);
+			assertArrayEquals(new int[] { 1, -2 }, json.parse("[1, -2]", int[].class));
+			assertEquals(new BigDecimal("1.5"), json.parse("[1.5]", BigDecimal[].class)[0]);
+			assertEquals(Arrays.asList(Long.MAX_VALUE), json.parse("[9223372036854775807]", new TypeReference<List<Long>>() {}));
+			assertArrayEquals(new int[] { 2 }, json.parse("[2.0]", int[].class));
+			assertEquals(-32768, json.parse("[-32768]", short[].class)[0]);
+
+			// out of range or fractional values fail in all modes
+			Object[][] invalids = {
+				{ "[3000000000]", int[].class },
+				{ "[1.5]", int[].class },
+				{ "[70000]", short[].class },
+				{ "[128]", byte[].class },
+				{ "[1.5]", long[].class },
+				{ "[1e19]", long[].class },
+			};
+			for (Object[] invalid : invalids) {
+				try {
+					json.parse((String)invalid[0], (Class<?>)invalid[1]);
+					fail(mode + " " + invalid[0]);
+				} catch (JSONException e) {
+					assertEquals(JSONException.POSTPARSE_ERROR, e.getErrorCode());
+				}
+			}
+
+			JSONReader reader = json.getReader("[1, 2.5]");
+			assertEquals(JSONEventType.START_ARRAY, reader.next());
+			assertEquals(JSONEventType.NUMBER, reader.next());
+			assertEquals(new BigDecimal("1"), reader.getNumber());
+			assertEquals(JSONEventType.NUMBER, reader.next());
+			assertEquals(new BigDecimal("2.5"), reader.getNumber());
+		}
+
+		try {
+			json.setNumberMode(null);
+			fail();
+		} catch (NullPointerException e) {
+			assertNotNull(e);
+		}
+	}
+
+	@Test
+	public void testSymbolTable() throws Exception {
+		JSON json = new JSON();
+		assertNull(json.getSymbolTable());
+
+		SymbolTable symbols = new SymbolTable(64);
+		json.setSymbolTable(symbols);
+		assertSame(symbols, json.getSymbolTable());
+
+		Map<?, ?> map1 = json.parse("{\"name\": 1, \"n\\u0061me2\": 2}");
+		Map<?, ?> map2 = json.parse(new StringReader("{\"name\": 3, \"name2\": 4}"));
+		assertEquals(Arrays.asList("name", "name2"), new ArrayList<Object>(map1.keySet()));
+		assertEquals(Arrays.asList("name", "name2"), new ArrayList<Object>(map2.keySet()));
+		assertSame(map1.keySet().iterator().next(), map2.keySet().iterator().next());
+		assertSame(symbols.get("name2", 0, 5), new ArrayList<Object>(map2.keySet()).get(1));
+
+		JSONReader reader = json.getReader("{\"name\": {\"name\": null}}");
+		assertEquals(JSONEventType.START_OBJECT, reader.next());
+		assertEquals(JSONEventType.NAME, reader.next());
+		assertSame(map1.keySet().iterator().next(), reader.getString());
+
+		// values are not interned
+		List<?> list = json.parse("[\"name\"]");
+		assertEquals("name", list.get(0));
+
+		// a frozen instance keeps a table per thread
+		json = new JSON().freeze();
+		Map<?, ?> map3 = json.parse("{\"a\": 1}");
+		Map<?, ?> map4 = json.parse("{\"a\": 2}");
+		assertSame(map3.keySet().iterator().next(), map4.keySet().iterator().next());
+	}
+
+	@Test
+	public void testProjection() throws Exception {
+		String text = "{\"a\": 1, \"b\": {\"c\": 2, \"d\": [1, 2, {\"e\": \"\\u3042\"}]},"
+				+ " \"items\": [{\"id\": 1, \"x\": \"y\"}, {\"id\": 2, \"x\": \"z\"}], \"a/b\": true}";
+
+		for (JSON.Mode mode : JSON.Mode.values()) {
+			JSON json = new JSON(mode);
+
+			Map<String, Object> expected = new LinkedHashMap<String, Object>();
+			Map<String, Object> b = new LinkedHashMap<String, Object>();
+			b.put("c", new BigDecimal("2"));
+			expected.put("b", b);
+			List<Object> items = new ArrayList<Object>();
+			items.add(Collections.singletonMap("id", new BigDecimal("1")));
+			items.add(Collections.singletonMap("id", new BigDecimal("2")));
+			expected.put("items", items);
+			assertEquals(expected, json.parse(text, Object.class, "b.c", "$.items[*].id"));
+
+			assertEquals(Collections.singletonMap("items", Arrays.asList(Collections.singletonMap("x", "z"))),
+					json.parse(text, Object.class, "/items/1/x"));
+			assertEquals(Collections.singletonMap("a/b", true), json.parse(text, Object.class, "/a~1b"));
+			assertEquals(Collections.singletonMap("a/b", true), json.parse(text, Object.class, "['a/b']"));
+			assertEquals(json.parse(text), json.parse(text, Object.class, "$"));
+			assertEquals(json.parse(text), json.parse(text, Object.class, ""));
+			assertEquals(new LinkedHashMap<Object, Object>(), json.parse(text, Object.class, new String[0]));
+
+			Map<String, Object> merged = json.parse(text, Object.class, "items[0].x", "items[*].id", "b.d[2].*");
+			assertEquals("{\"b\":{\"d\":[{\"e\":\"\u3042\"}]},\"items\":[{\"id\":1,\"x\":\"y\"},{\"id\":2}]}",
+					JSON.encode(merged));
+
+			// a scalar where a container is expected is kept
+			assertEquals(Collections.singletonMap("a", new BigDecimal("1")), json.parse(text, Object.class, "a.z"));
+
+			ProjectionBean bean = json.parse(new StringReader(text), ProjectionBean.class, "a", "items[*].id");
+			assertEquals(1, bean.a);
+			assertNull(bean.b);
+			assertEquals(2, bean.items.size());
+			assertEquals(2, bean.items.get(1).id);
+			assertNull(bean.items.get(1).x);
+
+			try {
+				json.parse("{\"a\": [1, }", Object.class, "b");
+				fail();
+			} catch (JSONException e) {
+				assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+			}
+		}
+
+		for (String path : new String[] { "a..b", "a[", "a[x]", "a['b'", "$a", "a[01]" }) {
+			try {
+				new JSON().parse("{}", Object.class, path);
+				fail(path);
+			} catch (IllegalArgumentException e) {
+				assertNotNull(e);
+			}
+		}
+	}
+
+	@Test
+	public void testJSONLines() throws Exception {
+		JSON json = new JSON();
+		String text = "{\"id\": 1, \"x\": \"a\"}\n\n  {\"id\": 2, \"x\": \"b\\nc\"}\r\n{\"id\": 3}";
+
+		JSONLineIterator<ProjectionItem> items = json.parseLines(text, ProjectionItem.class);
+		assertTrue(items.hasNext());
+		ProjectionItem item = items.next();
+		assertEquals(1, item.id);
+		assertEquals("a", item.x);
+		assertEquals(1, items.getLineNumber());
+		item = items.next();
+		assertEquals(2, item.id);
+		assertEquals("b\nc", item.x);
+		assertEquals(3, items.getLineNumber());
+		item = items.next();
+		assertEquals(3, item.id);
+		assertNull(item.x);
+		assertFalse(items.hasNext());
+		try {
+			items.next();
+			fail();
+		} catch (NoSuchElementException e) {
+			assertNotNull(e);
+		}
+
+		String malformed = "[1]\n[2\n{\"a\": 1} 3\n\"x\"\n[4]\n";
+		List<Object> list = new ArrayList<Object>();
+		JSONLineIterator<Object> values = new JSON(JSON.Mode.STRICT).parseLines(new StringReader(malformed), Object.class);
+		try {
+			for (Object o : values) list.add(o);
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+		assertEquals(Arrays.asList(Arrays.asList(new BigDecimal("1"))), list);
+
+		list.clear();
+		values = new JSON(JSON.Mode.STRICT).parseLines(new StringReader(malformed), Object.class);
+		values.setSkipMalformedLines(true);
+		for (Object o : values) list.add(o);
+		assertEquals(Arrays.asList(Arrays.asList(new BigDecimal("1")), "x", Arrays.asList(new BigDecimal("4"))), list);
+		assertEquals(2, values.getMalformedLineCount());
+
+		JSONLineIterator<Integer> ints = json.parseLines("1\n\"x\"\n3", Integer.class);
+		ints.setSkipMalformedLines(true);
+		assertEquals(Integer.valueOf(1), ints.next());
+		assertEquals(Integer.valueOf(3), ints.next());
+		assertEquals(1, ints.getMalformedLineCount());
+
+		List<Object> source = new ArrayList<Object>();
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("a", Arrays.asList(1, 2));
+		map.put("b", "あ\n");
+		source.add(map);
+		source.add(null);
+		source.add("x");
+		source.add(Arrays.asList());
+
+		json.setPrettyPrint(true);
+		StringBuilder sb = new StringBuilder();
+		json.formatLines(source, sb);
+		assertEquals("{\"a\":[1,2],\"b\":\"あ\\n\"}\nnull\n\"x\"\n[]\n", sb.toString());
+
+		final int[] flushes = new int[1];
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void flush() throws IOException {
+				flushes[0]++;
+			}
+		};
+		json.formatLines(source, out, 2);
+		assertEquals(3, flushes[0]);
+		assertEquals(sb.toString(), new String(out.toByteArray(), "UTF-8"));
+
+		assertEquals(sb.toString(), json.formatLines(source.iterator(), new StringBuilder()).toString());
+		try {
+			json.formatLines(source, new StringBuilder(), -1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			json.formatLines("x", new StringBuilder());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+
+		list.clear();
+		for (Object o : json.parseLines(new ByteArrayInputStream(out.toByteArray()), Object.class)) list.add(o);
+		assertEquals(4, list.size());
+		assertEquals("あ\n", ((Map<?, ?>)list.get(0)).get("b"));
+		assertNull(list.get(1));
+		assertEquals("x", list.get(2));
+
+		File file = File.createTempFile("jsonic", ".jsonl");
+		try {
+			FileOutputStream fout = new FileOutputStream(file);
+			try {
+				json.formatLines(source, fout);
+			} finally {
+				fout.close();
+			}
+
+			JSONLineIterator<Object> fvalues = json.parseLines(file, Object.class);
+			try {
+				list.clear();
+				for (Object o : fvalues) list.add(o);
+				assertEquals(4, list.size());
+			} finally {
+				fvalues.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testJSONLinesParallel() throws Exception {
+		JSON json = new JSON(JSON.Mode.STRICT);
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			if (i % 97 == 0) {
+				sb.append("{\"id\": ").append(i).append(", \"x\": \"");
+				for (int j = 0; j < 100; j++) sb.append("あ");
+				sb.append("\"}\n");
+			} else if (i % 101 == 0) {
+				sb.append("{\"id\": ").append(i).append(",\n");
+			} else if (i % 103 == 0) {
+				sb.append("\r\n");
+			} else {
+				sb.append("{\"id\": ").append(i).append(", \"x\": \"").append(i).append("\"}\n");
+			}
+		}
+		sb.append("{\"id\": 2000}");
+		String text = sb.toString();
+		byte[] bytes = text.getBytes("UTF-8");
+
+		List<Integer> expected = new ArrayList<Integer>();
+		List<Long> expectedLines = new ArrayList<Long>();
+		JSONLineIterator<ProjectionItem> items = json.parseLines(text, ProjectionItem.class);
+		items.setSkipMalformedLines(true);
+		for (ProjectionItem item : items) {
+			expected.add(item.id);
+			expectedLines.add(items.getLineNumber());
+		}
+		assertEquals(19, items.getMalformedLineCount());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int chunkSize : new int[] { 1, 64, 4096, ParallelLineIterator.CHUNK_SIZE }) {
+				for (boolean ordered : new boolean[] { true, false }) {
+					for (boolean stream : new boolean[] { true, false }) {
+						items = new ParallelLineIterator<ProjectionItem>(json,
+								stream ? new ByteArrayInputStream(bytes) : null,
+								stream ? null : new StringReader(text),
+								ProjectionItem.class, null, executor, ordered, chunkSize, 3);
+						items.setSkipMalformedLines(true);
+
+						List<Integer> actual = new ArrayList<Integer>();
+						List<Long> actualLines = new ArrayList<Long>();
+						for (ProjectionItem item : items) {
+							actual.add(item.id);
+							actualLines.add(items.getLineNumber());
+						}
+						assertEquals(19, items.getMalformedLineCount());
+						if (ordered) {
+							assertEquals(expected, actual);
+							assertEquals(expectedLines, actualLines);
+						} else {
+							assertEquals(new HashSet<Integer>(expected), new HashSet<Integer>(actual));
+							assertEquals(expected.size(), actual.size());
+						}
+					}
+				}
+			}
+
+			items = json.parseLines(new ByteArrayInputStream(bytes), ProjectionItem.class, executor, true);
+			List<Integer> actual = new ArrayList<Integer>();
+			try {
+				for (ProjectionItem item : items) actual.add(item.id);
+				fail();
+			} catch (JSONException e) {
+				assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+			}
+			assertEquals(expected.subList(0, 101), actual);
+			assertFalse(items.hasNext());
+
+			items = json.parseLines(new StringReader(text), ProjectionItem.class, executor, false);
+			assertTrue(items.hasNext());
+			items.close();
+			assertFalse(items.hasNext());
+		} finally {
+			executor.shutdown();
+		}
 	}
 
+	@Test
+	public void testJSONLinesParallelThroughput() throws Exception {
+		// reports the throughput of 1..N workers; the numbers depend on the machine and are only printed
+		JSON json = new JSON(JSON.Mode.STRICT);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 4 * 1024 * 1024; i++) {
+			sb.append("{\"id\": ").append(i).append(", \"x\": \"abc\\u3042").append(i).append("\", \"y\": [1.5, true, null]}\n");
+		}
+		byte[] bytes = sb.toString().getBytes("UTF-8");
+		double mb = bytes.length / (1024.0 * 1024.0);
+
+		for (int workers = 0; workers <= Runtime.getRuntime().availableProcessors(); workers++) {
+			ExecutorService executor = (workers > 0) ? Executors.newFixedThreadPool(workers) : null;
+			try {
+				long best = Long.MAX_VALUE;
+				for (int round = 0; round < 3; round++) {
+					long start = System.nanoTime();
+					JSONLineIterator<ProjectionItem> items = (executor != null)
+							? json.parseLines(new ByteArrayInputStream(bytes), ProjectionItem.class, executor, true)
+							: json.parseLines(new ByteArrayInputStream(bytes), ProjectionItem.class);
+					int count = 0;
+					for (ProjectionItem item : items) {
+						if (item != null) count++;
+					}
+					assertTrue(count > 0);
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				System.out.println("parseLines " + ((workers > 0) ? workers + " worker(s)" : "sequential") + ": "
+						+ String.format("%.1f", mb / (best / 1e9)) + " MB/s");
+			} finally {
+				if (executor != null) executor.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testParseArray() throws Exception {
+		StringBuilder sb = new StringBuilder("[\n");
+		for (int i = 0; i < 500; i++) {
+			if (i > 0) sb.append(",\n");
+			sb.append("{\"id\": ").append(i).append(", \"x\": \"a,]}[{\\\"\\\\").append(i).append("\"}");
+		}
+		sb.append("\n]\n");
+		String text = sb.toString();
+
+		Type type = new TypeReference<List<ProjectionItem>>() {}.getType();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (JSON.Mode mode : JSON.Mode.values()) {
+				JSON json = new JSON(mode);
+				List<ProjectionItem> expected = json.parse(text, type);
+
+				List<ProjectionItem> actual = new ParallelArrayParser(json, ProjectionItem.class, executor, 0, 100).parse(text);
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expected.get(i).id, actual.get(i).id);
+					assertEquals(expected.get(i).x, actual.get(i).x);
+				}
+				assertEquals(expected.size(), json.parseArray(text.toCharArray(), ProjectionItem.class, executor).size());
+			}
+
+			JSON json = new JSON();
+			assertEquals(Arrays.asList(), new ParallelArrayParser(json, Object.class, executor, 0, 1).parse(" [ ] "));
+			assertEquals(Arrays.asList(new BigDecimal("1"), "/*,*/", Arrays.asList(new BigDecimal("2"))),
+					new ParallelArrayParser(json, Object.class, executor, 0, 1).parse("[1 /* , */, '/*,*/' // ,\n, [2]]"));
+
+			// falls back to sequential parsing
+			assertEquals(json.parse("[1, 2,]", List.class),
+					new ParallelArrayParser(json, Object.class, executor, 0, 1).parse("[1, 2,]"));
+			assertEquals(Arrays.asList(new BigDecimal("1")),
+					new ParallelArrayParser(json, Object.class, executor, 0, 1).parse("1"));
+			assertEquals(Arrays.asList(new BigDecimal("1"), new BigDecimal("2")),
+					json.parseArray("[1, 2]", Object.class, null));
+
+			for (String malformed : new String[] { "[1, {\"a\": }, 3]", "[1, 2", "[1, 2] 3", "[1, \"a" }) {
+				try {
+					new ParallelArrayParser(new JSON(JSON.Mode.STRICT), Object.class, executor, 0, 1).parse(malformed);
+					fail(malformed);
+				} catch (JSONException e) {
+					assertEquals(malformed, JSONException.PARSE_ERROR, e.getErrorCode());
+				}
+			}
+
+			// elements are checked in array context
+			String[] elements = { "[1, -]", "[1, 1.]", "[1, tru]", "[1, \"a\tb\"]", "[1, a: 2]", "[1, 2 3]", "[1, [2]]" };
+			for (JSON.Mode mode : JSON.Mode.values()) {
+				JSON mjson = new JSON(mode);
+				for (String element : elements) {
+					Object expected;
+					try {
+						expected = mjson.parse(element, List.class);
+					} catch (JSONException e) {
+						expected = toErrorString(e);
+					}
+
+					Object actual;
+					try {
+						actual = new ParallelArrayParser(mjson, Object.class, executor, 0, 1).parse(element);
+					} catch (JSONException e) {
+						actual = toErrorString(e);
+					}
+					assertEquals(mode + " " + element, expected, actual);
+				}
+			}
+
+			File file = File.createTempFile("jsonic", ".json");
+			try {
+				FileOutputStream out = new FileOutputStream(file);
+				try {
+					out.write(new byte[] { (byte)0xEF, (byte)0xBB, (byte)0xBF });
+					out.write(text.replace("\\\\", "あ").getBytes("UTF-8"));
+				} finally {
+					out.close();
+				}
+
+				List<ProjectionItem> expected = json.parse(file, type);
+				List<ProjectionItem> actual = new ParallelArrayParser(json, ProjectionItem.class, executor, 0, 100).parse(file);
+				assertEquals(expected.size(), actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(expected.get(i).id, actual.get(i).id);
+					assertEquals(expected.get(i).x, actual.get(i).x);
+				}
+				assertEquals(expected.size(), json.parseArray(file, ProjectionItem.class, executor).size());
+			} finally {
+				file.delete();
+			}
+
+			// errors have the positions in the whole input
+			String head = text.substring(0, text.lastIndexOf('}') + 1).replace("\\\\", "\u3042");
+			for (String bad : new String[] { "tru", "-", "{\"id\": 1,\n \"x\": }", "[1,\r\n 1.]", "\"a\tb\"", "1 2" }) {
+				String badText = head + ",\n  " + bad + " \n]\n";
+				for (JSON.Mode mode : JSON.Mode.values()) {
+					JSON mjson = new JSON(mode);
+					String expected;
+					try {
+						mjson.parse(badText, List.class);
+						expected = null;
+					} catch (JSONException e) {
+						expected = toErrorString(e);
+					}
+					String actual;
+					try {
+						new ParallelArrayParser(mjson, Object.class, executor, 0, 100).parse(badText);
+						actual = null;
+					} catch (JSONException e) {
+						actual = toErrorString(e);
+					}
+					assertEquals(mode + " " + bad, expected, actual);
+
+					file = File.createTempFile("jsonic", ".json");
+					try {
+						FileOutputStream out = new FileOutputStream(file);
+						try {
+							out.write(new byte[] { (byte)0xEF, (byte)0xBB, (byte)0xBF });
+							out.write(badText.getBytes("UTF-8"));
+						} finally {
+							out.close();
+						}
+						try {
+							mjson.parse(file, List.class);
+							expected = null;
+						} catch (JSONException e) {
+							expected = toErrorString(e);
+						}
+						try {
+							new ParallelArrayParser(mjson, Object.class, executor, 0, 100).parse(file);
+							actual = null;
+						} catch (JSONException e) {
+							actual = toErrorString(e);
+						}
+						assertEquals(mode + " " + bad, expected, actual);
+					} finally {
+						file.delete();
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static String toErrorString(JSONException e) {
+		return e.getErrorCode() + " " + e.getLineNumber() + ":" + e.getColumnNumber() + " "
+				+ e.getErrorOffset() + " " + e.getMessage();
+	}
+
+	@Test
+	public void testParallelFormat() throws Exception {
+		List<Object> list = new ArrayList<Object>();
+		for (int i = 0; i < 1000; i++) {
+			ProjectionItem item = new ProjectionItem();
+			item.id = i;
+			item.x = "x" + i;
+			list.add((i % 3 == 0) ? item : (i % 3 == 1) ? Arrays.asList(i, "\u3042", null) : Integer.valueOf(i));
+		}
+		list.add(null);
+		Object[] array = list.toArray();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (boolean prettyPrint : new boolean[] { false, true }) {
+				JSON expected = new JSON();
+				expected.setPrettyPrint(prettyPrint);
+
+				JSON json = new JSON();
+				json.setPrettyPrint(prettyPrint);
+				json.setParallelExecutor(executor);
+				json.setParallelThreshold(10);
+				assertEquals(executor, json.getParallelExecutor());
+				assertEquals(10, json.getParallelThreshold());
+
+				assertEquals(expected.format(list), json.format(list));
+				assertEquals(expected.format(array), json.format(array));
+				assertEquals(expected.format(Collections.singletonMap("a", list)), json.format(Collections.singletonMap("a", list)));
+				assertEquals(expected.format(Arrays.asList(list, array)), json.format(Arrays.asList(list, array)));
+				assertEquals(expected.format(new ArrayList<Object>()), json.format(new ArrayList<Object>()));
+
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				json.format(list, out);
+				assertEquals(expected.format(list), new String(out.toByteArray(), "UTF-8"));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		try {
+			new JSON().setParallelThreshold(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// ok
+		}
+	}
+
+	@Test
+	public void testParseElements() throws Exception {
+		JSON json = new JSON();
+		String text = "[{\"id\": 1, \"x\": \"a\"}, /* c */ {\"id\": 2, \"x\": \"b\"}, null, {\"id\": 3}]";
+
+		List<Integer> ids = new ArrayList<Integer>();
+		JSONElementIterator<ProjectionItem> elements = json.parseElements(text, ProjectionItem.class);
+		for (ProjectionItem item : elements) {
+			ids.add((item != null) ? item.id : null);
+		}
+		assertEquals(Arrays.asList(1, 2, null, 3), ids);
+		assertEquals(3, elements.getIndex());
+		assertFalse(elements.hasNext());
+
+		elements = json.parseElements(new ByteArrayInputStream(text.getBytes("UTF-8")), ProjectionItem.class);
+		assertEquals("a", elements.next().x);
+		elements.close();
+		assertFalse(elements.hasNext());
+
+		assertFalse(json.parseElements("[]", Object.class).hasNext());
+		assertEquals(Arrays.asList(Arrays.asList(new BigDecimal("1")), "a"),
+				toList(json.parseElements(new StringReader(" [[1], \"a\"] "), Object.class)));
+
+		List<Map.Entry<String, Integer>> entries = toList(json.<Integer>parseEntries("{\"a\": 1, \"b\": 2}", Integer.class));
+		assertEquals(2, entries.size());
+		assertEquals("a", entries.get(0).getKey());
+		assertEquals(Integer.valueOf(1), entries.get(0).getValue());
+		assertEquals("b", entries.get(1).getKey());
+		assertEquals(Integer.valueOf(2), entries.get(1).getValue());
+
+		// nested array inside a reader
+		JSONReader reader = json.getReader("{\"meta\": {\"n\": 2}, \"data\": [\"1\", \"2\"], \"tail\": true}", false);
+		List<Integer> data = null;
+		JSONEventType event;
+		while ((event = reader.next()) != null) {
+			if (event == JSONEventType.NAME && "data".equals(reader.getString())) {
+				while (reader.next() != JSONEventType.START_ARRAY);
+				data = toList(reader.<Integer>getElements(Integer.class));
+				while ((event = reader.next()) == JSONEventType.WHITESPACE);
+				assertEquals(JSONEventType.NAME, event);
+				assertEquals("tail", reader.getString());
+			}
+		}
+		assertEquals(Arrays.asList(1, 2), data);
+
+		try {
+			json.getReader("1").getElements(Object.class);
+			fail();
+		} catch (IllegalStateException e) {
+			// ok
+		}
+
+		try {
+			json.parseElements("{}", Object.class).hasNext();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.POSTPARSE_ERROR, e.getErrorCode());
+		}
+
+		try {
+			json.parseEntries("[]", Object.class).hasNext();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.POSTPARSE_ERROR, e.getErrorCode());
+		}
+
+		try {
+			json.parseElements("  ", Object.class).hasNext();
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+
+		try {
+			toList(new JSON(JSON.Mode.STRICT).parseElements("[1, 2", Object.class));
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+
+		// content after the root value
+		for (JSON.Mode mode : JSON.Mode.values()) {
+			JSON mjson = new JSON(mode);
+			for (String trailing : new String[] { "[1, 2] xyz", "[1, 2] [3]", "[1, 2] 3" }) {
+				try {
+					toList(mjson.parseElements(trailing, Object.class));
+					fail(mode + " " + trailing);
+				} catch (JSONException e) {
+					assertEquals(mode + " " + trailing, JSONException.PARSE_ERROR, e.getErrorCode());
+				}
+			}
+			try {
+				toList(mjson.parseEntries("{\"a\": 1} {}", Object.class));
+				fail(mode.toString());
+			} catch (JSONException e) {
+				assertEquals(mode.toString(), JSONException.PARSE_ERROR, e.getErrorCode());
+			}
+			assertEquals(Arrays.asList(new BigDecimal("1")), toList(mjson.parseElements("[1] \n ", Object.class)));
+		}
+		assertEquals(Arrays.asList(new BigDecimal("1")), toList(json.parseElements("[1] /* c */ // d", Object.class)));
+
+		// generated input which is never held in memory at once
+		final int size = 200000;
+		Reader generator = new Reader() {
+			int count = -1;
+			String current = "[";
+			int pos = 0;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) {
+				int n = 0;
+				while (n < len) {
+					if (pos >= current.length()) {
+						count++;
+						if (count < size) {
+							current = ((count > 0) ? "," : "") + "{\"id\":" + count + ",\"x\":\"" + count + "\"}";
+						} else if (count == size) {
+							current = "]";
+						} else {
+							break;
+						}
+						pos = 0;
+					}
+					cbuf[off + n++] = current.charAt(pos++);
+				}
+				return (n == 0) ? -1 : n;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		long sum = 0;
+		int count = 0;
+		for (ProjectionItem item : json.parseElements(generator, ProjectionItem.class)) {
+			assertEquals(Integer.toString(item.id), item.x);
+			sum += item.id;
+			count++;
+		}
+		assertEquals(size, count);
+		assertEquals((long)size * (size - 1) / 2, sum);
+
+		File file = File.createTempFile("jsonic", ".json");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(text.getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+
+			JSONElementIterator<ProjectionItem> it = json.parseElements(file, ProjectionItem.class);
+			try {
+				assertEquals(1, it.next().id);
+			} finally {
+				it.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static <T> List<T> toList(Iterator<T> it) {
+		List<T> list = new ArrayList<T>();
+		while (it.hasNext()) {
+			list.add(it.next());
+		}
+		return list;
+	}
+
+	@Test
+	public void testFlushPolicy() throws Exception {
+		final List<Integer> flushes = new ArrayList<Integer>();
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream out = new FilterOutputStream(bytes) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				bytes.write(b, off, len);
+			}
+
+			@Override
+			public void flush() {
+				flushes.add(bytes.size());
+			}
+		};
+
+		List<Object> list = new ArrayList<Object>();
+		for (int i = 0; i < 100; i++) {
+			list.add("0123456789");
+		}
+
+		JSON json = new JSON();
+		json.format(list, out);
+		assertEquals(Arrays.asList(bytes.size()), flushes);
+		String expected = new String(bytes.toByteArray(), "UTF-8");
+
+		flushes.clear();
+		bytes.reset();
+		json.setFlushCount(10);
+		json.format(list.iterator(), out);
+		assertEquals(expected, new String(bytes.toByteArray(), "UTF-8"));
+		assertEquals(11, flushes.size());
+		assertEquals(Integer.valueOf(1 + 10 * 13 - 1), flushes.get(0));
+
+		flushes.clear();
+		bytes.reset();
+		json.setFlushCount(0);
+		json.setFlushSize(130);
+		json.format(list.toArray(), out);
+		assertEquals(expected, new String(bytes.toByteArray(), "UTF-8"));
+		assertEquals(11, flushes.size());
+
+		flushes.clear();
+		bytes.reset();
+		json.setFlushSize(0);
+		json.setFlushTime(1);
+		json.format(new Iterator<Object>() {
+			int count = 0;
+
+			@Override
+			public boolean hasNext() {
+				return count < 3;
+			}
+
+			@Override
+			public Object next() {
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return count++;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, out);
+		assertEquals("[0,1,2]", new String(bytes.toByteArray(), "UTF-8"));
+		assertEquals(Arrays.asList(2, 4, 6, 7), flushes);
+
+		assertEquals(0, json.getFlushCount());
+		assertEquals(0, json.getFlushSize());
+		assertEquals(1L, json.getFlushTime());
+
+		try {
+			json.setFlushCount(-1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// ok
+		}
+	}
+
+	@Test
+	public void testParseLazy() throws Exception {
+		StringBuilder sb = new StringBuilder("{\"items\": [");
+		for (int i = 0; i < 50; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append("{\"id\": ").append(i).append(", \"x\": \"a\\n\\u3042").append(i).append("\", \"f\": [true, false, null, -1.5e3]}");
+		}
+		sb.append("], \"a\": 1, \"b\": {}, \"c\": [], \"d\": \"]}\\\"\", \"a\": 2");
+		for (int i = 0; i < 10; i++) {
+			sb.append(", \"k").append(i).append("\": ").append(i);
+		}
+		sb.append("}");
+
+		String[] texts = {
+			sb.toString(),
+			"[1, \"2\", [3, [4, {\"5\": [6]}]], {}]",
+			" \uFEFF[] ",
+		};
+		for (JSON.Mode mode : JSON.Mode.values()) {
+			JSON json = new JSON(mode);
+			for (String text : texts) {
+				Object expected = json.parse(text);
+				Object actual = json.parseLazy(text);
+				assertEquals(expected, actual);
+				assertEquals(actual, expected);
+				assertEquals(expected.hashCode(), actual.hashCode());
+				assertEquals(json.format(expected), json.format(actual));
+			}
+		}
+
+		JSON json = new JSON();
+		Map<String, Object> map = json.parseLazy(sb);
+		assertEquals(new BigDecimal("2"), map.get("a"));
+		assertTrue(map.containsKey("k9"));
+		assertFalse(map.containsKey("k10"));
+		assertEquals(15, map.size());
+		List<?> items = (List<?>)map.get("items");
+		assertTrue(items instanceof RandomAccess);
+		assertEquals("a\n\u30423", ((Map<?, ?>)items.get(3)).get("x"));
+		assertSame(items.get(3), items.get(3));
+
+		Map<String, Object> source = json.parseLazy("{\"a\": 1, \"items\": [{\"id\": 2, \"x\": \"y\"}]}");
+		ProjectionBean bean = (ProjectionBean)json.convert(source, ProjectionBean.class);
+		assertEquals(1, bean.a);
+		assertEquals(2, bean.items.get(0).id);
+
+		// errors are thrown up front as by parse
+		String[] invalids = {
+			"[-]",
+			"[1.]",
+			"[tru]",
+			"{\"ok\": \"yes\", \"bad\": tru, \"list\": [1, 0x]}",
+			"[\"a\tb\"]",
+		};
+		for (JSON.Mode mode : JSON.Mode.values()) {
+			JSON ijson = new JSON(mode);
+			for (String text : invalids) {
+				JSONException expected = null;
+				Object value = null;
+				try {
+					value = ijson.parse(text);
+				} catch (JSONException e) {
+					expected = e;
+				}
+
+				try {
+					Object actual = ijson.parseLazy(text);
+					assertNull(mode + " " + text, expected);
+					assertEquals(mode + " " + text, value, actual);
+				} catch (JSONException e) {
+					assertNotNull(mode + " " + text, expected);
+					assertEquals(mode + " " + text, expected.getMessage(), e.getMessage());
+					assertEquals(expected.getErrorCode(), e.getErrorCode());
+					assertEquals(expected.getErrorOffset(), e.getErrorOffset());
+				}
+			}
+		}
+		try {
+			new JSON(JSON.Mode.STRICT).parseLazy("[\"a\tb\"]");
+			fail();
+		} catch (JSONException e) {
+			assertEquals(JSONException.PARSE_ERROR, e.getErrorCode());
+		}
+
+		// modification
+		Map<String, Object> mmap = json.parseLazy("{\"a\": 1, \"b\": [1, 2], \"c\": 3}");
+		mmap.put("d", new BigDecimal("4"));
+		mmap.remove("a");
+		assertEquals(json.parse("{\"b\": [1, 2], \"c\": 3, \"d\": 4}"), mmap);
+		@SuppressWarnings("unchecked")
+		List<Object> mlist = (List<Object>)mmap.get("b");
+		mlist.set(0, "x");
+		mlist.add(3);
+		mlist.remove(1);
+		assertEquals(Arrays.asList("x", 3), mlist);
+		Iterator<Map.Entry<String, Object>> it = mmap.entrySet().iterator();
+		it.next();
+		it.remove();
+		assertEquals(Arrays.asList("c", "d"), new ArrayList<String>(mmap.keySet()));
+
+		Map<String, Object> emap = json.parseLazy("{\"a\": 1, \"b\": 2}");
+		for (Iterator<Map.Entry<String, Object>> i = emap.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<String, Object> entry = i.next();
+			if (entry.getKey().equals("a")) i.remove();
+		}
+		assertEquals(Collections.singletonMap("b", new BigDecimal("2")), emap);
+
+		// serialized as plain collections
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream oout = new ObjectOutputStream(bytes);
+		oout.writeObject(json.parseLazy(texts[1]));
+		oout.close();
+		Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertEquals(ArrayList.class, copy.getClass());
+		assertEquals(json.parse(texts[1]), copy);
+
+		// unsupported syntax is parsed eagerly
+		assertEquals(json.parse("{a: 1, 'b': [1,,2], c: d}"), json.parseLazy("{a: 1, 'b': [1,,2], c: d}"));
+		assertEquals(json.parse("a: 1"), json.parseLazy("a: 1"));
+		assertEquals(new BigDecimal("1"), json.parseLazy("1"));
+
+		for (String malformed : new String[] { "{\"a\": 1", "[1, 2]]", "{\"a\" 1}", "" }) {
+			try {
+				new JSON(JSON.Mode.STRICT).parseLazy(malformed);
+				fail(malformed);
+			} catch (JSONException e) {
+				assertEquals(malformed, JSONException.PARSE_ERROR, e.getErrorCode());
+			}
+		}
+	}
+
+	@Test
+	public void testCompactMap() throws Exception {
+		String text = "{\"a\": 1, \"b\": [{\"x\": 1}, {}], \"c\": {\"d\": null}, \"a\": 2, \"items\": [{\"id\": 3}]}";
+
+		JSON json = new JSON();
+		json.setCompactMap(true);
+		assertTrue(json.isCompactMap());
+
+		Map<?, ?> map = json.parse(text);
+		assertEquals(CompactMap.class, map.getClass());
+		assertEquals(CompactMap.class, ((List<?>)map.get("b")).get(0).getClass());
+		assertEquals(CompactMap.class, map.get("c").getClass());
+		assertEquals(new JSON().parse(text), map);
+		assertEquals(new JSON().format(new JSON().parse(text)), json.format(map));
+		assertEquals(Arrays.asList("a", "b", "c", "items"), new ArrayList<Object>(map.keySet()));
+
+		assertEquals(CompactMap.class, json.parse(text, Map.class).getClass());
+		assertEquals(LinkedHashMap.class, json.parse(text, LinkedHashMap.class).getClass());
+		assertEquals(CompactMap.class, json.parse(new StringReader(text), Map.class).getClass());
+
+		Map<String, Map<String, Object>> typed = json.parse("{\"a\": {\"b\": 1}}", new TypeReference<Map<String, Map<String, Object>>>() {});
+		assertEquals(CompactMap.class, typed.getClass());
+		assertEquals(CompactMap.class, typed.get("a").getClass());
+
+		ProjectionBean bean = json.parse(text, ProjectionBean.class);
+		assertEquals(2, bean.a);
+		assertEquals(3, bean.items.get(0).id);
+		assertEquals(CompactMap.class, bean.b.getClass());
+
+		assertEquals(LinkedHashMap.class, new JSON().parse(text).getClass());
+	}
+
+	public static class ProjectionBean {
+		public int a;
+		public Map<String, Object> b;
+		public List<ProjectionItem> items;
+	}
+
+	public static class ProjectionItem {
+		public int id;
+		public String x;
+	}
 }
 
 class TestBeanWrapper {
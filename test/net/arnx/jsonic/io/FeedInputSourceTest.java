@@ -0,0 +1,81 @@
+package net.arnx.jsonic.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class FeedInputSourceTest {
+
+	@Test
+	public void test() throws IOException {
+		FeedInputSource in = new FeedInputSource();
+		try {
+			in.next();
+			fail();
+		} catch (NeedMoreInputException e) {
+		}
+
+		in.feed("01\r".toCharArray(), 0, 3);
+		in.checkpoint();
+		assertEquals('0', (char)in.next());
+		assertEquals('1', (char)in.next());
+		assertEquals('\r', (char)in.next());
+		assertEquals(2, in.getLineNumber());
+		try {
+			in.next();
+			fail();
+		} catch (NeedMoreInputException e) {
+		}
+
+		in.rollback();
+		assertEquals(0, in.getOffset());
+		assertEquals(1, in.getLineNumber());
+		assertEquals(0, in.getColumnNumber());
+
+		in.feed("\n2".toCharArray(), 0, 2);
+		assertEquals(5, in.mark());
+		assertEquals("01\r\n2", in.copy(5));
+		for (int i = 0; i < 5; i++) in.next();
+		assertEquals(2, in.getLineNumber());
+		assertEquals(1, in.getColumnNumber());
+		assertEquals("2", in.toString());
+
+		in.endOfInput();
+		assertEquals(-1, in.next());
+		in.back();
+		assertEquals(-1, in.next());
+	}
+
+	@Test
+	public void testBytes() throws IOException {
+		byte[] bytes = "aあ𠮷".getBytes("UTF-8");
+
+		FeedInputSource in = new FeedInputSource();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < bytes.length; i++) {
+			in.feed(ByteBuffer.wrap(bytes, i, 1));
+			try {
+				int n;
+				while ((n = in.next()) != -1) sb.append((char)n);
+			} catch (NeedMoreInputException e) {
+			}
+		}
+		assertEquals("aあ𠮷", sb.toString());
+
+		in = new FeedInputSource();
+		in.feed(ByteBuffer.wrap(bytes, 0, 2));
+		assertEquals('a', (char)in.next());
+		in.endOfInput();
+		assertEquals('�', (char)in.next());
+		assertEquals(-1, in.next());
+
+		try {
+			in.feed("a".toCharArray(), 0, 1);
+			fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package net.arnx.jsonic.io;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class LineInputSourceTest {
+
+	@Test
+	public void test() throws IOException {
+		LineInputSource in = new LineInputSource(new StringInputSource("ab\r\n\ncd"));
+
+		assertTrue(in.nextLine());
+		assertEquals(1, in.getLineNumber());
+		assertEquals(3, in.mark());
+		assertEquals('a', in.next());
+		assertEquals('b', in.next());
+		assertEquals("ab", in.toString());
+		assertEquals(2, in.getOffset());
+		assertEquals('\r', in.next());
+		assertEquals(-1, in.next());
+		in.back();
+		assertEquals(-1, in.next());
+		assertEquals("ab\r", in.copy(3));
+
+		assertTrue(in.nextLine());
+		assertEquals(2, in.getLineNumber());
+		assertEquals(4, in.getOffset());
+		assertEquals(-1, in.next());
+
+		assertTrue(in.nextLine());
+		assertEquals(3, in.getLineNumber());
+		assertEquals('c', in.next());
+		assertFalse(in.nextLine());
+	}
+}
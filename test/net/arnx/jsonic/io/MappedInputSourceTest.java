@@ -0,0 +1,153 @@
+package net.arnx.jsonic.io;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import net.arnx.jsonic.JSON;
+import net.arnx.jsonic.JSONEventType;
+import net.arnx.jsonic.JSONReader;
+
+import org.junit.Test;
+
+public class MappedInputSourceTest {
+	@Test
+	public void test() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("aéあ𠮷".substring(0, 1 + i % 3));
+			if (i % 7 == 0) sb.append("𠮷\n");
+		}
+		String text = sb.toString();
+		byte[] data = text.getBytes("UTF-8");
+		File file = createFile(data);
+		try {
+			// small windows split multi-byte sequences at window boundaries
+			for (long windowSize : new long[] { 1, 7, 16, 1L << 30 }) {
+				MappedInputSource in = new MappedInputSource(file, windowSize);
+				StringBuilder result = new StringBuilder();
+				int c;
+				while ((c = in.next()) != -1) {
+					result.append((char)c);
+					long offset = result.toString().getBytes("UTF-8").length;
+					if (!Character.isHighSurrogate((char)c)) {
+						assertEquals(offset, in.getOffset());
+					}
+				}
+				assertEquals(text, result.toString());
+				assertEquals(data.length, in.getOffset());
+
+				in.back(); // EOF
+				in.back();
+				in.back();
+				assertEquals(text.substring(0, text.length() - 2).getBytes("UTF-8").length, in.getOffset());
+				in.close();
+			}
+		} finally {
+			file.delete();
+		}
+
+		file = createFile("aé".getBytes("UTF-8"));
+		try {
+			MappedInputSource in = new MappedInputSource(file);
+			assertEquals('a', in.next());
+			assertEquals('é', in.next());
+			assertEquals(3, in.getOffset());
+			in.back();
+			assertEquals(1, in.getOffset());
+			in.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testUTF16() throws IOException {
+		File file = createFile("[\"あ\"]".getBytes("UTF-16BE"));
+		try {
+			MappedInputSource in = new MappedInputSource(file);
+			assertEquals('[', in.next());
+			assertEquals('"', in.next());
+			assertEquals('あ', in.next());
+			assertEquals(6, in.getOffset());
+			in.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		File file = createFile("{\"a\": [1, 2, \"あ\"]}\n{\"b\": null}".getBytes("UTF-8"));
+		try {
+			JSON json = new JSON();
+			JSONReader reader = json.getReader(file);
+			assertEquals(JSONEventType.START_OBJECT, reader.next());
+			Map<?, ?> map = reader.getMap();
+			assertEquals("あ", ((List<?>)map.get("a")).get(2));
+			assertEquals(JSONEventType.START_OBJECT, reader.next());
+			assertTrue(reader.getMap().containsKey("b"));
+			assertNull(reader.next());
+
+			try {
+				json.parse(file);
+				fail();
+			} catch (Exception e) {
+				assertNotNull(e);
+			}
+		} finally {
+			file.delete();
+		}
+
+		file = createFile("[1, 2, 3]".getBytes("UTF-8"));
+		try {
+			assertArrayEquals(new int[] { 1, 2, 3 }, new JSON().parse(file, int[].class));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testClose() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			sb.append((char)('a' + i % 26));
+		}
+		File file = createFile(sb.toString().getBytes("UTF-8"));
+		try {
+			// the rest of the windows is not read after close
+			MappedInputSource in = new MappedInputSource(file, 16);
+			assertEquals('a', in.next());
+			in.close();
+			int count = 1;
+			while (in.next() != -1) count++;
+			assertTrue(count < sb.length());
+			in.close();
+
+			JSONReader reader = new JSON().getReader(file);
+			try {
+				assertEquals(JSONEventType.STRING, reader.next());
+			} finally {
+				reader.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static File createFile(byte[] data) throws IOException {
+		File file = File.createTempFile("jsonic", ".json");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+}
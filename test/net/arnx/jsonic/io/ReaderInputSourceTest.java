@@ -2,8 +2,16 @@ package net.arnx.jsonic.io;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -139,4 +147,108 @@ public class ReaderInputSourceTest {
 		assertEquals(0, in.getColumnNumber());
 	}
 
+	@Test
+	public void testUTF8() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("a\u00E9\u3042\uD842\uDFB7".substring(0, 1 + i % 3));
+			if (i % 7 == 0) sb.append("\uD842\uDFB7");
+		}
+		String text = sb.toString();
+		byte[] data = text.getBytes("UTF-8");
+
+		assertEquals(text, readAll(new ReaderInputSource(new ByteArrayInputStream(data))));
+
+		// a stream returning one byte at a time splits every multi-byte sequence
+		final InputStream slow = new ByteArrayInputStream(data);
+		assertEquals(text, readAll(new ReaderInputSource(new InputStream() {
+			@Override
+			public int read() throws IOException {
+				return slow.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return slow.read(b, off, Math.min(len, 1));
+			}
+		})));
+
+		byte[] malformed = new byte[] { 'a', (byte)0xFF, 'b', (byte)0xC0, (byte)0xAF, 'c', (byte)0xE3 };
+		assertEquals("a\uFFFDb\uFFFD\uFFFDc\uFFFD", readAll(new ReaderInputSource(new ByteArrayInputStream(malformed))));
+	}
+
+	@Test
+	public void testMalformedUTF8() throws IOException {
+		int[][] inputs = {
+			{ 0xE3, 0x81, 0x41 },
+			{ 0xF0, 0x9F, 0x98 },
+			{ 0xF0, 0x9F, 0x41 },
+			{ 0xED, 0xA0, 0x80 },
+			{ 0xED, 0xA0 },
+			{ 0xE0, 0x80, 0x80 },
+			{ 0xE0, 0xA0 },
+			{ 0xC0, 0xAF },
+			{ 0xC3 },
+			{ 0xC3, 0x41 },
+			{ 0xE3, 0x41 },
+			{ 0xF4, 0x90, 0x80, 0x80 },
+			{ 0xF5, 0x80, 0x80, 0x80 },
+			{ 0xF8, 0x88, 0x80, 0x80, 0x80 },
+			{ 0x80, 0xBF },
+			{ 0xFF, 0xFE },
+			{ 0xE3, 0x81, 0x82, 0xE3, 0x81 },
+			{ 0xF0, 0x9F, 0x98, 0x80, 0xF0, 0x9F },
+		};
+
+		for (int[] input : inputs) {
+			for (int tail = 0; tail < 2; tail++) {
+				byte[] data = new byte[input.length + 1 + tail];
+				data[0] = 'a';
+				for (int i = 0; i < input.length; i++) {
+					data[i + 1] = (byte)input[i];
+				}
+				if (tail > 0) data[data.length - 1] = 'b';
+
+				StringBuilder sb = new StringBuilder();
+				Reader reader = new InputStreamReader(new ByteArrayInputStream(data), "UTF-8");
+				int c;
+				while ((c = reader.read()) != -1) {
+					sb.append((char)c);
+				}
+				String expected = sb.toString();
+				String message = Arrays.toString(input) + " " + tail;
+
+				assertEquals(message, expected, readAll(new ReaderInputSource(new ByteArrayInputStream(data))));
+
+				File file = File.createTempFile("jsonic", ".json");
+				try {
+					OutputStream out = new FileOutputStream(file);
+					try {
+						out.write(data);
+					} finally {
+						out.close();
+					}
+					for (long windowSize : new long[] { 1, 2, 1L << 30 }) {
+						MappedInputSource in = new MappedInputSource(file, windowSize);
+						try {
+							assertEquals(message, expected, readAll(in));
+						} finally {
+							in.close();
+						}
+					}
+				} finally {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	private static String readAll(InputSource in) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+		while ((c = in.next()) != -1) {
+			sb.append((char)c);
+		}
+		return sb.toString();
+	}
 }
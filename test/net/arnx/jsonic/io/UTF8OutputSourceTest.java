@@ -0,0 +1,61 @@
+package net.arnx.jsonic.io;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class UTF8OutputSourceTest {
+	@Test
+	public void test() throws Exception {
+		String chars = "0123456789éあ𠮷";
+		List<String> list = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.setLength(0);
+			int max = (int)(Math.random() * 10000);
+			for (int j = 0; j < max; j++) {
+				sb.append(chars.charAt(j % chars.length()));
+			}
+			list.add(sb.toString());
+		}
+		sb.setLength(0);
+		
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		UTF8OutputSource out = new UTF8OutputSource(bout);
+		UTF8OutputSource buf = new UTF8OutputSource(0);
+		for (String str : list) {
+			if (str.length() == 1) {
+				out.append(str.charAt(0));
+				buf.append(str.charAt(0));
+			} else if (str.length() % 2 == 0) {
+				out.append(str);
+				buf.append(str, 0, str.length());
+			} else {
+				out.append(str.toCharArray(), 0, str.length());
+				buf.append(str.toCharArray(), 0, str.length());
+			}
+			sb.append(str);
+		}
+		// a trailing high surrogate stays pending until the next char
+		out.append('0');
+		buf.append('0');
+		sb.append('0');
+		out.flush();
+		assertArrayEquals(sb.toString().getBytes("UTF-8"), bout.toByteArray());
+		assertArrayEquals(sb.toString().getBytes("UTF-8"), buf.toByteArray());
+	}
+	
+	@Test
+	public void testSurrogate() throws Exception {
+		UTF8OutputSource out = new UTF8OutputSource(0);
+		out.append('\ud842');
+		out.append('\udfb7');
+		out.append("a\udfb7b\ud842");
+		out.append("\udfb7\ud842c");
+		assertEquals("𠮷a?b𠮷?c", new String(out.toByteArray(), "UTF-8"));
+	}
+}
@@ -36,4 +36,30 @@ public class WriterOutputSourceTest {
 		out.flush();
 		assertEquals(sb.toString(), sw.toString());
 	}
+
+	@Test
+	public void testAppendCharArray() throws Exception {
+		List<String> list = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.setLength(0);
+			int max = (int)(Math.random() * 100);
+			for (int j = 0; j < max; j++) {
+				sb.append("0123456789".charAt(j%10));
+			}
+			list.add(sb.toString());
+		}
+		sb.setLength(0);
+		
+		StringWriter sw = new StringWriter();
+		WriterOutputSource out = new WriterOutputSource(sw);
+		for (String str : list) {
+			// the range is in the middle of the array
+			char[] cbuf = ("ab" + str + "cd").toCharArray();
+			out.append(cbuf, 2, 2 + str.length());
+			sb.append(str);
+		}
+		out.flush();
+		assertEquals(sb.toString(), sw.toString());
+	}
 }
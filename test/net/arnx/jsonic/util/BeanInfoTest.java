@@ -22,6 +22,175 @@ public class BeanInfoTest {
 		System.out.println(bi.getMethods());
 	}
 
+	@Test
+	public void testAccessor() throws Exception {
+		BeanInfo bi = BeanInfo.get(AccessorBean.class);
+		AccessorBean bean = (AccessorBean)bi.newInstance();
+		assertNotSame(bean, bi.newDeclaredInstance());
+
+		bi.getProperty("name").set(bean, "a");
+		bi.getProperty("count").set(bean, 3);
+		bi.getProperty("field").set(bean, 4L);
+		assertEquals("a", bi.getProperty("name").get(bean));
+		assertEquals(3, bi.getProperty("count").get(bean));
+		assertEquals(4L, bi.getProperty("field").get(bean));
+		assertEquals(Boolean.TRUE, bi.getProperty("valid").get(bean));
+
+		try {
+			bi.getProperty("count").set(bean, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+		try {
+			bi.getProperty("error").get(bean);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertEquals("error", e.getMessage());
+		}
+		try {
+			bi.getProperty("checked").get(bean);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals(java.io.IOException.class, e.getCause().getClass());
+		}
+
+		assertNotSame(Accessor.class, Accessor.getter(AccessorBean.class, AccessorBean.class.getMethod("getName")).getClass());
+		assertNotSame(Accessor.class, Accessor.setter(AccessorBean.class, AccessorBean.class.getMethod("setCount", int.class)).getClass());
+		assertNotSame(Accessor.class, Accessor.creator(AccessorBean.class.getConstructor()).getClass());
+
+		// not public: falls back to reflection
+		bi = BeanInfo.get(BeanTest2.class);
+		assertSame(Accessor.class, Accessor.getter(BeanTest2.class, BeanTest2.class.getMethod("getName")).getClass());
+		BeanTest2 bean2 = (BeanTest2)bi.newDeclaredInstance();
+		bi.getProperty("name").set(bean2, "b");
+		assertEquals("b", bi.getProperty("name").get(bean2));
+
+		try {
+			BeanInfo.get(BeanTest3.class).newDeclaredInstance();
+			fail();
+		} catch (NoSuchMethodException e) {
+			assertNotNull(e);
+		}
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		BeanInfo.clear();
+		int size = BeanInfo.getCacheSize();
+		CacheStatistics stats = BeanInfo.getCacheStatistics();
+		try {
+			long hits = stats.getHitCount();
+			long misses = stats.getMissCount();
+			long evictions = stats.getEvictionCount();
+
+			BeanInfo bi = BeanInfo.get(BeanTest1.class);
+			assertSame(bi, BeanInfo.get(BeanTest1.class));
+			assertEquals(hits + 1, stats.getHitCount());
+			assertEquals(misses + 1, stats.getMissCount());
+
+			BeanInfo.get(BeanTest2.class);
+			BeanInfo.get(BeanTest3.class);
+			BeanInfo.setCacheSize(2);
+			assertEquals(2, BeanInfo.getCacheSize());
+			assertEquals(evictions + 1, stats.getEvictionCount());
+			assertNotSame(bi, BeanInfo.get(BeanTest1.class));
+			assertEquals(evictions + 2, stats.getEvictionCount());
+
+			try {
+				BeanInfo.setCacheSize(0);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertNotNull(e);
+			}
+		} finally {
+			BeanInfo.setCacheSize(size);
+			BeanInfo.clear();
+		}
+	}
+
+	@Test
+	public void testConcurrentGet() throws Exception {
+		BeanInfo.clear();
+		final Class<?>[] classes = { BeanTest1.class, BeanTest2.class, BeanTest3.class, AccessorBean.class };
+		final BeanInfo[][] results = new BeanInfo[8][classes.length];
+
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < classes.length; j++) {
+						results[index][j] = BeanInfo.get(classes[j]);
+					}
+				}
+			};
+		}
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads) thread.join();
+
+		for (int j = 0; j < classes.length; j++) {
+			for (BeanInfo[] result : results) {
+				assertSame(BeanInfo.get(classes[j]), result[j]);
+			}
+		}
+	}
+
 	static class BeanTest1 {
 	}
+
+	public static class AccessorBean {
+		private String name;
+		private int count;
+		public long field;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public boolean isValid() {
+			return true;
+		}
+
+		public String getError() {
+			throw new UnsupportedOperationException("error");
+		}
+
+		public String getChecked() throws java.io.IOException {
+			throw new java.io.IOException("checked");
+		}
+	}
+
+	static class BeanTest2 {
+		private String name;
+
+		private BeanTest2() {
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+	public static class BeanTest3 {
+		public BeanTest3(String value) {
+		}
+	}
 }
@@ -0,0 +1,93 @@
+package net.arnx.jsonic.util;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ClassCacheTest {
+	@Test
+	public void testGetAndPut() throws Exception {
+		ClassCache<String> cache = ClassCache.newInstance();
+
+		assertNull(cache.get(String.class, "a"));
+		assertEquals("1", cache.putIfAbsent(String.class, "a", "1"));
+		assertEquals("1", cache.putIfAbsent(String.class, "a", "2"));
+		assertEquals("1", cache.get(String.class, "a"));
+		assertNull(cache.get(String.class, "b"));
+		assertNull(cache.get(Integer.class, "a"));
+
+		cache.clear();
+		assertNull(cache.get(String.class, "a"));
+	}
+
+	@Test
+	public void testConcurrentPut() throws Exception {
+		final ClassCache<Object> cache = ClassCache.newInstance();
+		final AtomicInteger errors = new AtomicInteger();
+		final Object[] results = new Object[8];
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < results.length; i++) {
+			final int index = i;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						results[index] = cache.putIfAbsent(List.class, "key", new Object());
+					} catch (Exception e) {
+						errors.incrementAndGet();
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) thread.start();
+		for (Thread thread : threads) thread.join();
+
+		assertEquals(0, errors.get());
+		for (Object result : results) {
+			assertSame(cache.get(List.class, "key"), result);
+		}
+	}
+
+	@Test
+	public void testUnload() throws Exception {
+		WeakReference<ClassLoader> ref = cacheJDKClasses();
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+	}
+
+	private static WeakReference<ClassLoader> cacheJDKClasses() throws Exception {
+		URL url = ClassCache.class.getProtectionDomain().getCodeSource().getLocation();
+		final ClassLoader cl = new URLClassLoader(new URL[] { url }, ClassLoader.getSystemClassLoader().getParent());
+
+		// uses another thread to leave no thread local value
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Class<?> json = cl.loadClass("net.arnx.jsonic.JSON");
+					json.getMethod("encode", Object.class).invoke(null, new java.awt.Point(1, 2));
+					json.getMethod("decode", String.class, Class.class).invoke(null, "{\"x\":1,\"y\":2}", java.awt.Point.class);
+					cl.loadClass("net.arnx.jsonic.util.BeanInfo").getMethod("get", Class.class).invoke(null, Date.class);
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNull(error[0]);
+		return new WeakReference<ClassLoader>(cl);
+	}
+}
@@ -1,7 +1,6 @@
 package net.arnx.jsonic.util;
 
 import java.io.File;
-import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -30,25 +29,53 @@ public class ClassUtilTest {
 		
 		Thread.currentThread().setContextClassLoader(current);
 		
-		Field cacheField = ClassUtil.class.getDeclaredField("cache");
-		cacheField.setAccessible(true);
-		
-		@SuppressWarnings("unchecked")
-		Map<ClassLoader, Map<String, Class<?>>> cache = (Map<ClassLoader, Map<String, Class<?>>>)cacheField.get(null);
-		
-		assertEquals(1, cache.size());
-		assertEquals(3, cache.get(cl).size());
-		assertNull(cache.get(cl).get("org.apache.commons.logging.Log2"));
+		assertEquals(1, ClassUtil.getCachedLoaderCount());
+		assertEquals(3, ClassUtil.getCachedNameCount(cl));
 		cl = null;
 		
 		System.gc();
 		
 		Thread.sleep(1000);
 
-		assertTrue(cache.isEmpty());
+		assertEquals(0, ClassUtil.getCachedLoaderCount());
 	}
 	
 	
+	@Test
+	public void testFindClassCache() throws Exception {
+		ClassUtil.clear();
+		int size = ClassUtil.getCacheSize();
+		CacheStatistics stats = ClassUtil.getCacheStatistics();
+		try {
+			ClassUtil.setCacheSize(2);
+			long hits = stats.getHitCount();
+			long misses = stats.getMissCount();
+			long evictions = stats.getEvictionCount();
+
+			assertEquals(String.class, ClassUtil.findClass("java.lang.String"));
+			assertEquals(String.class, ClassUtil.findClass("java.lang.String"));
+			assertNull(ClassUtil.findClass("java.lang.String2"));
+			assertNull(ClassUtil.findClass("java.lang.String2"));
+			assertEquals(hits + 2, stats.getHitCount());
+			assertEquals(misses + 2, stats.getMissCount());
+
+			assertEquals(Integer.class, ClassUtil.findClass("java.lang.Integer"));
+			assertEquals(Long.class, ClassUtil.findClass("java.lang.Long"));
+			assertEquals(evictions + 2, stats.getEvictionCount());
+			assertEquals(Long.class, ClassUtil.findClass("java.lang.Long"));
+
+			try {
+				ClassUtil.setCacheSize(0);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertNotNull(e);
+			}
+		} finally {
+			ClassUtil.setCacheSize(size);
+			ClassUtil.clear();
+		}
+	}
+
 	@Test
 	public void testToUpperCamel() throws Exception {
 		assertEquals("A", ClassUtil.toUpperCamel("a"));
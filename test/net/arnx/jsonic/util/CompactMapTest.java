@@ -0,0 +1,108 @@
+package net.arnx.jsonic.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompactMapTest {
+	@Test
+	public void testMap() throws Exception {
+		Random random = new Random(1);
+		for (int size : new int[] { 0, 1, 8, 9, 100 }) {
+			Map<String, Integer> expected = new LinkedHashMap<String, Integer>();
+			Map<String, Integer> actual = new CompactMap<String, Integer>(size);
+			for (int i = 0; i < size * 4; i++) {
+				String key = (i % 17 == 0) ? null : "k" + random.nextInt(size * 2 + 1);
+				switch (random.nextInt(4)) {
+				case 0:
+					assertEquals(expected.remove(key), actual.remove(key));
+					break;
+				case 1:
+					assertEquals(expected.get(key), actual.get(key));
+					assertEquals(expected.containsKey(key), actual.containsKey(key));
+					break;
+				default:
+					assertEquals(expected.put(key, i), actual.put(key, i));
+				}
+				assertEquals(expected.size(), actual.size());
+			}
+			assertEquals(expected, actual);
+			assertEquals(actual, expected);
+			assertEquals(expected.hashCode(), actual.hashCode());
+			assertEquals(expected.toString(), actual.toString());
+			assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()));
+		}
+	}
+
+	@Test
+	public void testIterator() throws Exception {
+		Map<String, Integer> map = new CompactMap<String, Integer>();
+		for (int i = 0; i < 20; i++) {
+			map.put("k" + i, i);
+		}
+
+		for (Iterator<Map.Entry<String, Integer>> i = map.entrySet().iterator(); i.hasNext(); ) {
+			Map.Entry<String, Integer> entry = i.next();
+			if (entry.getValue() % 2 == 0) {
+				i.remove();
+			} else {
+				entry.setValue(entry.getValue() * 10);
+			}
+		}
+		assertEquals(10, map.size());
+		assertEquals(Integer.valueOf(10), map.get("k1"));
+		assertNull(map.get("k2"));
+		assertEquals(Integer.valueOf(190), map.get("k19"));
+
+		map.values().remove(10);
+		assertFalse(map.containsKey("k1"));
+		map.keySet().retainAll(Arrays.asList("k3", "k5"));
+		assertEquals(Arrays.asList("k3", "k5"), new ArrayList<String>(map.keySet()));
+
+		try {
+			for (String key : map.keySet()) {
+				map.put(key + "x", 0);
+			}
+			fail();
+		} catch (ConcurrentModificationException e) {
+			// ok
+		}
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		map.put("a", 1);
+		assertEquals("{a=1}", map.toString());
+	}
+
+	@Test
+	public void testSerialize() throws Exception {
+		Map<String, Integer> map = new CompactMap<String, Integer>();
+		for (int i = 0; i < 20; i++) {
+			map.put("k" + i, i);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(map);
+		out.close();
+
+		@SuppressWarnings("unchecked")
+		Map<String, Integer> copy = (Map<String, Integer>)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertEquals(CompactMap.class, copy.getClass());
+		assertEquals(map, copy);
+		assertEquals(Integer.valueOf(15), copy.get("k15"));
+		copy.put("x", 1);
+		assertEquals(21, copy.size());
+	}
+}
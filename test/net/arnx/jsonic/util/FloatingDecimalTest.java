@@ -0,0 +1,67 @@
+package net.arnx.jsonic.util;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FloatingDecimalTest {
+	@Test
+	public void testDouble() throws Exception {
+		assertEquals("0.0", toString(0.0));
+		assertEquals("-0.0", toString(-0.0));
+		assertEquals("1.0", toString(1.0));
+		assertEquals("-1.5", toString(-1.5));
+		assertEquals("100.0", toString(100.0));
+		assertEquals("0.1", toString(0.1));
+		assertEquals("0.001", toString(0.001));
+		assertEquals("1.0E-4", toString(0.0001));
+		assertEquals("9999999.0", toString(9999999.0));
+		assertEquals("1.0E7", toString(1e7));
+		assertEquals("1.0E23", toString(1e23));
+		assertEquals("1.23456789012E11", toString(123456789012.0));
+		assertEquals("4.9E-324", toString(Double.MIN_VALUE));
+		assertEquals("9.9E-324", toString(2 * Double.MIN_VALUE));
+		assertEquals("1.7976931348623157E308", toString(Double.MAX_VALUE));
+
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			double d = Double.longBitsToDouble(random.nextLong());
+			if (Double.isNaN(d) || Double.isInfinite(d)) continue;
+
+			String s = toString(d);
+			assertTrue(s, d == Double.parseDouble(s));
+			assertTrue(s, s.length() <= Double.toString(d).length());
+		}
+	}
+
+	@Test
+	public void testFloat() throws Exception {
+		assertEquals("0.0", toString(0.0F));
+		assertEquals("-0.0", toString(-0.0F));
+		assertEquals("0.1", toString(0.1F));
+		assertEquals("1.6777216E7", toString(16777216F));
+		assertEquals("1.4E-45", toString(Float.MIN_VALUE));
+		assertEquals("3.4028235E38", toString(Float.MAX_VALUE));
+
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			float f = Float.intBitsToFloat(random.nextInt());
+			if (Float.isNaN(f) || Float.isInfinite(f)) continue;
+
+			String s = toString(f);
+			assertTrue(s, f == Float.parseFloat(s));
+			assertTrue(s, s.length() <= Float.toString(f).length());
+		}
+	}
+
+	private static String toString(double d) {
+		char[] buf = new char[FloatingDecimal.MAX_CHARS];
+		return new String(buf, 0, FloatingDecimal.toChars(d, buf, 0));
+	}
+
+	private static String toString(float f) {
+		char[] buf = new char[FloatingDecimal.MAX_CHARS];
+		return new String(buf, 0, FloatingDecimal.toChars(f, buf, 0));
+	}
+}
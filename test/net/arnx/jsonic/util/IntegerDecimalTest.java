@@ -0,0 +1,49 @@
+package net.arnx.jsonic.util;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntegerDecimalTest {
+	@Test
+	public void testInt() throws Exception {
+		int[] values = { 0, 1, -1, 9, 10, -10, 99, 100, -100, 12345, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		for (int value : values) {
+			assertEquals(Integer.toString(value), toString(value));
+		}
+
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			int value = random.nextInt() >> random.nextInt(32);
+			assertEquals(Integer.toString(value), toString(value));
+		}
+	}
+
+	@Test
+	public void testLong() throws Exception {
+		long[] values = { 0L, 1L, -1L, 2147483647L, 2147483648L, -2147483648L, -2147483649L,
+				999999999999999999L, 1000000000000000000L, Long.MAX_VALUE, Long.MIN_VALUE };
+		for (long value : values) {
+			assertEquals(Long.toString(value), toString(value));
+		}
+
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			long value = random.nextLong() >> random.nextInt(64);
+			assertEquals(Long.toString(value), toString(value));
+		}
+	}
+
+	private static String toString(int value) {
+		char[] buf = new char[IntegerDecimal.MAX_CHARS + 2];
+		buf[0] = 'x';
+		return new String(buf, 1, IntegerDecimal.toChars(value, buf, 1) - 1);
+	}
+
+	private static String toString(long value) {
+		char[] buf = new char[IntegerDecimal.MAX_CHARS + 2];
+		buf[0] = 'x';
+		return new String(buf, 1, IntegerDecimal.toChars(value, buf, 1) - 1);
+	}
+}
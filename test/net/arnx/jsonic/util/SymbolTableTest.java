@@ -0,0 +1,52 @@
+package net.arnx.jsonic.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+	@Test
+	public void testGet() throws Exception {
+		SymbolTable symbols = new SymbolTable(16);
+		assertEquals(16, symbols.getCapacity());
+
+		char[] cbuf = "xnamex".toCharArray();
+		String name = symbols.get(cbuf, 1, 5);
+		assertEquals("name", name);
+		assertSame(name, symbols.get(cbuf, 1, 5));
+		assertSame(name, symbols.get("name", 0, 4));
+		assertSame(name, symbols.get(new StringBuilder("[name]"), 1, 5));
+
+		assertEquals("", symbols.get(cbuf, 0, 0));
+		assertSame(symbols.get(cbuf, 0, 0), symbols.get("", 0, 0));
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) sb.append('a');
+		assertEquals(sb.toString(), symbols.get(sb, 0, sb.length()));
+		assertNotSame(symbols.get(sb, 0, sb.length()), symbols.get(sb, 0, sb.length()));
+
+		symbols.clear();
+		assertNotSame(name, symbols.get(cbuf, 1, 5));
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		assertEquals(8, new SymbolTable(1).getCapacity());
+		assertEquals(256, new SymbolTable(200).getCapacity());
+		try {
+			new SymbolTable(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertNotNull(e);
+		}
+
+		SymbolTable symbols = new SymbolTable(32);
+		for (int i = 0; i < 10000; i++) {
+			String key = "key" + i;
+			assertEquals(key, symbols.get(key, 0, key.length()));
+		}
+		assertEquals(32, symbols.getCapacity());
+
+		String recent = symbols.get("key9999", 0, 7);
+		assertSame(recent, symbols.get("key9999".toCharArray(), 0, 7));
+	}
+}